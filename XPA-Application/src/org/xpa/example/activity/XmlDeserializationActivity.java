@@ -28,7 +28,10 @@ import org.xpa.example.util.Result;
 import org.xpa.example.util.ResultSet;
 import org.xpaframework.Deserializer;
 import org.xpaframework.MappingException;
+import org.xpaframework.xml.ContextConfiguration;
+import org.xpaframework.xml.ParserType;
 import org.xpaframework.xml.XmlContext;
+import org.xpaframework.xml.XmlContextFactory;
 
 import android.app.Activity;
 import android.content.Intent;
@@ -46,10 +49,11 @@ public class XmlDeserializationActivity extends Activity {
 
 	private final String TAG = XmlDeserializationActivity.class.getSimpleName();
 
-	private Button dom, sax, xmlPull, xpa;
+	private Button dom, sax, xmlPull, xpa, xpaPull;
 	private Spinner type, repeatCount;
 	
 	private XmlContext xmlContext;
+	private XmlContext xmlPullContext;
 
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
@@ -58,10 +62,15 @@ public class XmlDeserializationActivity extends Activity {
 
 		this.xmlContext = getApplicationContext().getXmlContext();
 		
+		ContextConfiguration pullConfiguration = XmlContextFactory.getInstance().defaultConfiguration();
+		pullConfiguration.setParserType(ParserType.PULL);
+		this.xmlPullContext = XmlContextFactory.getInstance().createXmlContext(pullConfiguration);
+		
 		this.dom = (Button) findViewById(R.id.button_xml_deserialization_dom);
 		this.sax = (Button) findViewById(R.id.button_xml_deserialization_sax);
 		this.xmlPull = (Button) findViewById(R.id.button_xml_deserialization_xml_pull);
 		this.xpa = (Button) findViewById(R.id.button_xml_deserialization_xpa);
+		this.xpaPull = (Button) findViewById(R.id.button_xml_deserialization_xpa_pull);
 		
 		this.type = (Spinner) findViewById(R.id.spinner_xml_type);
 		this.repeatCount = (Spinner) findViewById(R.id.spinner_xml_repeats);
@@ -94,7 +103,16 @@ public class XmlDeserializationActivity extends Activity {
 
 			@Override
 			List<Person> getData(InputStream input) {
-				return parseXpa(input);
+				return parseXpa(input, xmlContext);
+			}
+			
+		});
+		
+		this.xpaPull.setOnClickListener(new ButtonListener("XPA Pull") {
+
+			@Override
+			List<Person> getData(InputStream input) {
+				return parseXpa(input, xmlPullContext);
 			}
 			
 		});
@@ -340,9 +358,9 @@ public class XmlDeserializationActivity extends Activity {
 		return people;
 	}
 	
-	private List<Person> parseXpa(InputStream input) {
+	private List<Person> parseXpa(InputStream input, XmlContext context) {
 		try {
-			Deserializer<People> deserializer = this.xmlContext.createDeserializer(People.class);
+			Deserializer<People> deserializer = context.createDeserializer(People.class);
 			deserializer.deserialize(input);
 			People people = deserializer.getValue();
 			
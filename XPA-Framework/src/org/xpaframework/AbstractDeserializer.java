@@ -1,9 +1,11 @@
 package org.xpaframework;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.net.URL;
 import java.net.URLConnection;
@@ -26,6 +28,7 @@ import android.content.res.Resources;
 public abstract class AbstractDeserializer<T> implements Deserializer<T> {
 
 	private ValueAdapterRegistry adapterRegistry;
+	private ContentEncoding contentEncoding = ContentEncoding.IDENTITY;
 
 	public ValueAdapterRegistry getAdapterRegistry() {
 		return adapterRegistry;
@@ -41,6 +44,29 @@ public abstract class AbstractDeserializer<T> implements Deserializer<T> {
 	public void setValueAdapterRegistry(ValueAdapterRegistry adapterRegistry) {
 		this.adapterRegistry = adapterRegistry;
 	}
+
+	protected ContentEncoding getContentEncoding() {
+		return contentEncoding;
+	}
+
+	/**
+	 * <p>Sets if the compressed documents are requested from the
+	 * {@link URL}. Any encoding other than {@link ContentEncoding#IDENTITY}
+	 * requests both gzip and deflate responses.</p>
+	 * 
+	 * @param contentEncoding - the content encoding. By default
+	 * {@link ContentEncoding#IDENTITY} is set.
+	 * 
+	 * @throws NullPointerException if <code>contentEncoding</code> is
+	 * <code>null</code>.
+	 */
+	public void setContentEncoding(ContentEncoding contentEncoding) throws NullPointerException {
+		if(contentEncoding == null) {
+			throw new NullPointerException("Content encoding: null");
+		}
+		
+		this.contentEncoding = contentEncoding;
+	}
 	
 	/**
 	 * Deserializes the application resource specified by
@@ -65,15 +91,35 @@ public abstract class AbstractDeserializer<T> implements Deserializer<T> {
 	}
 
 	/**
-	 * Deserializes the url content.
+	 * Deserializes the url content. The compressed response is decompressed
+	 * by its content-encoding header while it is parsed.
+	 * 
+	 * @see #setContentEncoding(ContentEncoding)
 	 */
 	@Override
 	public void deserialize(URL url) throws MappingException {
+		InputStream inputStream = null;
+		
 		try {
 			URLConnection connection = url.openConnection();
-			deserialize(connection.getInputStream());
+			
+			if(this.contentEncoding != ContentEncoding.IDENTITY) {
+				connection.setRequestProperty(ContentEncoding.PROPERTY_ACCEPT_ENCODING,
+						ContentEncoding.ACCEPTED_ENCODINGS);
+			}
+			
+			inputStream = connection.getInputStream();
+			deserialize(ContentEncoding.decode(inputStream, connection.getContentEncoding()));
 		} catch (IOException e) {
 			throw new MappingException("Deseiralization failure!", e);
+		} finally {
+			if(inputStream != null) {
+				try {
+					inputStream.close();
+				} catch (IOException e) {
+					//the document was processed already
+				}
+			}
 		}
 	}
 
@@ -92,12 +138,28 @@ public abstract class AbstractDeserializer<T> implements Deserializer<T> {
 		deserialize(inputSource.getByteStream()); 
 	}
 	
+	/**
+	 * Deserializes the <code>file</code> content. The file is read by the
+	 * buffered stream and closed after the deserialization.
+	 */
 	@Override
 	public void deserialize(File file) throws MappingException {
+		FileInputStream inputStream;
+		
 		try {
-			deserialize(new FileInputStream(file));
+			inputStream = new FileInputStream(file);
 		} catch (FileNotFoundException e) {
 			throw new MappingException("Deseiralization failure! File: " + file, e);
 		}
+		
+		try {
+			deserialize(new BufferedInputStream(inputStream));
+		} finally {
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+				//the document was processed already
+			}
+		}
 	}
 }
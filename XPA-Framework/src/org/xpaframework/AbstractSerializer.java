@@ -4,6 +4,7 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -28,6 +29,7 @@ public abstract class AbstractSerializer implements Serializer {
 	protected static final String PROPERTY_CONTENT_TYPE = "Content-Type";
 
 	private ValueAdapterRegistry adapterRegistry;
+	private ContentEncoding contentEncoding = ContentEncoding.IDENTITY;
 
 	protected ValueAdapterRegistry getAdapterRegistry() {
 		return adapterRegistry;
@@ -37,6 +39,28 @@ public abstract class AbstractSerializer implements Serializer {
 	public void setValueAdapterRegistry(ValueAdapterRegistry adapterRegistry) {
 		this.adapterRegistry = adapterRegistry;
 	}
+
+	protected ContentEncoding getContentEncoding() {
+		return contentEncoding;
+	}
+
+	/**
+	 * <p>Sets the compression of the documents serialized into the
+	 * {@link URL}.</p>
+	 * 
+	 * @param contentEncoding - the content encoding. By default
+	 * {@link ContentEncoding#IDENTITY} is set.
+	 * 
+	 * @throws NullPointerException if <code>contentEncoding</code> is
+	 * <code>null</code>.
+	 */
+	public void setContentEncoding(ContentEncoding contentEncoding) throws NullPointerException {
+		if(contentEncoding == null) {
+			throw new NullPointerException("Content encoding: null");
+		}
+		
+		this.contentEncoding = contentEncoding;
+	}
 	
 	@Override
 	public void serialize(Object obj, File file) throws SerializationException, IOException {
@@ -52,7 +76,11 @@ public abstract class AbstractSerializer implements Serializer {
 	/**
 	 * Serializes this <code>obj</code> into the <code>url</code>.
 	 * This serialized request is specifying also content-type
-	 * request header to specify the serialized format.
+	 * request header to specify the serialized format. The document is
+	 * compressed by the set {@link ContentEncoding}, the encoding is
+	 * specified by the content-encoding request header. The connection is
+	 * kept alive for the next request, it is disconnected only if the request
+	 * fails before its response is read.
 	 * 
 	 * @param obj - object to serialize.
 	 * @param url - the request url.
@@ -69,15 +97,61 @@ public abstract class AbstractSerializer implements Serializer {
 		connection.setRequestMethod("POST");
 		connection.setChunkedStreamingMode(0);
 		connection.setRequestProperty(PROPERTY_CONTENT_TYPE, contentType);
-		connection.connect();
 		
-		BufferedOutputStream bos = new BufferedOutputStream(connection.getOutputStream());
-		serialize(obj, bos);
+		if(this.contentEncoding != ContentEncoding.IDENTITY) {
+			connection.setRequestProperty(ContentEncoding.PROPERTY_CONTENT_ENCODING,
+					this.contentEncoding.getToken());
+		}
 		
-		this.logger.v("response code: " + connection.getResponseCode() +
-				", response message: " + connection.getResponseMessage());
+		boolean responded = false;
+		
+		try {
+			connection.connect();
+			
+			BufferedOutputStream bos = new BufferedOutputStream(
+					this.contentEncoding.encode(connection.getOutputStream()));
+			serialize(obj, bos);
+			//finishes the compressed stream and the chunked request body
+			bos.close();
+			
+			int responseCode = readResponse(connection);
+			responded = true;
+			this.logger.v("response code: " + responseCode +
+					", response message: " + connection.getResponseMessage());
+		} finally {
+			if(!responded) {
+				connection.disconnect();
+			}
+		}
+	}
+
+	/**
+	 * <p>Reads the response of the <code>connection</code> to its end and
+	 * closes it. The connection is not disconnected, so it is kept alive and
+	 * reused by the next request to the same host.</p>
+	 * 
+	 * @return the response code.
+	 * 
+	 * @see HttpSerializationClient
+	 */
+	static int readResponse(HttpURLConnection connection) throws IOException {
+		int responseCode = connection.getResponseCode();
+		InputStream is = responseCode >= HttpURLConnection.HTTP_BAD_REQUEST ?
+				connection.getErrorStream() : connection.getInputStream();
+		
+		if(is != null) {
+			byte[] buffer = new byte[512];
+			
+			try {
+				while(is.read(buffer) >= 0) {
+					//skips the response body
+				}
+			} finally {
+				is.close();
+			}
+		}
 		
-		connection.disconnect();
+		return responseCode;
 	}
 
 }
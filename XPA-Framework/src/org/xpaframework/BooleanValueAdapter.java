@@ -0,0 +1,47 @@
+package org.xpaframework;
+
+
+/**
+ * <p>Extension of the {@link ValueAdapter} converting the values of the
+ * <code>boolean</code> fields without boxing. The deserialization parses the
+ * value directly from the character buffer of the parser and sets the
+ * primitive field, the serialization reads the primitive field and prints
+ * its value, so no {@link Boolean} object is created for the fields accessed
+ * directly: the fields without the getter and setter methods or all
+ * fields for {@link org.xpaframework.xml.AccessType#FIELD}.</p>
+ * <p>The content of the <code>buffer</code> is valid only during the method
+ * call, the implementation must not hold any reference to it.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <T> type of the object that represents target data type.
+ * 
+ * @see ValueAdapter
+ * @see CharArrayValueAdapter
+ */
+public interface BooleanValueAdapter<T> extends ValueAdapter<T> {
+	
+	/**
+	 * Converts the characters of the element/attribute value to a
+	 * <code>boolean</code> value.
+	 * 
+	 * @param buffer - the buffer containing the value.
+	 * @param start - index of the first character of the value.
+	 * @param length - count of the value characters.
+	 * 
+	 * @return converted value.
+	 * 
+	 * @throws ValueConversionException if the value can not be converted.
+	 */
+	public boolean parseBoolean(char[] buffer, int start, int length) throws ValueConversionException;
+	
+	/**
+	 * Converts the <code>boolean</code> value to its string representation.
+	 * 
+	 * @param value - the value of the element or attribute.
+	 * 
+	 * @return string representation of the <code>value</code>.
+	 */
+	public String printBoolean(boolean value);
+
+}
@@ -0,0 +1,36 @@
+package org.xpaframework;
+
+
+/**
+ * <p>Extension of the {@link ValueAdapter} converting the value directly from
+ * the character buffer of the parser. The deserialization uses this method
+ * instead of {@link ValueAdapter#convertValue(String)} if the registered
+ * adapter implements this interface, so no {@link String} object is created
+ * for the converted value.</p>
+ * <p>The content of the <code>buffer</code> is valid only during the method
+ * call, the implementation must not hold any reference to it.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <T> type of the object that represents target data type.
+ * 
+ * @see ValueAdapter
+ * @see ValueAdapterRegistry
+ */
+public interface CharArrayValueAdapter<T> extends ValueAdapter<T> {
+	
+	/**
+	 * Converts the characters of the element/attribute value to the specified
+	 * object.
+	 * 
+	 * @param buffer - the buffer containing the value.
+	 * @param start - index of the first character of the value.
+	 * @param length - count of the value characters.
+	 * 
+	 * @return converted object.
+	 * 
+	 * @throws ValueConversionException if the value can not be converted.
+	 */
+	public T convertValue(char[] buffer, int start, int length) throws ValueConversionException;
+
+}
@@ -0,0 +1,141 @@
+package org.xpaframework;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <p>Enumeration of the HTTP content encodings used for the documents
+ * transferred by the {@link AbstractSerializer#serialize(Object, java.net.URL)}
+ * and {@link AbstractDeserializer#deserialize(java.net.URL)} methods.</p>
+ * <p>The serialized document is compressed by the set encoding and sent
+ * with the <code>Content-Encoding</code> header. The deserialization with
+ * other encoding than {@link #IDENTITY} requests the compressed response by
+ * the <code>Accept-Encoding</code> header, the compressed response is
+ * decompressed while it is parsed.</p>
+ * 
+ * @author Jan Janickovic
+ */
+public enum ContentEncoding {
+	
+	/**
+	 * <p>No compression.</p>
+	 */
+	IDENTITY("identity"),
+	
+	/**
+	 * <p>The gzip format.</p>
+	 */
+	GZIP("gzip"),
+	
+	/**
+	 * <p>The zlib format.</p>
+	 */
+	DEFLATE("deflate");
+	
+	/**
+	 * The name of the Content encoding header.
+	 */
+	public static final String PROPERTY_CONTENT_ENCODING = "Content-Encoding";
+	
+	/**
+	 * The name of the Accept encoding request property.
+	 */
+	public static final String PROPERTY_ACCEPT_ENCODING = "Accept-Encoding";
+	
+	/**
+	 * The value of the Accept encoding request property listing all
+	 * decompressed encodings.
+	 */
+	public static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+	
+	private static final int BUFFER_SIZE = 8192;
+	
+	private String token;
+	
+	private ContentEncoding(String token) {
+		this.token = token;
+	}
+
+	/**
+	 * @return the value of the <code>Content-Encoding</code> header.
+	 */
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * <p>Wraps the <code>os</code> by the compressing stream. The compressed
+	 * document is finished by closing the returned stream.</p>
+	 * 
+	 * @param os - the target stream.
+	 * 
+	 * @return the compressing stream or the <code>os</code> for
+	 * {@link #IDENTITY}.
+	 */
+	public OutputStream encode(OutputStream os) throws IOException {
+		switch(this) {
+		case GZIP:
+			return new GZIPOutputStream(os, BUFFER_SIZE);
+		case DEFLATE:
+			return new DeflaterOutputStream(os);
+		default:
+			return os;
+		}
+	}
+
+	/**
+	 * <p>Wraps the <code>is</code> by the stream decompressing the content
+	 * encoded by the <code>contentEncoding</code>. The deflate content is
+	 * accepted in the zlib format and in the raw format sent by some
+	 * servers.</p>
+	 * 
+	 * @param is - the received stream.
+	 * @param contentEncoding - the value of the <code>Content-Encoding</code>
+	 * header or <code>null</code>.
+	 * 
+	 * @return the decompressing stream or the <code>is</code> if the content
+	 * is not encoded.
+	 * 
+	 * @throws IOException if the encoding is not supported or the header of
+	 * the compressed stream is not valid.
+	 */
+	public static InputStream decode(InputStream is, String contentEncoding) throws IOException {
+		if(contentEncoding == null || contentEncoding.trim().isEmpty()
+				|| IDENTITY.token.equalsIgnoreCase(contentEncoding.trim())) {
+			
+			return is;
+		}
+		
+		String token = contentEncoding.trim();
+		
+		if(GZIP.token.equalsIgnoreCase(token) || "x-gzip".equalsIgnoreCase(token)) {
+			return new GZIPInputStream(is, BUFFER_SIZE);
+		} else if(DEFLATE.token.equalsIgnoreCase(token)) {
+			PushbackInputStream pushbackStream = new PushbackInputStream(is, 2);
+			int cmf = pushbackStream.read();
+			int flg = pushbackStream.read();
+			
+			if(flg >= 0) {
+				pushbackStream.unread(flg);
+			}
+			
+			if(cmf >= 0) {
+				pushbackStream.unread(cmf);
+			}
+			
+			//the zlib header: deflate method and the check bits
+			boolean zlib = (cmf & 0x0F) == 8 && flg >= 0 && ((cmf << 8) | flg) % 31 == 0;
+			return new InflaterInputStream(pushbackStream, new Inflater(!zlib), BUFFER_SIZE);
+		}
+		
+		throw new IOException("Unsupported content encoding: " + contentEncoding);
+	}
+
+}
@@ -0,0 +1,376 @@
+package org.xpaframework;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+
+import org.xpaframework.xml.util.Logger;
+
+
+/**
+ * <p>Client posting the serialized objects to the HTTP endpoints. The
+ * response of each request is read to its end and closed, so the connection
+ * is returned to the keep-alive pool of the platform and reused by the next
+ * request to the same host. The connection is disconnected only if the
+ * request fails before its response is read, it is not reused in that
+ * unknown state.</p>
+ * <p>The count of the concurrent requests to one host is limited by
+ * <code>maxConnectionsPerHost</code>, the requests over the limit wait for
+ * a free connection. The limit should not exceed the
+ * <code>http.maxConnections</code> system property (5 by default), the idle
+ * connections over that property are not kept alive.</p>
+ * <p>Several objects can be posted by one request as the parts of the
+ * <code>multipart/mixed</code> body, see {@link #post(List, URL)}. The
+ * client is thread safe and its counters are provided by
+ * {@link #getStatistics()}.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see Statistics
+ */
+public class HttpSerializationClient {
+	
+	public static final int DEFAULT_MAX_CONNECTIONS = 5;
+	
+	/**
+	 * Content type of the batch requests, the parameter is the parts
+	 * boundary.
+	 */
+	public static final String CONTENT_TYPE_MULTIPART = "multipart/mixed; boundary=";
+	
+	private static final String PROPERTY_CONTENT_TYPE = "Content-Type";
+	private static final String CRLF = "\r\n";
+	private static final String CHARSET_ASCII = "US-ASCII";
+	private static final int BUFFER_SIZE = 8192;
+	
+	private Logger logger = Logger.getLogger(HttpSerializationClient.class);
+	
+	private Serializer serializer;
+	private String contentType;
+	private ContentEncoding contentEncoding = ContentEncoding.IDENTITY;
+	private int maxConnectionsPerHost;
+	private String boundary;
+	
+	/**
+	 * The connection permits by the <code>protocol://host:port</code> keys.
+	 */
+	private Map<String, Semaphore> hosts = new HashMap<String, Semaphore>();
+	
+	private Statistics statistics = new Statistics();
+	
+	/**
+	 * @param serializer - serializer of the posted objects.
+	 * @param contentType - the content type of the serialized documents.
+	 * @param maxConnectionsPerHost - the maximal count of the concurrent
+	 * requests to one host.
+	 * 
+	 * @throws NullPointerException if <code>serializer</code> or
+	 * <code>contentType</code> is <code>null</code>.
+	 * @throws IllegalArgumentException if <code>maxConnectionsPerHost</code>
+	 * is not positive.
+	 */
+	public HttpSerializationClient(Serializer serializer, String contentType, int maxConnectionsPerHost)
+			throws NullPointerException, IllegalArgumentException {
+		
+		if(serializer == null) {
+			throw new NullPointerException("Serializer: null");
+		}
+		
+		if(contentType == null) {
+			throw new NullPointerException("Content type: null");
+		}
+		
+		if(maxConnectionsPerHost < 1) {
+			throw new IllegalArgumentException("Max connections per host: " + maxConnectionsPerHost);
+		}
+		
+		this.serializer = serializer;
+		this.contentType = contentType;
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+		this.boundary = "xpa-" + Long.toHexString(new Random().nextLong());
+	}
+
+	protected ContentEncoding getContentEncoding() {
+		return contentEncoding;
+	}
+
+	/**
+	 * <p>Sets the compression of the request bodies.</p>
+	 * 
+	 * @param contentEncoding - the content encoding. By default
+	 * {@link ContentEncoding#IDENTITY} is set.
+	 * 
+	 * @throws NullPointerException if <code>contentEncoding</code> is
+	 * <code>null</code>.
+	 */
+	public void setContentEncoding(ContentEncoding contentEncoding) throws NullPointerException {
+		if(contentEncoding == null) {
+			throw new NullPointerException("Content encoding: null");
+		}
+		
+		this.contentEncoding = contentEncoding;
+	}
+
+	/**
+	 * @return the counters of the requests posted by this client.
+	 */
+	public Statistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * <p>Serializes the <code>obj</code> as the body of the POST request to
+	 * the <code>url</code>.</p>
+	 * 
+	 * @param obj - object to serialize.
+	 * @param url - the request url.
+	 * 
+	 * @return the response code.
+	 * 
+	 * @throws SerializationException if the serialization fails.
+	 * @throws IOException if the request fails.
+	 */
+	public int post(Object obj, URL url) throws SerializationException, IOException {
+		return post(Collections.singletonList(obj), url, false);
+	}
+
+	/**
+	 * <p>Serializes all <code>objects</code> into one POST request to the
+	 * <code>url</code>. Each object is serialized as one part of the
+	 * <code>multipart/mixed</code> body with the content type of the
+	 * client, the parts are in the order of the list.</p>
+	 * 
+	 * @param objects - objects to serialize.
+	 * @param url - the request url.
+	 * 
+	 * @return the response code.
+	 * 
+	 * @throws IllegalArgumentException if <code>objects</code> is empty.
+	 * @throws SerializationException if the serialization fails.
+	 * @throws IOException if the request fails.
+	 */
+	public int post(List<?> objects, URL url)
+			throws IllegalArgumentException, SerializationException, IOException {
+		
+		if(objects.isEmpty()) {
+			throw new IllegalArgumentException("No objects to post!");
+		}
+		
+		return post(objects, url, true);
+	}
+
+	private int post(List<?> objects, URL url, boolean batch) throws SerializationException, IOException {
+		Semaphore permits = getPermits(url);
+		permits.acquireUninterruptibly();
+		
+		long start = System.nanoTime();
+		HttpURLConnection connection = null;
+		CountingOutputStream counter = null;
+		boolean responded = false;
+		boolean failed = true;
+		
+		try {
+			connection = (HttpURLConnection) url.openConnection();
+			connection.setDoOutput(true);
+			connection.setRequestMethod("POST");
+			connection.setChunkedStreamingMode(0);
+			connection.setRequestProperty(PROPERTY_CONTENT_TYPE,
+					batch ? CONTENT_TYPE_MULTIPART + this.boundary : this.contentType);
+			
+			if(this.contentEncoding != ContentEncoding.IDENTITY) {
+				connection.setRequestProperty(ContentEncoding.PROPERTY_CONTENT_ENCODING,
+						this.contentEncoding.getToken());
+			}
+			
+			counter = new CountingOutputStream(connection.getOutputStream());
+			OutputStream os = new BufferedOutputStream(this.contentEncoding.encode(counter), BUFFER_SIZE);
+			
+			if(batch) {
+				writeParts(objects, os);
+			} else {
+				this.serializer.serialize(objects.get(0), os);
+			}
+			
+			//finishes the compressed stream and the chunked request body
+			os.close();
+			
+			int responseCode = AbstractSerializer.readResponse(connection);
+			responded = true;
+			failed = responseCode >= HttpURLConnection.HTTP_BAD_REQUEST;
+			
+			if(failed) {
+				this.logger.w("response code: " + responseCode + ", url: " + url);
+			}
+			
+			return responseCode;
+		} finally {
+			if(!responded && connection != null) {
+				connection.disconnect();
+			}
+			
+			permits.release();
+			this.statistics.add(objects.size(), counter != null ? counter.count : 0,
+					System.nanoTime() - start, failed);
+		}
+	}
+
+	private void writeParts(List<?> objects, OutputStream os) throws SerializationException, IOException {
+		byte[] partHeader = ("--" + this.boundary + CRLF + PROPERTY_CONTENT_TYPE + ": " +
+				this.contentType + CRLF + CRLF).getBytes(CHARSET_ASCII);
+		byte[] partEnd = CRLF.getBytes(CHARSET_ASCII);
+		
+		for(Object obj : objects) {
+			os.write(partHeader);
+			this.serializer.serialize(obj, os);
+			os.write(partEnd);
+		}
+		
+		os.write(("--" + this.boundary + "--" + CRLF).getBytes(CHARSET_ASCII));
+	}
+
+	private Semaphore getPermits(URL url) {
+		int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+		String host = url.getProtocol() + "://" + url.getHost() + ":" + port;
+		
+		synchronized(this.hosts) {
+			Semaphore permits = this.hosts.get(host);
+			
+			if(permits == null) {
+				permits = new Semaphore(this.maxConnectionsPerHost, true);
+				this.hosts.put(host, permits);
+			}
+			
+			return permits;
+		}
+	}
+
+	/**
+	 * <p>Counters of the requests posted by the
+	 * {@link HttpSerializationClient}. The failed requests are the requests
+	 * answered by the error response code or failed by an exception.</p>
+	 * 
+	 * @author Jan Janickovic
+	 */
+	public static final class Statistics {
+		
+		private long requestCount;
+		private long documentCount;
+		private long failureCount;
+		private long bytesSent;
+		private long latency;
+		private long maxLatency;
+		private long startTime = System.nanoTime();
+		
+		private Statistics() {
+		}
+		
+		private synchronized void add(int documents, long bytes, long requestLatency, boolean failed) {
+			this.requestCount++;
+			this.documentCount += documents;
+			this.bytesSent += bytes;
+			this.latency += requestLatency;
+			this.maxLatency = Math.max(this.maxLatency, requestLatency);
+			
+			if(failed) {
+				this.failureCount++;
+			}
+		}
+		
+		public synchronized long getRequestCount() {
+			return requestCount;
+		}
+		
+		public synchronized long getDocumentCount() {
+			return documentCount;
+		}
+		
+		public synchronized long getFailureCount() {
+			return failureCount;
+		}
+		
+		/**
+		 * @return the count of the sent bytes of the request bodies after
+		 * their compression.
+		 */
+		public synchronized long getBytesSent() {
+			return bytesSent;
+		}
+		
+		/**
+		 * @return the average time of the request from the connection
+		 * opening to the end of the response in milliseconds.
+		 */
+		public synchronized double getAverageLatency() {
+			return this.requestCount == 0 ? 0 : this.latency / 1000000.0 / this.requestCount;
+		}
+		
+		/**
+		 * @return the longest time of the request in milliseconds.
+		 */
+		public synchronized double getMaxLatency() {
+			return this.maxLatency / 1000000.0;
+		}
+		
+		/**
+		 * @return the count of the posted documents per second since the
+		 * creation of the client or the last {@link #reset()}.
+		 */
+		public synchronized double getThroughput() {
+			long elapsed = System.nanoTime() - this.startTime;
+			return elapsed <= 0 ? 0 : this.documentCount * 1000000000.0 / elapsed;
+		}
+		
+		public synchronized void reset() {
+			this.requestCount = 0;
+			this.documentCount = 0;
+			this.failureCount = 0;
+			this.bytesSent = 0;
+			this.latency = 0;
+			this.maxLatency = 0;
+			this.startTime = System.nanoTime();
+		}
+		
+		@Override
+		public synchronized String toString() {
+			return "Statistics[requests: " + this.requestCount + ", documents: " + this.documentCount +
+					", failures: " + this.failureCount + ", bytes: " + this.bytesSent +
+					", average latency: " + getAverageLatency() + " ms]";
+		}
+	
+	}
+
+	/**
+	 * <p>Stream counting the bytes written to the connection.</p>
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		
+		private long count;
+		
+		private CountingOutputStream(OutputStream os) {
+			super(os);
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+			this.count++;
+		}
+		
+		@Override
+		public void write(byte[] buffer, int offset, int length) throws IOException {
+			this.out.write(buffer, offset, length);
+			this.count += length;
+		}
+	
+	}
+
+}
@@ -0,0 +1,61 @@
+package org.xpaframework;
+
+
+/**
+ * <p>Extension of the {@link ValueAdapter} converting the values of the
+ * <code>long</code> fields without boxing. The deserialization parses the
+ * value directly from the character buffer of the parser and sets the
+ * primitive field, the serialization reads the primitive field and prints
+ * its value, so no {@link Long} object is created for the fields accessed
+ * directly: the fields without the getter and setter methods or all
+ * fields for {@link org.xpaframework.xml.AccessType#FIELD}.</p>
+ * <p>The content of the <code>buffer</code> is valid only during the method
+ * call, the implementation must not hold any reference to it.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <T> type of the object that represents target data type.
+ * 
+ * @see ValueAdapter
+ * @see CharArrayValueAdapter
+ */
+public interface LongValueAdapter<T> extends ValueAdapter<T> {
+	
+	/**
+	 * Converts the characters of the element/attribute value to a
+	 * <code>long</code> value.
+	 * 
+	 * @param buffer - the buffer containing the value.
+	 * @param start - index of the first character of the value.
+	 * @param length - count of the value characters.
+	 * 
+	 * @return converted value.
+	 * 
+	 * @throws ValueConversionException if the value can not be converted.
+	 */
+	public long parseLong(char[] buffer, int start, int length) throws ValueConversionException;
+	
+	/**
+	 * Converts the <code>long</code> value to its string representation.
+	 * 
+	 * @param value - the value of the element or attribute.
+	 * 
+	 * @return string representation of the <code>value</code>.
+	 */
+	public String printLong(long value);
+
+	/**
+	 * Prints the <code>long</code> value into the <code>buffer</code>.
+	 * 
+	 * @param value - the value of the element or attribute.
+	 * @param buffer - the buffer of the printed characters.
+	 * @param start - index of the first printed character.
+	 * 
+	 * @return index following the last printed character or <code>-1</code>
+	 * if the value does not fit into the buffer.
+	 * 
+	 * @see PrintingValueAdapter
+	 */
+	public int printLong(long value, char[] buffer, int start);
+
+}
@@ -0,0 +1,39 @@
+package org.xpaframework;
+
+
+/**
+ * <p>Extension of the {@link ValueAdapter} printing the value directly into
+ * the character buffer of the serializer. The serialization uses this method
+ * instead of {@link ValueAdapter#toString(Object)} if the registered adapter
+ * implements this interface, so no {@link String} object is created for the
+ * printed value.</p>
+ * <p>The content of the <code>buffer</code> is valid only during the method
+ * call, the implementation must not hold any reference to it.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <T> type of the object that represents target data type.
+ * 
+ * @see ValueAdapter
+ * @see CharArrayValueAdapter
+ */
+public interface PrintingValueAdapter<T> extends ValueAdapter<T> {
+	
+	/**
+	 * Prints the string representation of the <code>target</code> into the
+	 * <code>buffer</code>. The printed characters must be equal to the result
+	 * of {@link ValueAdapter#toString(Object)}.
+	 * 
+	 * @param target - the target object representing simple element or
+	 * attribute.
+	 * @param buffer - the buffer of the printed characters.
+	 * @param start - index of the first printed character.
+	 * 
+	 * @return index following the last printed character or <code>-1</code>
+	 * if the value is not printed, e.g. because it does not fit into the
+	 * buffer. The value is then converted by
+	 * {@link ValueAdapter#toString(Object)}.
+	 */
+	public int print(T target, char[] buffer, int start);
+
+}
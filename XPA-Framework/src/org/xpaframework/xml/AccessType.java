@@ -0,0 +1,28 @@
+package org.xpaframework.xml;
+
+/**
+ * <p>Enumeration of the ways the values of the mapped fields are read and
+ * written. The access type is set by
+ * {@link ContextConfiguration#setAccessType(AccessType)} method.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see PropertyAccessor
+ */
+public enum AccessType {
+	
+	/**
+	 * <p>The getter and setter methods are invoked if the field's declaring
+	 * class defines them, the field is accessed directly otherwise.</p>
+	 */
+	PROPERTY,
+	
+	/**
+	 * <p>The fields are always accessed directly, the getter and setter
+	 * methods are never invoked. No method is invoked reflectively and the
+	 * primitive fields are read and written without boxing. The side effects
+	 * of the accessor methods (e.g. validation) are skipped.</p>
+	 */
+	FIELD;
+
+}
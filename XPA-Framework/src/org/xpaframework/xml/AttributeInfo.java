@@ -3,6 +3,8 @@ package org.xpaframework.xml;
 import java.lang.reflect.Field;
 import java.util.Locale;
 
+import org.xpaframework.ValueAdapter;
+
 /**
  * <p>Class containing metadata information of specified XML attribute.</p>
  * 
@@ -78,6 +80,73 @@ public class AttributeInfo {
 		return field;
 	}
 
+	/**
+	 * Accessor of the {@link #field} resolved by the meta-data creation.
+	 */
+	private PropertyAccessor accessor;
+	
+	/**
+	 * Adapter converting the attribute value, resolved by the meta-data
+	 * creation.
+	 */
+	private ValueAdapter<?> adapter;
+	
+	/**
+	 * Constants of the enumeration attribute with no registered adapter.
+	 */
+	private EnumTable enumTable;
+	
+	/**
+	 * <p>Sets the resolved binding of this attribute.</p>
+	 * 
+	 * @param accessor - accessor of the attribute's field.
+	 * @param adapter - adapter of the field's type or <code>null</code> if no
+	 * adapter is registered for the type yet.
+	 * @param enumTable - constants of the field's enumeration type if no
+	 * adapter is registered for the type, <code>null</code> otherwise.
+	 */
+	protected void setBinding(PropertyAccessor accessor, ValueAdapter<?> adapter, EnumTable enumTable) {
+		this.accessor = accessor;
+		this.adapter = adapter;
+		this.enumTable = enumTable;
+	}
+
+	/**
+	 * @return the accessor of the attribute's field.
+	 */
+	protected PropertyAccessor getAccessor() {
+		return accessor;
+	}
+
+	/**
+	 * @return the adapter of the attribute's value or <code>null</code> if
+	 * the adapter has not been resolved by the meta-data creation.
+	 */
+	protected ValueAdapter<?> getAdapter() {
+		return adapter;
+	}
+
+	/**
+	 * @return the constants of the attribute's enumeration type or
+	 * <code>null</code> if the attribute is converted by the adapter.
+	 */
+	protected EnumTable getEnumTable() {
+		return enumTable;
+	}
+
+	/**
+	 * <code>true</code> if the value is canonicalized by the string pool.
+	 */
+	private boolean pooled;
+	
+	protected boolean isPooled() {
+		return pooled;
+	}
+
+	protected void setPooled(boolean pooled) {
+		this.pooled = pooled;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if(o == null || !(o instanceof AttributeInfo)) {
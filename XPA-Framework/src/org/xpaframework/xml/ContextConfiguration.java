@@ -2,9 +2,12 @@ package org.xpaframework.xml;
 
 import java.io.File;
 
+import org.xpaframework.ContentEncoding;
 import org.xpaframework.ValueAdapterRegistry;
+import org.xpaframework.xml.annotation.XmlPooled;
 import org.xpaframework.xml.util.Logger;
 import org.xpaframework.xml.util.Logger.Level;
+import org.xpaframework.xml.util.StringPool;
 
 
 /**
@@ -16,12 +19,21 @@ import org.xpaframework.xml.util.Logger.Level;
 public final class ContextConfiguration {
 
 	public static final String DEFAULT_ENCODING = "UTF-8";
+	public static final int DEFAULT_STRING_POOL_SIZE = 1024;
+	public static final long DEFAULT_MAX_MAPPED_SIZE = 64 * 1024 * 1024;
 	
 	private boolean cachingEnabled = false;
 	private File cacheDirectory = null;
 	private ValueAdapterRegistry adapterRegistry;
 	private String encoding = DEFAULT_ENCODING;
 	private boolean standalone = true;
+	private ParserType parserType = ParserType.SAX;
+	private OutputType outputType = OutputType.PULL;
+	private boolean stringPooling = false;
+	private int stringPoolSize = DEFAULT_STRING_POOL_SIZE;
+	private ContentEncoding contentEncoding = ContentEncoding.IDENTITY;
+	private AccessType accessType = AccessType.PROPERTY;
+	private long maxMappedSize = DEFAULT_MAX_MAPPED_SIZE;
 	
 	//not configurable options
 	
@@ -101,6 +113,174 @@ public final class ContextConfiguration {
 		this.standalone = standalone;
 	}
 	
+	protected ParserType getParserType() {
+		return parserType;
+	}
+
+	/**
+	 * <p>Sets the parsing engine used for the deserialization.</p>
+	 * 
+	 * @param parserType - the parsing engine. By default {@link ParserType#SAX}
+	 * is set.
+	 * 
+	 * @throws NullPointerException if <code>parserType</code> is <code>null</code>.
+	 * 
+	 * @see ParserType
+	 */
+	public void setParserType(ParserType parserType) throws NullPointerException {
+		if(parserType == null) {
+			throw new NullPointerException("Parser type: null");
+		}
+		
+		this.parserType = parserType;
+	}
+
+	protected OutputType getOutputType() {
+		return outputType;
+	}
+
+	/**
+	 * <p>Sets the output backend used for the serialization.</p>
+	 * 
+	 * @param outputType - the output backend. By default {@link OutputType#PULL}
+	 * is set.
+	 * 
+	 * @throws NullPointerException if <code>outputType</code> is <code>null</code>.
+	 * 
+	 * @see OutputType
+	 */
+	public void setOutputType(OutputType outputType) throws NullPointerException {
+		if(outputType == null) {
+			throw new NullPointerException("Output type: null");
+		}
+		
+		this.outputType = outputType;
+	}
+
+	protected boolean isStringPooling() {
+		return stringPooling;
+	}
+
+	/**
+	 * <p>Sets if the values of all {@link String} elements and attributes are
+	 * canonicalized by the string pool of the context. The pooling of the
+	 * field can be overridden by the {@link XmlPooled} annotation.</p>
+	 * 
+	 * @param stringPooling - <code>true</code> to pool all values,
+	 * <code>false</code> (default) to pool the values of the annotated fields
+	 * only.
+	 * 
+	 * @see StringPool
+	 */
+	public void setStringPooling(boolean stringPooling) {
+		this.stringPooling = stringPooling;
+	}
+
+	protected int getStringPoolSize() {
+		return stringPoolSize;
+	}
+
+	/**
+	 * <p>Sets the maximal count of the values held by the string pool of the
+	 * context.</p>
+	 * 
+	 * @param stringPoolSize - the pool size, <code>0</code> disables the
+	 * pooling. By default {@link #DEFAULT_STRING_POOL_SIZE} is set.
+	 * 
+	 * @throws IllegalArgumentException if <code>stringPoolSize</code> is
+	 * negative.
+	 */
+	public void setStringPoolSize(int stringPoolSize) throws IllegalArgumentException {
+		if(stringPoolSize < 0) {
+			throw new IllegalArgumentException("String pool size: " + stringPoolSize);
+		}
+		
+		this.stringPoolSize = stringPoolSize;
+	}
+
+	protected ContentEncoding getContentEncoding() {
+		return contentEncoding;
+	}
+
+	/**
+	 * <p>Sets the compression of the documents transferred by the URL
+	 * serialization and deserialization. The serialized documents are
+	 * compressed by the <code>contentEncoding</code>, the deserialization
+	 * requests the compressed documents and decompresses them while they are
+	 * parsed.</p>
+	 * 
+	 * @param contentEncoding - the content encoding. By default
+	 * {@link ContentEncoding#IDENTITY} is set.
+	 * 
+	 * @throws NullPointerException if <code>contentEncoding</code> is
+	 * <code>null</code>.
+	 * 
+	 * @see ContentEncoding
+	 */
+	public void setContentEncoding(ContentEncoding contentEncoding) throws NullPointerException {
+		if(contentEncoding == null) {
+			throw new NullPointerException("Content encoding: null");
+		}
+		
+		this.contentEncoding = contentEncoding;
+	}
+
+	protected AccessType getAccessType() {
+		return accessType;
+	}
+
+	/**
+	 * <p>Sets how the values of the mapped fields are accessed.
+	 * {@link AccessType#FIELD} is the fastest access, the fields are read
+	 * and written without any method invocation and the primitive fields
+	 * without boxing, but the accessor methods of the mapped classes are
+	 * bypassed.</p>
+	 * 
+	 * @param accessType - the access type. By default
+	 * {@link AccessType#PROPERTY} is set.
+	 * 
+	 * @throws NullPointerException if <code>accessType</code> is
+	 * <code>null</code>.
+	 * 
+	 * @see AccessType
+	 */
+	public void setAccessType(AccessType accessType) throws NullPointerException {
+		if(accessType == null) {
+			throw new NullPointerException("Access type: null");
+		}
+		
+		this.accessType = accessType;
+	}
+
+	protected long getMaxMappedSize() {
+		return maxMappedSize;
+	}
+
+	/**
+	 * <p>Sets the maximal size of the file deserialized from the memory
+	 * mapped windows. The files are mapped by the windows of 16 MB, so no
+	 * single mapping is larger than the window, but the mapped windows are
+	 * released by the garbage collector only. The larger files are read by
+	 * the reused buffer of 256 KB, what bounds the address space used by the
+	 * deserialization on the devices with the small address space.</p>
+	 * 
+	 * @param maxMappedSize - the maximal size of the mapped file in bytes,
+	 * {@link Long#MAX_VALUE} maps all files and <code>0</code> maps none. By
+	 * default {@link #DEFAULT_MAX_MAPPED_SIZE} is set.
+	 * 
+	 * @throws IllegalArgumentException if <code>maxMappedSize</code> is
+	 * negative.
+	 * 
+	 * @see org.xpaframework.Deserializer#deserialize(File)
+	 */
+	public void setMaxMappedSize(long maxMappedSize) throws IllegalArgumentException {
+		if(maxMappedSize < 0) {
+			throw new IllegalArgumentException("Max mapped size: " + maxMappedSize);
+		}
+		
+		this.maxMappedSize = maxMappedSize;
+	}
+
 	protected PrimitiveTypeInitializer getPrimitiveTypeInitializer() {
 		return primitiveTypeInitializer;
 	}
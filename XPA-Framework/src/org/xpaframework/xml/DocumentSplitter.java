@@ -0,0 +1,364 @@
+package org.xpaframework.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>Splitter of the XML document into the smaller documents that can be
+ * parsed independently. The document is scanned on the byte level for the
+ * child elements of the root element, the most frequent child element is
+ * the repeated element whose occurrences are split into the item chunks.
+ * All other child elements are placed into the base chunk.</p>
+ * <p>Each chunk is the well-formed document containing the original prolog,
+ * the original root start tag (so all namespace declarations are kept), its
+ * child elements and the root end tag. No byte of the document is copied,
+ * the chunks are streamed from the original array.</p>
+ * <p>Only the documents in the ASCII compatible encodings (e.g. UTF-8 or
+ * ISO-8859-1) without the internal DTD subset can be split.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see ParallelDeserializer
+ */
+public class DocumentSplitter {
+	
+	private byte[] data;
+	
+	private int rootStartEnd;
+	private int rootEndStart;
+	
+	private List<int[]> children = new ArrayList<int[]>();
+	private List<String> childNames = new ArrayList<String>();
+	private String itemName;
+	
+	private List<int[]> baseSegments = new ArrayList<int[]>();
+	private List<List<int[]>> itemChunks = new ArrayList<List<int[]>>();
+	
+	/**
+	 * @param data - the XML document.
+	 */
+	protected DocumentSplitter(byte[] data) {
+		this.data = data;
+	}
+
+	/**
+	 * <p>Splits the document into the base chunk and at most
+	 * <code>chunkCount</code> item chunks of the similar size.</p>
+	 * 
+	 * @param chunkCount - the maximal count of the item chunks.
+	 * 
+	 * @return <code>true</code> if the document was split, <code>false</code>
+	 * if the document can not be split or contains no repeated element.
+	 */
+	protected boolean split(int chunkCount) {
+		if(!scan() || this.children.isEmpty()) {
+			return false;
+		}
+		
+		String itemName = getRepeatedName();
+		
+		if(itemName == null) {
+			return false;
+		}
+		
+		this.itemName = itemName;
+		
+		long itemBytes = 0;
+		
+		for(int i = 0; i < this.children.size(); i++) {
+			if(itemName.equals(this.childNames.get(i))) {
+				int[] child = this.children.get(i);
+				itemBytes += child[1] - child[0];
+			}
+		}
+		
+		long chunkBytes = Math.max(1, itemBytes / Math.max(1, chunkCount));
+		List<int[]> chunk = new ArrayList<int[]>();
+		long currentBytes = 0;
+		
+		for(int i = 0; i < this.children.size(); i++) {
+			int[] child = this.children.get(i);
+			
+			if(!itemName.equals(this.childNames.get(i))) {
+				this.baseSegments.add(child);
+				continue;
+			}
+			
+			chunk.add(child);
+			currentBytes += child[1] - child[0];
+			
+			if(currentBytes >= chunkBytes) {
+				this.itemChunks.add(chunk);
+				chunk = new ArrayList<int[]>();
+				currentBytes = 0;
+			}
+		}
+		
+		if(!chunk.isEmpty()) {
+			this.itemChunks.add(chunk);
+		}
+		
+		return true;
+	}
+
+	/**
+	 * @return the qualified name of the repeated element as written in the
+	 * document or <code>null</code> if the document was not split.
+	 */
+	protected String getItemName() {
+		return itemName;
+	}
+
+	/**
+	 * @return the document containing all child elements of the root element
+	 * except the repeated element.
+	 */
+	protected InputStream getBaseChunk() {
+		return createStream(this.baseSegments);
+	}
+
+	/**
+	 * @return the documents containing the occurrences of the repeated
+	 * element in the document order.
+	 */
+	protected List<InputStream> getItemChunks() {
+		List<InputStream> streams = new ArrayList<InputStream>(this.itemChunks.size());
+		
+		for(List<int[]> chunk : this.itemChunks) {
+			streams.add(createStream(chunk));
+		}
+		
+		return streams;
+	}
+
+	private InputStream createStream(List<int[]> segments) {
+		List<InputStream> streams = new ArrayList<InputStream>(segments.size() + 2);
+		streams.add(new ByteArrayInputStream(this.data, 0, this.rootStartEnd));
+		
+		for(int[] segment : segments) {
+			streams.add(new ByteArrayInputStream(this.data, segment[0], segment[1] - segment[0]));
+		}
+		
+		streams.add(new ByteArrayInputStream(this.data, this.rootEndStart,
+				this.data.length - this.rootEndStart));
+		
+		return new SequenceInputStream(Collections.enumeration(streams));
+	}
+
+	/**
+	 * @return the most frequent child element name or <code>null</code> if no
+	 * child element is repeated.
+	 */
+	private String getRepeatedName() {
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		String repeatedName = null;
+		int maxCount = 1;
+		
+		for(String name : this.childNames) {
+			Integer count = counts.get(name);
+			count = count == null ? 1 : count + 1;
+			counts.put(name, count);
+			
+			if(count > maxCount) {
+				maxCount = count;
+				repeatedName = name;
+			}
+		}
+		
+		return repeatedName;
+	}
+
+	/**
+	 * Scans the document and finds the boundaries of the root tags and of its
+	 * child elements.
+	 * 
+	 * @return <code>false</code> if the document structure is not supported.
+	 */
+	private boolean scan() {
+		byte[] data = this.data;
+		int length = data.length;
+		
+		//UTF-16 and UTF-32 documents are not supported
+		if(length < 2 || data[0] == (byte) 0xFE || data[0] == (byte) 0xFF || data[0] == 0 || data[1] == 0) {
+			return false;
+		}
+		
+		int depth = 0;
+		int childStart = -1;
+		int i = 0;
+		
+		while(true) {
+			i = indexOf(data, '<', i);
+			
+			if(i < 0 || i + 1 >= length) {
+				return false;
+			}
+			
+			int tagStart = i;
+			byte next = data[i + 1];
+			
+			if(next == '?') {
+				i = indexOf(data, "?>", i + 2);
+			} else if(startsWith(data, i, "<!--")) {
+				i = indexOf(data, "-->", i + 4);
+			} else if(startsWith(data, i, "<![CDATA[")) {
+				i = indexOf(data, "]]>", i + 9);
+			} else if(next == '!') {
+				//the internal DTD subset may define entities or default attributes
+				int end = indexOf(data, '>', i);
+				int subset = indexOf(data, '[', i);
+				
+				if(end < 0 || (subset >= 0 && subset < end)) {
+					return false;
+				}
+				
+				i = end + 1;
+			} else if(next == '/') {
+				i = indexOf(data, '>', i);
+				
+				if(i < 0) {
+					return false;
+				}
+				
+				i++;
+				depth--;
+				
+				if(depth == 0) {
+					this.rootEndStart = tagStart;
+					return true;
+				} else if(depth == 1) {
+					addChild(childStart, i);
+				}
+			} else {
+				int nameEnd = i + 1;
+				
+				while(nameEnd < length && !isNameEnd(data[nameEnd])) {
+					nameEnd++;
+				}
+				
+				i = indexOfTagEnd(data, nameEnd);
+				
+				if(i < 0) {
+					return false;
+				}
+				
+				boolean empty = data[i - 1] == '/';
+				i++;
+				
+				if(depth == 0) {
+					if(empty) {
+						return false;
+					}
+					
+					this.rootStartEnd = i;
+					depth = 1;
+				} else if(depth == 1) {
+					childStart = tagStart;
+					this.childNames.add(createName(data, tagStart + 1, nameEnd));
+					
+					if(empty) {
+						addChild(childStart, i);
+					} else {
+						depth++;
+					}
+				} else if(!empty) {
+					depth++;
+				}
+			}
+			
+			if(i < 0) {
+				return false;
+			}
+		}
+	}
+
+	private void addChild(int start, int end) {
+		this.children.add(new int[]{start, end});
+	}
+
+	/**
+	 * @return the qualified name of the element. Only the names of the same
+	 * element are compared, so the bytes are not decoded.
+	 */
+	private static String createName(byte[] data, int start, int end) {
+		char[] name = new char[end - start];
+		
+		for(int i = start; i < end; i++) {
+			name[i - start] = (char) (data[i] & 0xFF);
+		}
+		
+		return new String(name);
+	}
+
+	private static boolean isNameEnd(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '/' || b == '>';
+	}
+
+	/**
+	 * @return the index of the <code>&gt;</code> character closing the tag.
+	 * The attribute values are skipped, so they can contain this character.
+	 */
+	private static int indexOfTagEnd(byte[] data, int from) {
+		for(int i = from; i < data.length; i++) {
+			byte b = data[i];
+			
+			if(b == '"' || b == '\'') {
+				i = indexOf(data, b, i + 1);
+				
+				if(i < 0) {
+					return -1;
+				}
+			} else if(b == '>') {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+
+	private static int indexOf(byte[] data, int b, int from) {
+		for(int i = from; i < data.length; i++) {
+			if(data[i] == b) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+
+	/**
+	 * @return the index following the <code>pattern</code> or
+	 * <code>-1</code> if not found.
+	 */
+	private static int indexOf(byte[] data, String pattern, int from) {
+		for(int i = from; i <= data.length - pattern.length(); i++) {
+			if(startsWith(data, i, pattern)) {
+				return i + pattern.length();
+			}
+		}
+		
+		return -1;
+	}
+
+	private static boolean startsWith(byte[] data, int offset, String pattern) {
+		if(offset + pattern.length() > data.length) {
+			return false;
+		}
+		
+		for(int i = 0; i < pattern.length(); i++) {
+			if(data[offset + i] != pattern.charAt(i)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+}
@@ -1,6 +1,8 @@
 package org.xpaframework.xml;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -96,6 +98,45 @@ public class ElementInfo {
 		return this.injectionMap.get(clazz);
 	}
 	
+	/**
+	 * Index of this element in the {@link #injectionSlots} of the parent
+	 * elements.
+	 */
+	private int index;
+	
+	protected int getIndex() {
+		return index;
+	}
+
+	protected void setIndex(int index) {
+		this.index = index;
+	}
+
+	/**
+	 * Bindings of the child elements into the instance of the
+	 * {@link #mappingClass} indexed by {@link #getIndex()} of the child
+	 * element.
+	 */
+	private InjectionSlot[] injectionSlots = new InjectionSlot[0];
+	
+	/**
+	 * @param child - the meta-data of the child element.
+	 * 
+	 * @return the binding of the <code>child</code> element into the instance
+	 * of the {@link #mappingClass} or <code>null</code> if the element can
+	 * not be the child of this element.
+	 * 
+	 * @see MetaDataInitializer
+	 */
+	protected InjectionSlot getInjectionSlot(ElementInfo child) {
+		int index = child.index;
+		return index < this.injectionSlots.length ? this.injectionSlots[index] : null;
+	}
+
+	protected void setInjectionSlots(InjectionSlot[] injectionSlots) {
+		this.injectionSlots = injectionSlots;
+	}
+
 	private Collection<Field> children = new HashSet<Field>();
 	
 	/**
@@ -178,6 +219,59 @@ public class ElementInfo {
 		return order;
 	}
 	
+	/**
+	 * The accessible no-argument constructor of the {@link #mappingClass} or
+	 * <code>null</code> if the class is simple type or has no such constructor.
+	 */
+	private Constructor<?> constructor;
+	
+	/**
+	 * <p>Creates new instance of the {@link #mappingClass} by its no-argument
+	 * constructor. The constructor is resolved once by the creation of this
+	 * meta data.</p>
+	 * 
+	 * @return new instance of the mapping class.
+	 * 
+	 * @throws RuntimeException if the mapping class has no accessible
+	 * no-argument constructor or the constructor fails. The cause is the
+	 * original exception.
+	 */
+	protected Object newInstance() throws RuntimeException {
+		if(this.constructor == null) {
+			throw new RuntimeException("Instantiation failed! No constructor for: " +
+					this.mappingClass.getName());
+		}
+		
+		try {
+			return this.constructor.newInstance();
+		} catch (InstantiationException e) {
+			throw new RuntimeException("Instantiation failed!", e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Instantiation failed!", e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Instantiation failed!", e);
+		}
+	}
+
+	/**
+	 * The constants of the {@link #mappingClass} if the class is an enumeration
+	 * mapped without its own value adapter.
+	 */
+	private EnumTable enumTable;
+	
+	/**
+	 * @return the constants of the enumeration {@link #mappingClass} or
+	 * <code>null</code> if the class is not an enumeration or it is mapped
+	 * by its own value adapter.
+	 */
+	protected EnumTable getEnumTable() {
+		return enumTable;
+	}
+		
+	protected void setEnumTable(EnumTable enumTable) {
+		this.enumTable = enumTable;
+	}
+
 	protected ElementInfo(String name, Class<?> mapping, NamespaceInfo namespace) {
 		this.name = name;
 		this.mappingClass = mapping;
@@ -185,6 +279,17 @@ public class ElementInfo {
 		if(namespace != null) {
 			this.namespace = namespace;
 		}
+		
+		if(!XmlUtils.isSimpleType(mapping, true)) {
+			try {
+				this.constructor = mapping.getDeclaredConstructor();
+				this.constructor.setAccessible(true);
+			} catch (NoSuchMethodException e) {
+				this.constructor = null;
+			} catch (SecurityException e) {
+				this.constructor = null;
+			}
+		}
 	}
 	
 	private Set<AttributeInfo> attributeInfos = new HashSet<AttributeInfo>();
@@ -204,6 +309,69 @@ public class ElementInfo {
 		this.attributeInfos.add(attributeInfo);
 	}
 	
+	/**
+	 * Open addressing table of the {@link #attributeInfos} indexed by the
+	 * attribute name hash.
+	 */
+	private AttributeInfo[] attributeTable;
+	
+	/**
+	 * <p>Creates the lookup table of the attributes. This method must be
+	 * called when all attributes are added.</p>
+	 * 
+	 * @see #getAttribute(String, String)
+	 */
+	protected void createAttributeTable() {
+		int capacity = 2;
+		
+		while(capacity < this.attributeInfos.size() * 2) {
+			capacity <<= 1;
+		}
+		
+		AttributeInfo[] table = new AttributeInfo[capacity];
+		
+		for(AttributeInfo attributeInfo : this.attributeInfos) {
+			int i = attributeInfo.getName().hashCode() & (capacity - 1);
+			
+			while(table[i] != null) {
+				i = (i + 1) & (capacity - 1);
+			}
+			
+			table[i] = attributeInfo;
+		}
+		
+		this.attributeTable = table;
+	}
+
+	/**
+	 * <p>Returns the attribute information of this element's attribute.</p>
+	 * 
+	 * @param namespace - the namespace of the attribute, the empty string
+	 * represents no namespace.
+	 * @param name - the local name of the attribute.
+	 * 
+	 * @return the attribute information or <code>null</code> if the attribute
+	 * is not mapped.
+	 * 
+	 * @see #createAttributeTable()
+	 */
+	protected AttributeInfo getAttribute(String namespace, String name) {
+		AttributeInfo[] table = this.attributeTable;
+		int mask = table.length - 1;
+		
+		for(int i = name.hashCode() & mask; table[i] != null; i = (i + 1) & mask) {
+			AttributeInfo attributeInfo = table[i];
+			
+			if(attributeInfo.getName().equals(name)
+					&& attributeInfo.getNamespace().getNamespace().equals(namespace)) {
+				
+				return attributeInfo;
+			}
+		}
+		
+		return null;
+	}
+
 	private Field valueField;
 	
 	/**
@@ -245,6 +413,20 @@ public class ElementInfo {
 		return this.valueField != null;
 	}
 
+	/**
+	 * <code>true</code> if the text of the {@link #valueField} is
+	 * canonicalized by the string pool.
+	 */
+	private boolean valuePooled;
+	
+	protected boolean isValuePooled() {
+		return valuePooled;
+	}
+
+	protected void setValuePooled(boolean valuePooled) {
+		this.valuePooled = valuePooled;
+	}
+
 	/**
 	 * <p>Overrides {@link #toString()} method by returning result in format:
 	 * <pre>{@link #getIdentifier()} + "/[" + {@link #mappingClass}.getName()</pre>
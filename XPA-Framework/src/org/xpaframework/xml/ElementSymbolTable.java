@@ -0,0 +1,152 @@
+package org.xpaframework.xml;
+
+import java.util.Collection;
+
+
+/**
+ * <p>Read-only symbol table of the element meta-data keyed by the element's
+ * namespace and local name. The table is built once by the
+ * {@link MetaDataInitializer} and is used to resolve the elements during the
+ * deserialization.</p>
+ * <p>The lookup creates no key string and no other object. The hash of the
+ * key is combined from the cached hash codes of the namespace and the name
+ * strings, the entries are stored in the open addressing array with the
+ * precomputed hashes, so the strings are compared only for the matching
+ * hashes.</p>
+ * <p>Once built, the table is never modified and can be shared by any
+ * number of threads.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see ElementInfo
+ * @see MetaDataInitializer#getParsingSymbols()
+ */
+public final class ElementSymbolTable {
+	
+	private final String[] namespaces;
+	private final String[] names;
+	private final int[] hashes;
+	private final ElementInfo[] elements;
+	private final int mask;
+	
+	/**
+	 * <p>Creates the table for these <code>elementInfos</code>. The key of
+	 * each element is its namespace and name.</p>
+	 * 
+	 * @param elementInfos - the element meta-data.
+	 * 
+	 * @see ElementInfo#getIdentifier()
+	 */
+	protected ElementSymbolTable(Collection<ElementInfo> elementInfos) {
+		int capacity = 4;
+		
+		//the load factor is kept below 0.5 to keep the probe sequences short
+		while(capacity < elementInfos.size() * 2) {
+			capacity <<= 1;
+		}
+		
+		this.namespaces = new String[capacity];
+		this.names = new String[capacity];
+		this.hashes = new int[capacity];
+		this.elements = new ElementInfo[capacity];
+		this.mask = capacity - 1;
+		
+		for(ElementInfo elementInfo : elementInfos) {
+			put(elementInfo);
+		}
+	}
+
+	/**
+	 * <p>Returns the meta-data of the element.</p>
+	 * 
+	 * @param namespace - the namespace of the element, the empty string
+	 * represents no namespace.
+	 * @param name - the local name of the element.
+	 * 
+	 * @return the element meta-data or <code>null</code> if the element is not
+	 * mapped.
+	 */
+	protected ElementInfo get(String namespace, String name) {
+		int hash = hash(namespace.hashCode(), name.hashCode());
+		
+		for(int i = hash & this.mask; this.elements[i] != null; i = (i + 1) & this.mask) {
+			if(this.hashes[i] == hash && this.names[i].equals(name)
+					&& this.namespaces[i].equals(namespace)) {
+				
+				return this.elements[i];
+			}
+		}
+		
+		return null;
+	}
+
+	/**
+	 * <p>Returns the meta-data of the element whose local name is the part of
+	 * the <code>text</code> starting at the <code>offset</code>. This is used
+	 * e.g. for the <code>prefix:name</code> values of the <code>xsi:type</code>
+	 * attribute, no substring is created.</p>
+	 * 
+	 * @param namespace - the namespace of the element, the empty string
+	 * represents no namespace.
+	 * @param text - the text containing the local name.
+	 * @param offset - the index of the first character of the name.
+	 * 
+	 * @return the element meta-data or <code>null</code> if the element is not
+	 * mapped.
+	 */
+	protected ElementInfo get(String namespace, String text, int offset) {
+		int length = text.length() - offset;
+		int nameHash = 0;
+		
+		for(int i = offset; i < text.length(); i++) {
+			nameHash = 31 * nameHash + text.charAt(i);
+		}
+		
+		int hash = hash(namespace.hashCode(), nameHash);
+		
+		for(int i = hash & this.mask; this.elements[i] != null; i = (i + 1) & this.mask) {
+			String name = this.names[i];
+			
+			if(this.hashes[i] == hash && name.length() == length
+					&& name.regionMatches(0, text, offset, length)
+					&& this.namespaces[i].equals(namespace)) {
+				
+				return this.elements[i];
+			}
+		}
+		
+		return null;
+	}
+
+	private void put(ElementInfo elementInfo) {
+		String namespace = elementInfo.getNamespace().getNamespace();
+		String name = elementInfo.getName();
+		int hash = hash(namespace.hashCode(), name.hashCode());
+		int i = hash & this.mask;
+		
+		while(this.elements[i] != null) {
+			if(this.hashes[i] == hash && this.names[i].equals(name)
+					&& this.namespaces[i].equals(namespace)) {
+				
+				break;
+			}
+			
+			i = (i + 1) & this.mask;
+		}
+		
+		this.namespaces[i] = namespace;
+		this.names[i] = name;
+		this.hashes[i] = hash;
+		this.elements[i] = elementInfo;
+	}
+
+	/**
+	 * Combines the hash codes and spreads the higher bits to the lower ones,
+	 * since only the lower bits are used for the table index.
+	 */
+	private static int hash(int namespaceHash, int nameHash) {
+		int hash = namespaceHash * 31 + nameHash;
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -0,0 +1,159 @@
+package org.xpaframework.xml;
+
+import org.xpaframework.xml.annotation.XmlEnumValue;
+import org.xpaframework.xml.util.CharParser;
+
+
+/**
+ * <p>Read-only lookup table of the enumeration constants keyed by their XML
+ * values. The table is built once by the {@link MetaDataInitializer} for
+ * each enumeration mapped without its own value adapter.</p>
+ * <p>Each constant is resolved by its {@link XmlEnumValue} value (if
+ * declared) and by its name. The keys are stored in the open addressing
+ * array with the precomputed hashes, so the constant is found directly from
+ * the character buffer of the parser without any {@link String} creation.
+ * The serialized value of each constant is cached, so no string is created
+ * by the serialization either.</p>
+ * <p>Once built, the table is never modified and can be shared by any
+ * number of threads.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see XmlEnumValue
+ * @see ElementInfo#getEnumTable()
+ * @see AttributeInfo#getEnumTable()
+ */
+public final class EnumTable {
+	
+	/**
+	 * The serialized values of the constants indexed by the ordinal.
+	 */
+	private final String[] values;
+	
+	private final Class<?> enumClass;
+	private final String[] keys;
+	private final int[] hashes;
+	private final Enum<?>[] constants;
+	private final int mask;
+	
+	/**
+	 * <p>Creates the table of the constants of this <code>enumClass</code>.</p>
+	 * 
+	 * @param enumClass - the enumeration class.
+	 * 
+	 * @throws IllegalArgumentException if the class is not an enumeration.
+	 */
+	protected EnumTable(Class<?> enumClass) throws IllegalArgumentException {
+		if(!enumClass.isEnum()) {
+			throw new IllegalArgumentException("Not an enumeration: " + enumClass.getName());
+		}
+		
+		Enum<?>[] constants = (Enum<?>[]) enumClass.getEnumConstants();
+		int capacity = 4;
+		
+		//each constant has at most two keys, the load factor is kept below 0.5
+		while(capacity < constants.length * 4) {
+			capacity <<= 1;
+		}
+		
+		this.enumClass = enumClass;
+		this.values = new String[constants.length];
+		this.keys = new String[capacity];
+		this.hashes = new int[capacity];
+		this.constants = new Enum<?>[capacity];
+		this.mask = capacity - 1;
+		
+		//the declared values take precedence over the equal constant names
+		for(Enum<?> constant : constants) {
+			this.values[constant.ordinal()] = getValue(enumClass, constant);
+			put(this.values[constant.ordinal()], constant);
+		}
+		
+		for(Enum<?> constant : constants) {
+			put(constant.name(), constant);
+		}
+	}
+
+	/**
+	 * <p>Returns the constant whose value is equal to the characters of the
+	 * range.</p>
+	 * 
+	 * @param buffer - the buffer containing the value.
+	 * @param start - index of the first character of the value.
+	 * @param length - count of the value characters.
+	 * 
+	 * @return the enumeration constant.
+	 * 
+	 * @throws IllegalArgumentException if the enumeration has no constant
+	 * with the value.
+	 */
+	protected Enum<?> get(char[] buffer, int start, int length) throws IllegalArgumentException {
+		int hash = 0;
+		
+		for(int i = start; i < start + length; i++) {
+			hash = 31 * hash + buffer[i];
+		}
+		
+		for(int i = hash & this.mask; this.constants[i] != null; i = (i + 1) & this.mask) {
+			if(this.hashes[i] == hash && CharParser.equals(this.keys[i], buffer, start, length)) {
+				return this.constants[i];
+			}
+		}
+		
+		throw new IllegalArgumentException("No enum constant " + this.enumClass.getName() +
+				"." + new String(buffer, start, length));
+	}
+
+	/**
+	 * @see #get(char[], int, int)
+	 */
+	protected Enum<?> get(String value) throws IllegalArgumentException {
+		int hash = value.hashCode();
+		
+		for(int i = hash & this.mask; this.constants[i] != null; i = (i + 1) & this.mask) {
+			if(this.hashes[i] == hash && this.keys[i].equals(value)) {
+				return this.constants[i];
+			}
+		}
+		
+		throw new IllegalArgumentException("No enum constant " + this.enumClass.getName() + "." + value);
+	}
+
+	/**
+	 * @return the serialized value of the <code>constant</code>.
+	 */
+	protected String getValue(Enum<?> constant) {
+		return this.values[constant.ordinal()];
+	}
+
+	private void put(String key, Enum<?> constant) {
+		int hash = key.hashCode();
+		int i = hash & this.mask;
+		
+		while(this.constants[i] != null) {
+			if(this.hashes[i] == hash && this.keys[i].equals(key)) {
+				return;
+			}
+			
+			i = (i + 1) & this.mask;
+		}
+		
+		this.keys[i] = key;
+		this.hashes[i] = hash;
+		this.constants[i] = constant;
+	}
+
+	/**
+	 * @return the {@link XmlEnumValue} value of the constant or its name if
+	 * the value is not declared.
+	 */
+	private static String getValue(Class<?> enumClass, Enum<?> constant) {
+		try {
+			XmlEnumValue enumValue = enumClass.getField(constant.name()).getAnnotation(XmlEnumValue.class);
+			return enumValue == null ? constant.name() : enumValue.value();
+		} catch (NoSuchFieldException e) {
+			return constant.name();
+		}
+	}
+
+}
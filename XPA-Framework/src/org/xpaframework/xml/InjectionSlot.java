@@ -0,0 +1,71 @@
+package org.xpaframework.xml;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * <p>Resolved binding of the child element into the field of its parent
+ * object. The slots are created for each pair of the parent and child
+ * element once by the {@link MetaDataInitializer}, so the binding of the
+ * child element does not search the injection field by the class
+ * hierarchy.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see ElementInfo#getInjectionSlot(ElementInfo)
+ */
+public class InjectionSlot {
+	
+	/**
+	 * Field of the parent object holding the child element.
+	 */
+	private Field field;
+	
+	/**
+	 * Accessor of the {@link #field}.
+	 */
+	private PropertyAccessor accessor;
+	
+	/**
+	 * <code>true</code> if the {@link #field} is a {@link List} the child
+	 * elements are added to.
+	 */
+	private boolean list;
+	
+	/**
+	 * <code>true</code> if the text of the child element is canonicalized by
+	 * the string pool.
+	 */
+	private boolean pooled;
+	
+	protected InjectionSlot(Field field, PropertyAccessor accessor, boolean pooled) {
+		this.field = field;
+		this.accessor = accessor;
+		this.list = List.class.isAssignableFrom(field.getType());
+		this.pooled = pooled;
+	}
+
+	/**
+	 * @return the field of the parent object holding the child element.
+	 */
+	protected Field getField() {
+		return field;
+	}
+
+	protected PropertyAccessor getAccessor() {
+		return accessor;
+	}
+
+	/**
+	 * @return <code>true</code> if the child elements are added to the
+	 * {@link List} held by the field.
+	 */
+	protected boolean isList() {
+		return list;
+	}
+
+	protected boolean isPooled() {
+		return pooled;
+	}
+
+}
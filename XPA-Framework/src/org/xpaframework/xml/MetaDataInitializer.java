@@ -2,10 +2,12 @@ package org.xpaframework.xml;
 
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -14,10 +16,12 @@ import org.xpaframework.ValueAdapterRegistry;
 import org.xpaframework.xml.annotation.XmlAncestor;
 import org.xpaframework.xml.annotation.XmlAttribute;
 import org.xpaframework.xml.annotation.XmlNamespace;
+import org.xpaframework.xml.annotation.XmlPooled;
 import org.xpaframework.xml.annotation.XmlType;
 import org.xpaframework.xml.annotation.XmlValue;
 import org.xpaframework.xml.annotation.XmlValueAdapter;
 import org.xpaframework.xml.util.Logger;
+import org.xpaframework.xml.util.StringPool;
 
 
 /**
@@ -40,29 +44,51 @@ public final class MetaDataInitializer extends Thread {
 	
 	private PrimitiveTypeInitializer primitiveTypeInitializer;
 	private ValueAdapterRegistry valueAdapterRegistry;
+	private AccessType accessType;
 	
 	private Class<?> rootClass;
 	private Map<String, ElementInfo> parsingInfo;
 	private Map<String, ElementInfo> serializationInfo;
+	private ElementSymbolTable parsingSymbols;
 	
 	/*
-	 * These maps are created for some performance issues over
+	 * This map is created for some performance issues over
 	 * reflection. 
 	 */
-	private Map<Field, Method> getterMap;
-	private Map<Field, Method> setterMap;
+	private Map<Field, PropertyAccessor> accessorMap;
 	
-	protected MetaDataInitializer(Class<?> root, ContextConfiguration config) {
+	/**
+	 * The lookup tables of the enumerations mapped without their own
+	 * adapters.
+	 */
+	private Map<Class<?>, EnumTable> enumTables = new HashMap<Class<?>, EnumTable>();
+	
+	/**
+	 * The string pool of the context or <code>null</code> if the pooling is
+	 * disabled.
+	 */
+	private StringPool stringPool;
+	private boolean stringPooling;
+	
+	/**
+	 * The serialization plans of the elements, created by the first
+	 * serialization.
+	 */
+	private Map<ElementInfo, SerializationPlan> serializationPlans;
+	
+	protected MetaDataInitializer(Class<?> root, ContextConfiguration config, StringPool stringPool) {
 		this.rootClass = root;
+		this.stringPool = stringPool;
+		this.stringPooling = config.isStringPooling();
 		
 		this.parsingInfo = new Hashtable<String, ElementInfo>();
 		this.serializationInfo = new Hashtable<String, ElementInfo>();
 		
-		this.getterMap = new Hashtable<Field, Method>();
-		this.setterMap = new Hashtable<Field, Method>();
+		this.accessorMap = new Hashtable<Field, PropertyAccessor>();
 		
 		this.primitiveTypeInitializer = config.getPrimitiveTypeInitializer();
 		this.valueAdapterRegistry = config.getAdapterRegistry();
+		this.accessType = config.getAccessType();
 	}
 	
 	/**
@@ -77,6 +103,9 @@ public final class MetaDataInitializer extends Thread {
 		try {
 			NamespaceInfo namespace = getNamespace(this.rootClass);
 			createMetaData(this.rootClass, null, namespace);
+			createAttributeBindings();
+			createInjectionSlots();
+			this.parsingSymbols = new ElementSymbolTable(this.parsingInfo.values());
 		} catch (MetaDataCreationException e) {
 			throw new IllegalStateException("Meta data creation failed!", e);
 		}
@@ -103,7 +132,39 @@ public final class MetaDataInitializer extends Thread {
 		this.logger.i("deserialization info thread attached.");
 		return this.parsingInfo;
 	}
+
+	/**
+	 * @return <code>true</code> if the meta-data creation is finished, so the
+	 * meta-data are attached without waiting.
+	 */
+	protected boolean isCreated() {
+		return !isAlive();
+	}
 	
+	/**
+	 * <p>Returns the symbol table of the created meta-data for specified
+	 * class. The table contains the same elements as
+	 * {@link #getParsingInfo()}, but the elements are resolved without
+	 * creating of the key strings.</p>
+	 * <p>The creation process is invoked asynchronously by
+	 * {@link Thread#start()} method.</p>
+	 * 
+	 * @return the symbol table of the meta data for target class.
+	 * 
+	 * @throws InterruptedException may be thrown by {@link Thread#join()}
+	 * method.
+	 * 
+	 * @see ElementSymbolTable
+	 */
+	protected ElementSymbolTable getParsingSymbols() throws InterruptedException {
+		if(isAlive()) {
+			join();
+		}
+		
+		this.logger.i("deserialization symbols thread attached.");
+		return this.parsingSymbols;
+	}
+
 	/**
 	 * <p>Returns created meta-data for specified class. The metadata are used
 	 * for XML document serialization.</p>
@@ -125,19 +186,54 @@ public final class MetaDataInitializer extends Thread {
 		this.logger.i("serialization info thread attached.");
 		return this.serializationInfo;
 	}
+
+	/**
+	 * <p>Returns the serialization plans of all elements of the meta-data.
+	 * The plans are created by the first call of this method, all adapters
+	 * used by the serialization should be registered before.</p>
+	 * 
+	 * @return the plans of the elements of {@link #getSerializationInfo()}.
+	 * 
+	 * @throws InterruptedException may be thrown by {@link Thread#join()}
+	 * method.
+	 * 
+	 * @see SerializationPlan
+	 */
+	protected synchronized Map<ElementInfo, SerializationPlan> getSerializationPlans()
+			throws InterruptedException {
+		
+		if(this.serializationPlans == null) {
+			this.serializationPlans = createSerializationPlans(getSerializationInfo());
+		}
+		
+		return this.serializationPlans;
+	}
+
+	/**
+	 * @return the string pool canonicalizing the values of the pooled fields
+	 * or <code>null</code> if the pooling is disabled.
+	 * 
+	 * @see #isPooled(Field)
+	 */
+	protected StringPool getStringPool() {
+		return stringPool;
+	}
 	
 	/**
-	 * @return getter method for the specified <code>field</code>.
+	 * @return the registry of the adapters resolved into the meta-data and
+	 * the serialization plans.
 	 */
-	protected Method getGetterMethod(Field field) {
-		return this.getterMap.get(field);
+	protected ValueAdapterRegistry getAdapterRegistry() {
+		return valueAdapterRegistry;
 	}
 
 	/**
-	 * @return setter method for the specified <code>field</code>.
+	 * @return the accessor of the specified <code>field</code> value.
+	 * 
+	 * @see PropertyAccessor
 	 */
-	protected Method getSetterMethod(Field field) {
-		return this.setterMap.get(field);
+	protected PropertyAccessor getAccessor(Field field) {
+		return this.accessorMap.get(field);
 	}
 
 	/**
@@ -427,17 +523,277 @@ public final class MetaDataInitializer extends Thread {
 	}
 	
 	/*
-	 * Injects getter/setter methods as additional meta-data information. This
-	 * method is providing huge performance increase for the XML data
-	 * processing.
+	 * Injects the field accessor as additional meta-data information. The
+	 * getter/setter methods are resolved only once, what is providing huge
+	 * performance increase for the XML data processing. The accessor methods
+	 * are not resolved for the field access type.
 	 */
 	private void registerInjectionMethod(Field field) {
-		Method getter = XmlUtils.createGetter(field);
-		this.getterMap.put(field, getter);
-		Method setter = XmlUtils.createSetter(field);
-		this.setterMap.put(field, setter);
+		this.accessorMap.put(field, new PropertyAccessor(field, this.accessType));
 	}
 	
+	/**
+	 * <p>Resolves the accessors and adapters of all attributes and creates
+	 * the attribute lookup tables of the elements. The enumerations with no
+	 * registered adapter are bound by their {@link EnumTable}. All adapters
+	 * must be registered before this method is called.</p>
+	 * 
+	 * @see ElementInfo#createAttributeTable()
+	 */
+	private void createAttributeBindings() {
+		for(ElementInfo elementInfo : this.parsingInfo.values()) {
+			for(AttributeInfo attributeInfo : elementInfo.getAttributeInformations()) {
+				Field field = attributeInfo.getField();
+				ValueAdapter<?> adapter = getRegisteredAdapter(field.getType());
+				EnumTable enumTable = adapter == null ? getEnumTable(field.getType()) : null;
+				attributeInfo.setBinding(getAccessor(field), adapter, enumTable);
+				attributeInfo.setPooled(isPooled(field));
+			}
+			
+			if(elementInfo.hasValue()) {
+				elementInfo.setValuePooled(isPooled(elementInfo.getValueField()));
+			}
+				
+			Class<?> mappingClass = elementInfo.getMappingClass();
+				
+			if(getRegisteredAdapter(mappingClass) == null) {
+				elementInfo.setEnumTable(getEnumTable(mappingClass));
+			}
+			
+			elementInfo.createAttributeTable();
+		}
+	}
+
+	/**
+	 * <p>Creates the {@link InjectionSlot} tables of the elements. The slot
+	 * is created for each pair of the parent and child element, the
+	 * injection field of the child element is searched in the parent's
+	 * mapping class and its {@link XmlAncestor} superclasses.</p>
+	 * 
+	 * @see ElementInfo#getInjectionSlot(ElementInfo)
+	 */
+	private void createInjectionSlots() {
+		Collection<ElementInfo> elementInfos = this.parsingInfo.values();
+		int index = 0;
+		
+		for(ElementInfo elementInfo : elementInfos) {
+			elementInfo.setIndex(index++);
+		}
+		
+		for(ElementInfo parent : elementInfos) {
+			Class<?> parentClass = parent.getMappingClass();
+			
+			if(XmlUtils.isSimpleType(parentClass, true)) {
+				continue;
+			}
+			
+			InjectionSlot[] slots = new InjectionSlot[index];
+			int length = 0;
+			
+			for(ElementInfo child : elementInfos) {
+				Field field = getInjectionField(child, parentClass);
+				
+				if(field != null) {
+					slots[child.getIndex()] = new InjectionSlot(field, getAccessor(field), isPooled(field));
+					length = Math.max(length, child.getIndex() + 1);
+				}
+			}
+			
+			InjectionSlot[] injectionSlots = new InjectionSlot[length];
+			System.arraycopy(slots, 0, injectionSlots, 0, length);
+			parent.setInjectionSlots(injectionSlots);
+		}
+	}
+
+	/**
+	 * <p>Creates the serialization plans of the elements. The plans are
+	 * created first, so the steps of the recursive elements can refer to
+	 * the plans of their ancestors.</p>
+	 */
+	private Map<ElementInfo, SerializationPlan> createSerializationPlans(
+			Map<String, ElementInfo> serializationInfo) {
+		
+		Map<ElementInfo, SerializationPlan> plans = new IdentityHashMap<ElementInfo, SerializationPlan>();
+		
+		for(ElementInfo elementInfo : serializationInfo.values()) {
+			if(!plans.containsKey(elementInfo)) {
+				Class<?> type = this.primitiveTypeInitializer.convertType(elementInfo.getMappingClass());
+				plans.put(elementInfo, new SerializationPlan(elementInfo, type, getRegisteredAdapter(type)));
+			}
+		}
+		
+		for(Map.Entry<ElementInfo, SerializationPlan> entry : plans.entrySet()) {
+			ElementInfo elementInfo = entry.getKey();
+			
+			if(entry.getValue().isSimpleType()) {
+				continue;
+			}
+			
+			List<SerializationPlan.Step> steps = new ArrayList<SerializationPlan.Step>();
+			
+			for(AttributeInfo attributeInfo : elementInfo.getAttributeInformations()) {
+				Field field = attributeInfo.getField();
+				SerializationPlan.Step step = new SerializationPlan.Step(SerializationPlan.ATTRIBUTE, field,
+						getAccessor(field));
+				
+				step.setName(attributeInfo.getName(), attributeInfo.getNamespace());
+				step.setAdapter(attributeInfo.getAdapter(), attributeInfo.getEnumTable());
+				steps.add(step);
+			}
+			
+			if(elementInfo.hasValue()) {
+				Field field = elementInfo.getValueField();
+				SerializationPlan.Step step = new SerializationPlan.Step(SerializationPlan.VALUE, field,
+						getAccessor(field));
+				
+				step.setAdapter(getRegisteredAdapter(field.getType()), null);
+				steps.add(step);
+			}
+			
+			for(Field field : elementInfo.getOrder()) {
+				steps.add(createElementStep(field, serializationInfo, plans));
+			}
+			
+			for(Field field : elementInfo.getChildren()) {
+				steps.add(createElementStep(field, serializationInfo, plans));
+			}
+			
+			entry.getValue().setSteps(steps.toArray(new SerializationPlan.Step[steps.size()]));
+		}
+		
+		return plans;
+	}
+
+	/**
+	 * Creates the step of the child element. The plans of the child element
+	 * are resolved for the field's type and all its inherited types.
+	 */
+	private SerializationPlan.Step createElementStep(Field field, Map<String, ElementInfo> serializationInfo,
+			Map<ElementInfo, SerializationPlan> plans) {
+		
+		Class<?> fieldType = field.getType();
+		boolean collection = Collection.class.isAssignableFrom(fieldType);
+		int kind = collection ? SerializationPlan.COLLECTION : SerializationPlan.ELEMENT;
+		SerializationPlan.Step step = new SerializationPlan.Step(kind, field, getAccessor(field));
+		step.setAdapter(getRegisteredAdapter(fieldType), null);
+		
+		if(fieldType.isPrimitive()) {
+			ElementInfo elementInfo = serializationInfo.get(createIdentifier(fieldType, field));
+			step.setName(elementInfo.getName(), elementInfo.getNamespace());
+			return step;
+		} else if(collection) {
+			step.setName(XmlUtils.getElementName(field), null);
+		}
+		
+		List<Class<?>> types = new ArrayList<Class<?>>();
+		List<SerializationPlan> typePlans = new ArrayList<SerializationPlan>();
+		List<Class<?>> inheritance = new ArrayList<Class<?>>();
+		collectInheritance(collection ? XmlUtils.getCollectionType(field) : fieldType, inheritance);
+		
+		for(Class<?> type : inheritance) {
+			ElementInfo elementInfo = serializationInfo.get(createIdentifier(type, field));
+			
+			if(elementInfo != null) {
+				types.add(type);
+				typePlans.add(plans.get(elementInfo));
+			}
+		}
+		
+		step.setPlans(types.toArray(new Class<?>[types.size()]),
+				typePlans.toArray(new SerializationPlan[typePlans.size()]));
+		
+		return step;
+	}
+
+	/**
+	 * Adds the <code>type</code> and the types inherited from it by
+	 * {@link XmlAncestor#inheritanceTypes()} to the <code>types</code>.
+	 */
+	private void collectInheritance(Class<?> type, List<Class<?>> types) {
+		if(types.contains(type)) {
+			return;
+		}
+		
+		types.add(type);
+		
+		if(XmlUtils.isAncestor(type)) {
+			for(Class<?> inheritance : type.getAnnotation(XmlAncestor.class).inheritanceTypes()) {
+				collectInheritance(inheritance, types);
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the text values of the <code>field</code>
+	 * are canonicalized by the string pool. The {@link XmlPooled} annotation
+	 * takes precedence over the context configuration.
+	 */
+	private boolean isPooled(Field field) {
+		if(this.stringPool == null) {
+			return false;
+		}
+		
+		Class<?> type = field.getType();
+		
+		if(Collection.class.isAssignableFrom(type)) {
+			type = XmlUtils.getCollectionType(field);
+		}
+		
+		if(type != String.class) {
+			return false;
+		}
+		
+		XmlPooled pooled = field.getAnnotation(XmlPooled.class);
+		return pooled != null ? pooled.value() : this.stringPooling;
+	}
+
+	/**
+	 * @return the field of the <code>clazz</code> or its ancestors where the
+	 * element is injected or <code>null</code> if there is no such field.
+	 */
+	private Field getInjectionField(ElementInfo elementInfo, Class<?> clazz) {
+		Field injection = elementInfo.getInjection(clazz);
+		Class<?> superClass = clazz.getSuperclass();
+		
+		if(injection == null && superClass != null && superClass.isAnnotationPresent(XmlAncestor.class)) {
+			injection = getInjectionField(elementInfo, superClass);
+		}
+		
+		return injection;
+	}
+
+	/**
+	 * @return the adapter registered for the <code>type</code> or
+	 * <code>null</code> if the adapter is not registered (yet).
+	 */
+	private ValueAdapter<?> getRegisteredAdapter(Class<?> type) {
+		try {
+			return this.valueAdapterRegistry.getAdapter(type);
+		} catch (IllegalArgumentException e) {
+			//resolved by the binding, the adapter may be registered later
+			return null;
+		}
+	}
+
+	/**
+	 * @return the lookup table of the enumeration <code>type</code> or
+	 * <code>null</code> if the type is not an enumeration.
+	 */
+	private EnumTable getEnumTable(Class<?> type) {
+		if(!type.isEnum()) {
+			return null;
+		}
+		
+		EnumTable enumTable = this.enumTables.get(type);
+		
+		if(enumTable == null) {
+			enumTable = new EnumTable(type);
+			this.enumTables.put(type, enumTable);
+		}
+		
+		return enumTable;
+	}
+
 	/**
 	 * <p>Registers {@link ValueAdapter} if any present for this <code>field</code>.</p>
 	 * 
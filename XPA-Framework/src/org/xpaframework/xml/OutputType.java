@@ -0,0 +1,27 @@
+package org.xpaframework.xml;
+
+/**
+ * <p>Enumeration of the output backends used for the XML serialization.
+ * The backend is set by {@link ContextConfiguration#setOutputType(OutputType)}
+ * method. Both backends are using the same meta-data, so the serialized
+ * documents are equivalent.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see XmlOutput
+ */
+public enum OutputType {
+	
+	/**
+	 * <p>The platform {@link org.xmlpull.v1.XmlSerializer} writing any
+	 * encoding supported by the platform. Available on Android only.</p>
+	 */
+	PULL,
+	
+	/**
+	 * <p>The {@link Utf8XmlWriter} encoding the document to UTF-8 directly
+	 * into its byte buffer. Available on any Java platform.</p>
+	 */
+	UTF8;
+
+}
@@ -0,0 +1,266 @@
+package org.xpaframework.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.xpaframework.AbstractDeserializer;
+import org.xpaframework.MappingException;
+
+
+/**
+ * <p>Deserializer binding the large documents concurrently. The document is
+ * split by the {@link DocumentSplitter} at the boundaries of the repeated
+ * child elements of the root element, the chunks are bound by the tasks of
+ * the {@link ExecutorService} and the results are stitched into the single
+ * root object.</p>
+ * <p>The stitching is based on the root element meta-data: the root object
+ * of the chunk with all non-repeated elements is the result, only the lists
+ * of the split repeated element of the other chunks' root objects are
+ * appended to its list in the document order. The other fields of the
+ * other chunks' root objects hold their default values, so they are not
+ * stitched. The documents whose repeated element is not bound to a list of
+ * the root object, or whose list is not empty in the result (e.g. it is
+ * filled by its initializer or by the elements of other inherited types),
+ * are deserialized again sequentially.</p>
+ * <p>The documents smaller than {@link #MIN_PARALLEL_SIZE} and the documents
+ * that can not be split are deserialized sequentially.</p>
+ * <p>The deserializer is created by
+ * {@link XmlContext#createParallelDeserializer(Class, ExecutorService, int)}
+ * method. The {@link #getValue()} returns the value of the last
+ * deserialization of the instance, the threads deserializing concurrently
+ * should use their own deserializers. The chunk roots are returned by the
+ * tasks, they are not retained by the executor threads.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <T> - type of the root element.
+ * 
+ * @see DocumentSplitter
+ * @see XmlContext#createParallelDeserializer(Class, ExecutorService, int)
+ */
+public class ParallelDeserializer<T> extends AbstractDeserializer<T> {
+	
+	/**
+	 * Minimal size of the document in bytes deserialized concurrently.
+	 */
+	public static final int MIN_PARALLEL_SIZE = 64 * 1024;
+	
+	/**
+	 * Count of the chunks per thread of the executor. More chunks than
+	 * threads balance the different binding time of the chunks.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	
+	private XmlContext.DeserializationWrapper<T> chunkDeserializer;
+	private MetaDataInitializer metaDataInitializer;
+	private Class<T> rootClass;
+	private ExecutorService executor;
+	private int parallelism;
+	
+	private volatile T value;
+	
+	/**
+	 * @param chunkDeserializer - reentrant deserializer of the chunks.
+	 * @param metaDataInitializer - meta-data of the root class.
+	 * @param rootClass - class representing root element object.
+	 * @param executor - executor running the binding tasks.
+	 * @param parallelism - count of the executor threads.
+	 */
+	protected ParallelDeserializer(XmlContext.DeserializationWrapper<T> chunkDeserializer,
+			MetaDataInitializer metaDataInitializer, Class<T> rootClass, ExecutorService executor,
+			int parallelism) {
+		
+		this.chunkDeserializer = chunkDeserializer;
+		this.metaDataInitializer = metaDataInitializer;
+		this.rootClass = rootClass;
+		this.executor = executor;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * <p>Reads whole <code>inputStream</code> and deserializes the read
+	 * document.</p>
+	 * 
+	 * @see #deserialize(byte[])
+	 */
+	@Override
+	public void deserialize(InputStream inputStream) throws MappingException {
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream(
+					Math.max(8192, inputStream.available()));
+			byte[] buffer = new byte[8192];
+			int count;
+			
+			while((count = inputStream.read(buffer)) >= 0) {
+				outputStream.write(buffer, 0, count);
+			}
+			
+			deserialize(outputStream.toByteArray());
+		} catch (IOException e) {
+			throw new MappingException("Deseiralization failure!", e);
+		}
+	}
+
+	/**
+	 * <p>Deserializes the document. The document is not copied.</p>
+	 * 
+	 * @param data - the XML document.
+	 * 
+	 * @throws MappingException if the deserialization of any chunk fails.
+	 */
+	public void deserialize(byte[] data) throws MappingException {
+		this.value = null;
+		DocumentSplitter splitter = new DocumentSplitter(data);
+		
+		if(data.length < MIN_PARALLEL_SIZE || this.parallelism == 1
+				|| !splitter.split(this.parallelism * CHUNKS_PER_THREAD)) {
+			
+			this.value = this.chunkDeserializer.parse(new ByteArrayInputStream(data));
+			return;
+		}
+		
+		List<Future<T>> results = new ArrayList<Future<T>>();
+		results.add(this.executor.submit(new ChunkTask(splitter.getBaseChunk())));
+		
+		for(InputStream chunk : splitter.getItemChunks()) {
+			results.add(this.executor.submit(new ChunkTask(chunk)));
+		}
+		
+		List<T> roots = new ArrayList<T>(results.size());
+		
+		try {
+			for(Future<T> result : results) {
+				roots.add(result.get());
+			}
+		} catch (InterruptedException e) {
+			cancel(results);
+			Thread.currentThread().interrupt();
+			throw new MappingException("Deserialization interrupted!", e);
+		} catch (ExecutionException e) {
+			cancel(results);
+			
+			if(e.getCause() instanceof MappingException) {
+				throw (MappingException) e.getCause();
+			}
+			
+			throw new MappingException("Deseiralization failure!", e.getCause());
+		}
+		
+		T value = stitch(roots, splitter.getItemName());
+		
+		if(value == null) {
+			value = this.chunkDeserializer.parse(new ByteArrayInputStream(data));
+		}
+		
+		this.value = value;
+	}
+
+	/**
+	 * @return the value deserialized by the last call or <code>null</code>
+	 * if the last call failed.
+	 */
+	@Override
+	public T getValue() {
+		return this.value;
+	}
+
+	/**
+	 * Appends the lists of the repeated element of the root objects to the
+	 * list of the first one.
+	 * 
+	 * @param itemName - the qualified name of the split repeated element.
+	 * 
+	 * @return the first root object or <code>null</code> if the lists can
+	 * not be stitched in the document order.
+	 */
+	private T stitch(List<T> roots, String itemName) throws MappingException {
+		InjectionSlot slot;
+		
+		try {
+			slot = getItemSlot(itemName);
+		} catch (InterruptedException e) {
+			throw new MappingException("Metadata processing failure!", e);
+		}
+		
+		if(slot == null || !slot.isList()) {
+			return null;
+		}
+		
+		PropertyAccessor accessor = slot.getAccessor();
+		T result = roots.get(0);
+		
+		@SuppressWarnings("unchecked")
+		List<Object> list = (List<Object>) accessor.get(result);
+			
+		if(list == null || !list.isEmpty()) {
+			return null;
+		}
+				
+		for(int i = 1; i < roots.size(); i++) {
+			List<?> chunkList = (List<?>) accessor.get(roots.get(i));
+			
+			if(chunkList != null) {
+				list.addAll(chunkList);
+			}
+		}
+		
+		return result;
+	}
+
+	/**
+	 * @return the binding of the repeated element into the root object or
+	 * <code>null</code> if the element is not bound to the root object. The
+	 * element is resolved by its local name as by the binding.
+	 */
+	private InjectionSlot getItemSlot(String itemName) throws InterruptedException {
+		String localName = itemName.substring(itemName.indexOf(':') + 1);
+		String key = this.metaDataInitializer.createIdentifier(this.rootClass, null);
+		ElementInfo rootInfo = this.metaDataInitializer.getSerializationInfo().get(key);
+		Map<String, ElementInfo> parsingInfo = this.metaDataInitializer.getParsingInfo();
+			
+		for(ElementInfo elementInfo : parsingInfo.values()) {
+			if(localName.equals(elementInfo.getName())) {
+				InjectionSlot slot = rootInfo.getInjectionSlot(elementInfo);
+				
+				if(slot != null) {
+					return slot;
+				}
+			}
+		}
+		
+		return null;
+	}
+
+	private void cancel(List<Future<T>> results) {
+		for(Future<T> result : results) {
+			result.cancel(true);
+		}
+	}
+
+	/**
+	 * Task binding one chunk of the document by the reentrant deserializer.
+	 */
+	private class ChunkTask implements Callable<T> {
+		
+		private InputStream chunk;
+		
+		private ChunkTask(InputStream chunk) {
+			this.chunk = chunk;
+		}
+		
+		@Override
+		public T call() throws MappingException {
+			return chunkDeserializer.parse(this.chunk);
+		}
+	}
+
+}
@@ -0,0 +1,27 @@
+package org.xpaframework.xml;
+
+/**
+ * <p>Enumeration of the parsing engines used for the XML deserialization.
+ * The engine is set by {@link ContextConfiguration#setParserType(ParserType)}
+ * method. Both engines are using the same meta-data and binding, so the
+ * deserialized objects are the same.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see ContextConfiguration
+ */
+public enum ParserType {
+	
+	/**
+	 * <p>SAX parsing engine. The document events are pushed to the
+	 * {@link XmlParser} handler.</p>
+	 */
+	SAX,
+	
+	/**
+	 * <p>XML pull parsing engine. The document events are pulled from the
+	 * {@link org.xmlpull.v1.XmlPullParser} by {@link XmlPullParserHandler}.</p>
+	 */
+	PULL;
+
+}
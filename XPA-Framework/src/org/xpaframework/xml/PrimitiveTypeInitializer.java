@@ -40,7 +40,7 @@ public final class PrimitiveTypeInitializer {
 	}
 	
 	private void init() {
-		init("bool", Boolean.class, false);
+		init("boolean", Boolean.class, false);
 		init("byte", Byte.class, 0);
 		init("char", Character.class, '\u0000');
 		init("double", Double.class, 0.0d);
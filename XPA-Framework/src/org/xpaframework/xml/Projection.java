@@ -0,0 +1,151 @@
+package org.xpaframework.xml;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * <p>Projection of the document selecting the parts to be deserialized. The
+ * projection is defined by the paths of the local element names starting
+ * with the root element, delimited by {@link XmlIterator#PATH_DELIMITER}.
+ * The last step of the path can select the attribute by the
+ * {@link #ATTRIBUTE_PREFIX}, e.g.:
+ * <ul>
+ * <li><code>"orders/order/@order-id"</code> - only the <code>order-id</code>
+ * attribute of the <code>order</code> elements,</li>
+ * <li><code>"orders/order/client"</code> - whole <code>client</code>
+ * elements of the orders.</li>
+ * </ul>
+ * </p>
+ * <p>The elements on the paths are created, but only the selected attributes
+ * are bound and their text is ignored. The elements selected by the last
+ * step of the path are bound completely, including all their descendants.
+ * All other elements are skipped by the parser without any object creation
+ * or value conversion.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see XmlContext#createDeserializer(Class, Projection)
+ */
+public class Projection {
+	
+	/**
+	 * Prefix of the attribute step of the path.
+	 */
+	public static final String ATTRIBUTE_PREFIX = "@";
+	
+	/**
+	 * Virtual node of the document, its only child is the root element.
+	 */
+	private Node documentNode = new Node();
+	
+	/**
+	 * <p>Creates the projection of these <code>paths</code>.</p>
+	 * 
+	 * @param paths - the paths of the selected elements and attributes.
+	 * 
+	 * @throws IllegalArgumentException if no path is specified or any path is
+	 * empty or contains the attribute step that is not the last one.
+	 */
+	public Projection(String... paths) throws IllegalArgumentException {
+		if(paths == null || paths.length == 0) {
+			throw new IllegalArgumentException("No projection path specified!");
+		}
+		
+		for(String path : paths) {
+			addPath(path);
+		}
+	}
+
+	/**
+	 * @return the virtual node of the document containing the root element
+	 * node.
+	 */
+	protected Node getDocumentNode() {
+		return documentNode;
+	}
+
+	private void addPath(String path) throws IllegalArgumentException {
+		if(path == null || path.isEmpty()) {
+			throw new IllegalArgumentException("Empty projection path!");
+		}
+		
+		String[] steps = path.split(XmlIterator.PATH_DELIMITER);
+		Node node = this.documentNode;
+		
+		for(int i = 0; i < steps.length; i++) {
+			String step = steps[i];
+			
+			if(step.startsWith(ATTRIBUTE_PREFIX)) {
+				if(i != steps.length - 1 || i == 0) {
+					throw new IllegalArgumentException("Attribute must be the last step of the path: " + path);
+				}
+				
+				node.addAttribute(step.substring(ATTRIBUTE_PREFIX.length()));
+				return;
+			}
+			
+			node = node.addChild(step);
+		}
+		
+		node.setComplete();
+	}
+
+	/**
+	 * <p>Node of the projection representing the element on the projection
+	 * path.</p>
+	 * 
+	 * @author Jan Janickovic
+	 */
+	protected static class Node {
+		
+		private Map<String, Node> children = new HashMap<String, Node>();
+		private Set<String> attributes = new HashSet<String>();
+		private boolean complete;
+		
+		/**
+		 * @return the node of the child element or <code>null</code> if the
+		 * child element is not projected.
+		 */
+		protected Node getChild(String localName) {
+			return this.children.get(localName);
+		}
+		
+		/**
+		 * @return <code>true</code> if the attribute of the element is
+		 * projected.
+		 */
+		protected boolean containsAttribute(String localName) {
+			return this.attributes.contains(localName);
+		}
+		
+		/**
+		 * @return <code>true</code> if the element is bound completely.
+		 */
+		protected boolean isComplete() {
+			return complete;
+		}
+		
+		private Node addChild(String localName) {
+			Node child = this.children.get(localName);
+			
+			if(child == null) {
+				child = new Node();
+				this.children.put(localName, child);
+			}
+			
+			return child;
+		}
+		
+		private void addAttribute(String localName) {
+			this.attributes.add(localName);
+		}
+		
+		private void setComplete() {
+			this.complete = true;
+		}
+	}
+
+}
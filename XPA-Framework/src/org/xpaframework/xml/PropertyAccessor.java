@@ -0,0 +1,403 @@
+package org.xpaframework.xml;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+
+/**
+ * <p>Accessor of the mapped field value. The accessor is resolved once
+ * during the meta-data creation and is used for all reads and writes of the
+ * field value during the XML processing.</p>
+ * <p>The getter and setter methods are used if the field's declaring class
+ * defines them (the <code>is</code> prefix is accepted for boolean getters).
+ * Otherwise the field is accessed directly, so the fields without JavaBean
+ * accessors can be mapped as well. For {@link AccessType#FIELD} the
+ * accessor methods are not resolved at all and every field is accessed
+ * directly, so no method is invoked reflectively.</p>
+ * <p>All reflective objects are made accessible when the accessor is created,
+ * so no access check is performed by the invocations. The getter is invoked
+ * with the shared empty argument array. The setter argument array is owned
+ * by the caller (see {@link #set(Object, Object, Object[])}), the binder
+ * reuses one array for all values of the document.</p>
+ * <p>The primitive values are passed by the typed methods (e.g.
+ * {@link #getInt(Object)} and {@link #setInt(Object, int, Object[])}). The
+ * getter and setter methods are invoked by them as well, as the mapped
+ * classes may rely on their side effects, only the fields accessed directly
+ * (the fields without the accessor methods or all fields for
+ * {@link AccessType#FIELD}) are read and written without boxing.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see MetaDataInitializer#getAccessor(Field)
+ */
+public class PropertyAccessor {
+	
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+	
+	private Field field;
+	private Method getter;
+	private Method setter;
+	
+	/**
+	 * <p>Creates the accessor for this <code>field</code> using its getter
+	 * and setter methods.</p>
+	 * 
+	 * @see #PropertyAccessor(Field, AccessType)
+	 */
+	protected PropertyAccessor(Field field) throws NullPointerException, IllegalStateException {
+		this(field, AccessType.PROPERTY);
+	}
+
+	/**
+	 * <p>Creates the accessor for this <code>field</code>.</p>
+	 * 
+	 * @param field - the mapped field.
+	 * @param accessType - the access of the field.
+	 * 
+	 * @throws NullPointerException if <code>field</code> or
+	 * <code>accessType</code> is <code>null</code>.
+	 * @throws IllegalStateException if the field or its accessor methods can
+	 * not be made accessible.
+	 */
+	protected PropertyAccessor(Field field, AccessType accessType)
+			throws NullPointerException, IllegalStateException {
+		
+		if(field == null) {
+			throw new NullPointerException("Field: null");
+		}
+		
+		if(accessType == null) {
+			throw new NullPointerException("Access type: null");
+		}
+		
+		this.field = field;
+		
+		if(accessType == AccessType.PROPERTY) {
+			this.getter = findGetter(field);
+			this.setter = findSetter(field);
+		}
+		
+		try {
+			if(this.getter == null || this.setter == null) {
+				this.field.setAccessible(true);
+			}
+			
+			if(this.getter != null) {
+				this.getter.setAccessible(true);
+			}
+			
+			if(this.setter != null) {
+				this.setter.setAccessible(true);
+			}
+		} catch (SecurityException e) {
+			throw new IllegalStateException("Field " + field.getName() + " is not accessible!", e);
+		}
+	}
+
+	/**
+	 * @return the field accessed by this accessor.
+	 */
+	protected Field getField() {
+		return field;
+	}
+
+	/**
+	 * <p>Returns the value of the field of this <code>target</code>.</p>
+	 * 
+	 * @param target - the object holding the field.
+	 * 
+	 * @return the field's value.
+	 * 
+	 * @throws RuntimeException if the getter method fails. The cause is the
+	 * original exception.
+	 */
+	public Object get(Object target) throws RuntimeException {
+		try {
+			if(this.getter != null) {
+				return this.getter.invoke(target, NO_ARGUMENTS);
+			}
+			
+			return this.field.get(target);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Method invocation failed!", e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Method invocation failed!", e);
+		}
+	}
+
+	/**
+	 * <p>Sets the field of this <code>target</code> to this <code>value</code>.</p>
+	 * 
+	 * @param target - the object holding the field.
+	 * @param value - the new value of the field.
+	 * 
+	 * @throws RuntimeException if the setter method fails. The cause is the
+	 * original exception.
+	 */
+	public void set(Object target, Object value) throws RuntimeException {
+		set(target, value, new Object[1]);
+	}
+
+	/**
+	 * <p>Sets the field of this <code>target</code> to this <code>value</code>.
+	 * The setter is invoked with the <code>arguments</code> array, so no
+	 * array is created by the invocation. The array is cleared after the
+	 * invocation, but it must not be used by other threads
+	 * concurrently.</p>
+	 * 
+	 * @param target - the object holding the field.
+	 * @param value - the new value of the field.
+	 * @param arguments - the reused argument array of one element.
+	 * 
+	 * @throws RuntimeException if the setter method fails. The cause is the
+	 * original exception.
+	 */
+	public void set(Object target, Object value, Object[] arguments) throws RuntimeException {
+		try {
+			if(this.setter != null) {
+				arguments[0] = value;
+				this.setter.invoke(target, arguments);
+			} else {
+				this.field.set(target, value);
+			}
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Method invocation failed!", e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Method invocation failed!", e);
+		} finally {
+			arguments[0] = null;
+		}
+	}
+
+	/**
+	 * <p>Returns the value of the <code>int</code> field. The field without
+	 * the getter is read without boxing.</p>
+	 * 
+	 * @see #get(Object)
+	 */
+	public int getInt(Object target) throws RuntimeException {
+		try {
+			if(this.getter != null) {
+				return ((Number) this.getter.invoke(target, NO_ARGUMENTS)).intValue();
+			}
+			
+			return this.field.getInt(target);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Field access failed!", e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Method invocation failed!", e);
+		}
+	}
+
+	/**
+	 * <p>Sets the <code>int</code> field. The field without the setter is
+	 * written without boxing.</p>
+	 * 
+	 * @see #set(Object, Object, Object[])
+	 */
+	public void setInt(Object target, int value, Object[] arguments) throws RuntimeException {
+		if(this.setter != null) {
+			set(target, Integer.valueOf(value), arguments);
+			return;
+		}
+		
+		try {
+			this.field.setInt(target, value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Field access failed!", e);
+		}
+	}
+
+	/**
+	 * <p>Returns the value of the <code>long</code> field. The field without
+	 * the getter is read without boxing.</p>
+	 * 
+	 * @see #get(Object)
+	 */
+	public long getLong(Object target) throws RuntimeException {
+		try {
+			if(this.getter != null) {
+				return ((Number) this.getter.invoke(target, NO_ARGUMENTS)).longValue();
+			}
+			
+			return this.field.getLong(target);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Field access failed!", e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Method invocation failed!", e);
+		}
+	}
+
+	/**
+	 * <p>Sets the <code>long</code> field. The field without the setter is
+	 * written without boxing.</p>
+	 * 
+	 * @see #set(Object, Object, Object[])
+	 */
+	public void setLong(Object target, long value, Object[] arguments) throws RuntimeException {
+		if(this.setter != null) {
+			set(target, Long.valueOf(value), arguments);
+			return;
+		}
+		
+		try {
+			this.field.setLong(target, value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Field access failed!", e);
+		}
+	}
+
+	/**
+	 * <p>Returns the value of the <code>double</code> field. The field without
+	 * the getter is read without boxing.</p>
+	 * 
+	 * @see #get(Object)
+	 */
+	public double getDouble(Object target) throws RuntimeException {
+		try {
+			if(this.getter != null) {
+				return ((Number) this.getter.invoke(target, NO_ARGUMENTS)).doubleValue();
+			}
+			
+			return this.field.getDouble(target);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Field access failed!", e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Method invocation failed!", e);
+		}
+	}
+
+	/**
+	 * <p>Sets the <code>double</code> field. The field without the setter is
+	 * written without boxing.</p>
+	 * 
+	 * @see #set(Object, Object, Object[])
+	 */
+	public void setDouble(Object target, double value, Object[] arguments) throws RuntimeException {
+		if(this.setter != null) {
+			set(target, Double.valueOf(value), arguments);
+			return;
+		}
+		
+		try {
+			this.field.setDouble(target, value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Field access failed!", e);
+		}
+	}
+
+	/**
+	 * <p>Returns the value of the <code>boolean</code> field. The field without
+	 * the getter is read without boxing.</p>
+	 * 
+	 * @see #get(Object)
+	 */
+	public boolean getBoolean(Object target) throws RuntimeException {
+		try {
+			if(this.getter != null) {
+				return ((Boolean) this.getter.invoke(target, NO_ARGUMENTS)).booleanValue();
+			}
+			
+			return this.field.getBoolean(target);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Field access failed!", e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Method invocation failed!", e);
+		}
+	}
+
+	/**
+	 * <p>Sets the <code>boolean</code> field. The field without the setter is
+	 * written without boxing.</p>
+	 * 
+	 * @see #set(Object, Object, Object[])
+	 */
+	public void setBoolean(Object target, boolean value, Object[] arguments) throws RuntimeException {
+		if(this.setter != null) {
+			set(target, Boolean.valueOf(value), arguments);
+			return;
+		}
+		
+		try {
+			this.field.setBoolean(target, value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Field access failed!", e);
+		}
+	}
+
+	/**
+	 * <p>Returns the value of the <code>char</code> field. The field without
+	 * the getter is read without boxing.</p>
+	 * 
+	 * @see #get(Object)
+	 */
+	public char getChar(Object target) throws RuntimeException {
+		try {
+			if(this.getter != null) {
+				return ((Character) this.getter.invoke(target, NO_ARGUMENTS)).charValue();
+			}
+			
+			return this.field.getChar(target);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Field access failed!", e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Method invocation failed!", e);
+		}
+	}
+
+	/**
+	 * <p>Sets the <code>char</code> field. The field without the setter is
+	 * written without boxing.</p>
+	 * 
+	 * @see #set(Object, Object, Object[])
+	 */
+	public void setChar(Object target, char value, Object[] arguments) throws RuntimeException {
+		if(this.setter != null) {
+			set(target, Character.valueOf(value), arguments);
+			return;
+		}
+		
+		try {
+			this.field.setChar(target, value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Field access failed!", e);
+		}
+	}
+
+	/**
+	 * @return the getter method or <code>null</code> if no getter is
+	 * declared.
+	 */
+	private static Method findGetter(Field field) {
+		try {
+			return XmlUtils.createGetter(field);
+		} catch (IllegalStateException e) {
+			if(!boolean.class.equals(field.getType())) {
+				return null;
+			}
+		}
+		
+		String fieldName = field.getName();
+		String methodName = "is" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+		
+		try {
+			return field.getDeclaringClass().getMethod(methodName, new Class<?>[]{});
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the setter method or <code>null</code> if no setter is
+	 * declared.
+	 */
+	private static Method findSetter(Field field) {
+		try {
+			return XmlUtils.createSetter(field);
+		} catch (IllegalStateException e) {
+			return null;
+		}
+	}
+
+}
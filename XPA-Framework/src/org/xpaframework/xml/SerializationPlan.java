@@ -0,0 +1,231 @@
+package org.xpaframework.xml;
+
+import java.lang.reflect.Field;
+
+import org.xpaframework.ValueAdapter;
+
+/**
+ * <p>Compiled serialization of the element. The plan holds the resolved
+ * name, namespace and the ordered {@link Step}s of the element, so the
+ * {@link XmlSerializer} does not look up any meta-data, annotations or
+ * accessors for the serialized objects.</p>
+ * <p>The plans are created for all elements of the meta-data once by
+ * {@link MetaDataInitializer#getSerializationPlans()} and are not modified
+ * after their creation, so they are shared by the concurrent
+ * serializations.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see XmlSerializer
+ */
+public final class SerializationPlan {
+	
+	/**
+	 * Attribute of the element.
+	 */
+	protected static final int ATTRIBUTE = 0;
+	
+	/**
+	 * Field annotated by {@link org.xpaframework.xml.annotation.XmlValue}.
+	 */
+	protected static final int VALUE = 1;
+	
+	/**
+	 * Single child element.
+	 */
+	protected static final int ELEMENT = 2;
+	
+	/**
+	 * Repeated child elements held by the collection.
+	 */
+	protected static final int COLLECTION = 3;
+	
+	private ElementInfo elementInfo;
+	
+	/**
+	 * Type of the serialized objects, the primitive types are represented by
+	 * their wrapper class.
+	 */
+	private Class<?> type;
+	
+	/**
+	 * Adapter of the {@link #type} if the element is a simple type and the
+	 * adapter is registered.
+	 */
+	private ValueAdapter<?> adapter;
+	
+	private boolean simpleType;
+	
+	/**
+	 * The value of the <code>xsi:type</code> attribute of the inherited type
+	 * or <code>null</code> if the type has no ancestor.
+	 */
+	private String inheritedType;
+	
+	private Step[] steps = new Step[0];
+	
+	protected SerializationPlan(ElementInfo elementInfo, Class<?> type, ValueAdapter<?> adapter) {
+		this.elementInfo = elementInfo;
+		this.type = type;
+		this.adapter = adapter;
+		this.simpleType = XmlUtils.isSimpleType(elementInfo.getMappingClass(), true);
+		
+		if(!this.simpleType && XmlUtils.hasAncestor(elementInfo.getMappingClass())) {
+			this.inheritedType = XmlUtils.getElementType(elementInfo.getMappingClass());
+		}
+	}
+
+	protected String getName() {
+		return this.elementInfo.getName();
+	}
+
+	protected NamespaceInfo getNamespace() {
+		return this.elementInfo.getNamespace();
+	}
+
+	/**
+	 * @return the constants of the enumeration element or <code>null</code>
+	 * if the element is not an enumeration serialized by its table.
+	 */
+	protected EnumTable getEnumTable() {
+		return this.elementInfo.getEnumTable();
+	}
+
+	protected boolean isSimpleType() {
+		return simpleType;
+	}
+
+	/**
+	 * @return the adapter of the <code>valueType</code> or <code>null</code> if
+	 * the adapter must be resolved by the registry.
+	 */
+	protected ValueAdapter<?> getAdapter(Class<?> valueType) {
+		return valueType == this.type ? this.adapter : null;
+	}
+
+	protected String getInheritedType() {
+		return inheritedType;
+	}
+
+	protected Step[] getSteps() {
+		return steps;
+	}
+
+	protected void setSteps(Step[] steps) {
+		this.steps = steps;
+	}
+
+	@Override
+	public String toString() {
+		return "SerializationPlan[" + this.elementInfo + ", steps: " + this.steps.length + "]";
+	}
+
+	/**
+	 * <p>Serialization of one field of the element.</p>
+	 * 
+	 * @author Jan Janickovic
+	 */
+	protected static final class Step {
+		
+		private int kind;
+		
+		private Field field;
+		private PropertyAccessor accessor;
+		
+		/**
+		 * Name and namespace of the attribute, the primitive element or the
+		 * items of the collection.
+		 */
+		private String name;
+		private NamespaceInfo namespace;
+		
+		/**
+		 * Adapter of the field's type or <code>null</code> if the adapter
+		 * must be resolved by the registry.
+		 */
+		private ValueAdapter<?> adapter;
+		private EnumTable enumTable;
+		
+		/**
+		 * Plans of the child element's types. The plan is selected by the
+		 * class of the field's value.
+		 */
+		private Class<?>[] types = new Class<?>[0];
+		private SerializationPlan[] plans = new SerializationPlan[0];
+		
+		protected Step(int kind, Field field, PropertyAccessor accessor) {
+			this.kind = kind;
+			this.field = field;
+			this.accessor = accessor;
+		}
+		
+		protected int getKind() {
+			return kind;
+		}
+		
+		protected Field getField() {
+			return field;
+		}
+		
+		protected PropertyAccessor getAccessor() {
+			return accessor;
+		}
+		
+		protected boolean isPrimitive() {
+			return this.field.getType().isPrimitive();
+		}
+		
+		protected String getName() {
+			return name;
+		}
+		
+		protected NamespaceInfo getNamespace() {
+			return namespace;
+		}
+		
+		protected void setName(String name, NamespaceInfo namespace) {
+			this.name = name;
+			this.namespace = namespace;
+		}
+		
+		/**
+		 * @return the adapter of the <code>valueType</code> or
+		 * <code>null</code> if the adapter must be resolved by the registry.
+		 */
+		protected ValueAdapter<?> getAdapter(Class<?> valueType) {
+			return valueType == this.field.getType() || this.field.getType().isPrimitive() ?
+					this.adapter : null;
+		}
+		
+		protected EnumTable getEnumTable() {
+			return enumTable;
+		}
+		
+		protected void setAdapter(ValueAdapter<?> adapter, EnumTable enumTable) {
+			this.adapter = adapter;
+			this.enumTable = enumTable;
+		}
+		
+		/**
+		 * @return the plan of the child element of the <code>valueType</code>
+		 * or <code>null</code> if the type was not resolved by the plan
+		 * creation.
+		 */
+		protected SerializationPlan getPlan(Class<?> valueType) {
+			for(int i = 0; i < this.types.length; i++) {
+				if(this.types[i] == valueType) {
+					return this.plans[i];
+				}
+			}
+			
+			return null;
+		}
+		
+		protected void setPlans(Class<?>[] types, SerializationPlan[] plans) {
+			this.types = types;
+			this.plans = plans;
+		}
+	
+	}
+
+}
@@ -14,10 +14,19 @@ import javax.xml.datatype.Duration;
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
 
+import org.xpaframework.BooleanValueAdapter;
+import org.xpaframework.CharArrayValueAdapter;
+import org.xpaframework.CharValueAdapter;
+import org.xpaframework.DoubleValueAdapter;
+import org.xpaframework.IntValueAdapter;
+import org.xpaframework.LongValueAdapter;
+import org.xpaframework.PrintingValueAdapter;
 import org.xpaframework.ValueAdapter;
 import org.xpaframework.ValueAdapterRegistry;
 import org.xpaframework.ValueConversionException;
 import org.xpaframework.xml.annotation.XmlValueAdapter;
+import org.xpaframework.xml.util.CharParser;
+import org.xpaframework.xml.util.CharPrinter;
 
 
 
@@ -195,13 +204,18 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 	/**
 	 * <p>Type representing {@link BigDecimal} object.</p>
 	 */
-	protected final ValueAdapter<BigDecimal> TYPE_BIG_DECIMAL = new AbstractValueAdapter<BigDecimal>() {
+	protected final ValueAdapter<BigDecimal> TYPE_BIG_DECIMAL = new AbstractPrintingAdapter<BigDecimal>() {
 
 		@Override
 		public BigDecimal convertValue(String value) {
 			return new BigDecimal(value);
 		}
 
+		@Override
+		public int print(BigDecimal target, char[] buffer, int start) {
+			return CharPrinter.printBigDecimal(target, buffer, start);
+		}
+		
 		@Override
 		public Class<?> getType() {
 			return BigDecimal.class;
@@ -211,13 +225,18 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 	/**
 	 * <p>Type representing {@link BigInteger} object.</p>
 	 */
-	protected final ValueAdapter<BigInteger> TYPE_BIG_INTEGER = new AbstractValueAdapter<BigInteger>() {
+	protected final ValueAdapter<BigInteger> TYPE_BIG_INTEGER = new AbstractPrintingAdapter<BigInteger>() {
 
 		@Override
 		public BigInteger convertValue(String value) {
 			return new BigInteger(value);
 		}
 
+		@Override
+		public int print(BigInteger target, char[] buffer, int start) {
+			return CharPrinter.printBigInteger(target, buffer, start);
+		}
+		
 		@Override
 		public Class<?> getType() {
 			return BigInteger.class;
@@ -227,11 +246,26 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 	/**
 	 * <p>Type representing {@link Boolean} object.</p>
 	 */
-	protected final PrimitiveValueAdapter<Boolean> TYPE_BOOLEAN = new PrimitiveValueAdapter<Boolean>() {
+	protected final PrimitiveValueAdapter<Boolean> TYPE_BOOLEAN = new BooleanPrimitiveAdapter() {
 
 		@Override
 		public Boolean convertValue(String value) {
-			return Boolean.getBoolean(value);
+			return Boolean.parseBoolean(value) || "1".equals(value);
+		}
+		
+		@Override
+		public Boolean convertValue(char[] buffer, int start, int length) {
+			return parseBoolean(buffer, start, length);
+		}
+		
+		@Override
+		public boolean parseBoolean(char[] buffer, int start, int length) {
+			return CharParser.parseBoolean(buffer, start, length);
+		}
+		
+		@Override
+		public String printBoolean(boolean value) {
+			return Boolean.toString(value);
 		}
 		
 		@Override
@@ -309,7 +343,7 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 	/**
 	 * <p>Type representing {@link Character} object.</p>
 	 */
-	protected final PrimitiveValueAdapter<Character> TYPE_CHAR = new PrimitiveValueAdapter<Character>() {
+	protected final PrimitiveValueAdapter<Character> TYPE_CHAR = new CharPrimitiveAdapter() {
 
 		@Override
 		public Character convertValue(String value) throws ValueConversionException {
@@ -321,6 +355,26 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 			
 			return value.charAt(0);
 		}
+		
+		@Override
+		public Character convertValue(char[] buffer, int start, int length) throws ValueConversionException {
+			return parseChar(buffer, start, length);
+		}
+		
+		@Override
+		public char parseChar(char[] buffer, int start, int length) throws ValueConversionException {
+			if(length != 1) {
+				throw new ValueConversionException("Unable to convert char: " +
+						new String(buffer, start, length));
+			}
+			
+			return buffer[start];
+		}
+		
+		@Override
+		public String printChar(char value) {
+			return String.valueOf(value);
+		}
 
 		@Override
 		public String getTarget() {
@@ -341,12 +395,37 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 	/**
 	 * <p>Type representing {@link Double} object.</p>
 	 */
-	protected final PrimitiveValueAdapter<Double> TYPE_DOUBLE = new PrimitiveValueAdapter<Double>() {
+	protected final PrimitiveValueAdapter<Double> TYPE_DOUBLE = new DoublePrimitiveAdapter() {
 
 		@Override
 		public Double convertValue(String value) {
 			return Double.valueOf(value);
 		}
+		
+		@Override
+		public Double convertValue(char[] buffer, int start, int length) {
+			return parseDouble(buffer, start, length);
+		}
+		
+		@Override
+		public double parseDouble(char[] buffer, int start, int length) {
+			return CharParser.parseDouble(buffer, start, length);
+		}
+		
+		@Override
+		public String printDouble(double value) {
+			return Double.toString(value);
+		}
+		
+		@Override
+		public int printDouble(double value, char[] buffer, int start) {
+			return CharPrinter.printDouble(value, buffer, start);
+		}
+		
+		@Override
+		public int print(Double target, char[] buffer, int start) {
+			return CharPrinter.printDouble(target, buffer, start);
+		}
 
 		@Override
 		public String getTarget() {
@@ -414,7 +493,7 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 	 * <p>Type representing {@link XMLGregorianCalendar} object.</p>
 	 */
 	protected final ValueAdapter<XMLGregorianCalendar> TYPE_GREGORIAN_CALENDAR =
-			new AbstractValueAdapter<XMLGregorianCalendar>() {
+			new AbstractPrintingAdapter<XMLGregorianCalendar>() {
 
 		@Override
 		public XMLGregorianCalendar convertValue(String value) throws ValueConversionException {
@@ -425,6 +504,11 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 			}
 		}
 
+		@Override
+		public int print(XMLGregorianCalendar target, char[] buffer, int start) {
+			return CharPrinter.printDateTime(target, buffer, start);
+		}
+		
 		@Override
 		public Class<?> getType() {
 			return XMLGregorianCalendar.class;
@@ -435,13 +519,38 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 	/**
 	 * <p>Type representing {@link Integer} object.</p>
 	 */
-	protected final PrimitiveValueAdapter<Integer> TYPE_INT = new PrimitiveValueAdapter<Integer>() {
+	protected final PrimitiveValueAdapter<Integer> TYPE_INT = new IntPrimitiveAdapter() {
 
 		@Override
 		public Integer convertValue(String value) {
 			return Integer.valueOf(value);
 		}
+		
+		@Override
+		public Integer convertValue(char[] buffer, int start, int length) {
+			return parseInt(buffer, start, length);
+		}
+		
+		@Override
+		public int parseInt(char[] buffer, int start, int length) {
+			return CharParser.parseInt(buffer, start, length);
+		}
+		
+		@Override
+		public String printInt(int value) {
+			return Integer.toString(value);
+		}
 
+		@Override
+		public int printInt(int value, char[] buffer, int start) {
+			return CharPrinter.printInt(value, buffer, start);
+		}
+		
+		@Override
+		public int print(Integer target, char[] buffer, int start) {
+			return CharPrinter.printInt(target, buffer, start);
+		}
+		
 		@Override
 		public String getTarget() {
 			return "int";
@@ -461,13 +570,38 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 	/**
 	 * <p>Type representing {@link Long} object.</p>
 	 */
-	protected final PrimitiveValueAdapter<Long> TYPE_LONG = new PrimitiveValueAdapter<Long>() {
+	protected final PrimitiveValueAdapter<Long> TYPE_LONG = new LongPrimitiveAdapter() {
 
 		@Override
 		public Long convertValue(String value) {
 			return Long.valueOf(value);
 		}
+		
+		@Override
+		public Long convertValue(char[] buffer, int start, int length) {
+			return parseLong(buffer, start, length);
+		}
+		
+		@Override
+		public long parseLong(char[] buffer, int start, int length) {
+			return CharParser.parseLong(buffer, start, length);
+		}
+		
+		@Override
+		public String printLong(long value) {
+			return Long.toString(value);
+		}
 
+		@Override
+		public int printLong(long value, char[] buffer, int start) {
+			return CharPrinter.printLong(value, buffer, start);
+		}
+		
+		@Override
+		public int print(Long target, char[] buffer, int start) {
+			return CharPrinter.printLong(target, buffer, start);
+		}
+		
 		@Override
 		public String getTarget() {
 			return "long";
@@ -521,12 +655,17 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 	/**
 	 * <p>Type representing {@link Short} object.</p>
 	 */
-	protected final PrimitiveValueAdapter<Short> TYPE_SHORT = new PrimitiveValueAdapter<Short>() {
+	protected final PrimitiveValueAdapter<Short> TYPE_SHORT = new CharArrayPrimitiveAdapter<Short>() {
 
 		@Override
 		public Short convertValue(String value) {
 			return Short.valueOf(value);
 		}
+		
+		@Override
+		public Short convertValue(char[] buffer, int start, int length) {
+			return CharParser.parseShort(buffer, start, length);
+		}
 
 		@Override
 		public String getTarget() {
@@ -610,6 +749,21 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 		}
 	}
 	
+	/**
+	 * <p>Abstract value adapter printing the target object directly into the
+	 * character buffer of the serializer.</p>
+	 * 
+	 * @author Jan Janickovic
+	 * 
+	 * @param <T>
+	 * 
+	 * @see PrintingValueAdapter
+	 */
+	public abstract class AbstractPrintingAdapter<T> extends AbstractValueAdapter<T>
+			implements PrintingValueAdapter<T> {
+	
+	}
+
 	/**
 	 * <p>Abstract class representing primitive types. Supported primitive types
 	 * are show in table below.</p>
@@ -649,4 +803,79 @@ public class SimpleTypeRegistry extends ValueAdapterRegistry {
 
 	}
 
+	/**
+	 * <p>Primitive type adapter converting the values directly from the
+	 * character buffer of the parser.</p>
+	 * 
+	 * @param <T> - type representing primitive type.
+	 * 
+	 * @author Jan Janickovic
+	 * 
+	 * @see CharArrayValueAdapter
+	 */
+	public abstract class CharArrayPrimitiveAdapter<T> extends PrimitiveValueAdapter<T>
+			implements CharArrayValueAdapter<T> {
+	
+	}
+
+	/**
+	 * <p>Adapter of the <code>boolean</code> fields bound without boxing.</p>
+	 * 
+	 * @author Jan Janickovic
+	 * 
+	 * @see BooleanValueAdapter
+	 */
+	public abstract class BooleanPrimitiveAdapter extends CharArrayPrimitiveAdapter<Boolean>
+			implements BooleanValueAdapter<Boolean> {
+	
+	}
+
+	/**
+	 * <p>Adapter of the <code>char</code> fields bound without boxing.</p>
+	 * 
+	 * @author Jan Janickovic
+	 * 
+	 * @see CharValueAdapter
+	 */
+	public abstract class CharPrimitiveAdapter extends CharArrayPrimitiveAdapter<Character>
+			implements CharValueAdapter<Character> {
+	
+	}
+
+	/**
+	 * <p>Adapter of the <code>double</code> fields bound without boxing.</p>
+	 * 
+	 * @author Jan Janickovic
+	 * 
+	 * @see DoubleValueAdapter
+	 */
+	public abstract class DoublePrimitiveAdapter extends CharArrayPrimitiveAdapter<Double>
+			implements DoubleValueAdapter<Double>, PrintingValueAdapter<Double> {
+	
+	}
+
+	/**
+	 * <p>Adapter of the <code>int</code> fields bound without boxing.</p>
+	 * 
+	 * @author Jan Janickovic
+	 * 
+	 * @see IntValueAdapter
+	 */
+	public abstract class IntPrimitiveAdapter extends CharArrayPrimitiveAdapter<Integer>
+			implements IntValueAdapter<Integer>, PrintingValueAdapter<Integer> {
+	
+	}
+
+	/**
+	 * <p>Adapter of the <code>long</code> fields bound without boxing.</p>
+	 * 
+	 * @author Jan Janickovic
+	 * 
+	 * @see LongValueAdapter
+	 */
+	public abstract class LongPrimitiveAdapter extends CharArrayPrimitiveAdapter<Long>
+			implements LongValueAdapter<Long>, PrintingValueAdapter<Long> {
+	
+	}
+
 }
@@ -0,0 +1,690 @@
+package org.xpaframework.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Output backend encoding the document to UTF-8 directly into its byte
+ * buffer. The buffer is written to the output stream when it is full, so the
+ * stream receives the document in large blocks and needs no buffering.</p>
+ * <p>The writer created by the default constructor adapts the size of its
+ * buffer to the average size of the recent documents, so the writer reused
+ * for the small documents does not hold the large buffer and the large
+ * documents are written in blocks of {@link #DEFAULT_BUFFER_SIZE}.</p>
+ * <p>The element, attribute and prefix names are encoded once and written
+ * from the cached byte arrays. The namespace prefixes are declared the same
+ * way as by the platform {@link org.xmlpull.v1.XmlSerializer}, the prefixes of
+ * the undeclared namespaces are generated.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see OutputType#UTF8
+ */
+public class Utf8XmlWriter implements XmlOutput {
+	
+	public static final String ENCODING = "UTF-8";
+	
+	public static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+	
+	/**
+	 * The minimal size of the adaptive buffer.
+	 */
+	public static final int MIN_BUFFER_SIZE = 1024;
+	
+	/**
+	 * The maximal count of bytes written for one character, the escaped
+	 * characters included.
+	 */
+	private static final int MAX_CHAR_BYTES = 6;
+	
+	private static final byte[] EMPTY_TAG_END = {' ', '/', '>'};
+	private static final byte[] END_TAG_START = {'<', '/'};
+	private static final byte[] XMLNS = {' ', 'x', 'm', 'l', 'n', 's'};
+	
+	/**
+	 * The entry of the control characters not allowed by XML 1.0 in the
+	 * entity tables.
+	 */
+	private static final byte[] ILLEGAL = new byte[0];
+	
+	/**
+	 * The entity references of the escaped ASCII characters of the text and
+	 * of the attribute values.
+	 */
+	private static final byte[][] TEXT_ENTITIES = createEntities(false);
+	private static final byte[][] ATTRIBUTE_ENTITIES = createEntities(true);
+	
+	/**
+	 * Size of the {@link #chars} buffer of the escaped strings.
+	 */
+	private static final int CHAR_BUFFER_SIZE = 256;
+	
+	private OutputStream out;
+	
+	private byte[] buffer;
+	private int position;
+	
+	/**
+	 * The buffer of the characters of the escaped strings.
+	 */
+	private char[] chars = new char[CHAR_BUFFER_SIZE];
+	
+	/**
+	 * <code>true</code> if the buffer is sized by the {@link #averageSize}
+	 * of the documents.
+	 */
+	private boolean adaptive;
+	private int averageSize;
+	
+	/**
+	 * Count of the bytes of the current document written to the stream.
+	 */
+	private long written;
+	
+	/**
+	 * The encoded names and prefixes.
+	 */
+	private Map<String, byte[]> names = new HashMap<String, byte[]>();
+	
+	/**
+	 * The namespace bindings in the scope, the bindings from the
+	 * {@link #declaredCount} index are declared by the next started element.
+	 */
+	private String[] prefixes = new String[8];
+	private String[] namespaces = new String[8];
+	private int bindingCount;
+	private int declaredCount;
+	private int generatedCount;
+	
+	/**
+	 * The prefixes, names and the binding counts of the open elements.
+	 */
+	private String[] elementPrefixes = new String[16];
+	private String[] elementNames = new String[16];
+	private int[] elementBindings = new int[16];
+	private int depth;
+	
+	/**
+	 * <code>true</code> if the start tag of the last started element is not
+	 * closed yet.
+	 */
+	private boolean startTagOpen;
+	
+	public Utf8XmlWriter() {
+		this(DEFAULT_BUFFER_SIZE);
+		this.adaptive = true;
+		this.averageSize = DEFAULT_BUFFER_SIZE;
+	}
+
+	/**
+	 * @param bufferSize - the size of the output buffer.
+	 */
+	public Utf8XmlWriter(int bufferSize) {
+		this.buffer = new byte[Math.max(bufferSize, 64)];
+	}
+
+	/**
+	 * @throws UnsupportedEncodingException if the <code>encoding</code> is not
+	 * UTF-8.
+	 */
+	@Override
+	public void setOutput(OutputStream os, String encoding) throws IOException {
+		if(encoding != null && !ENCODING.equalsIgnoreCase(encoding) && !"UTF8".equalsIgnoreCase(encoding)) {
+			throw new UnsupportedEncodingException("Unsupported encoding: " + encoding);
+		}
+		
+		if(this.adaptive) {
+			adaptBuffer();
+		}
+		
+		this.out = os;
+		this.position = 0;
+		this.written = 0;
+		this.bindingCount = 0;
+		this.declaredCount = 0;
+		this.generatedCount = 0;
+		this.depth = 0;
+		this.startTagOpen = false;
+		
+		for(int i = 0; i < this.elementNames.length; i++) {
+			this.elementPrefixes[i] = null;
+			this.elementNames[i] = null;
+		}
+	}
+
+	/**
+	 * <p>Sets the output stream of the document fragment written within the
+	 * current element of the <code>parent</code> writer. The namespace
+	 * bindings in the scope of the parent are inherited, so the fragment
+	 * declares the same namespaces as the parent would.</p>
+	 * 
+	 * @param os - the target stream of the fragment.
+	 * @param parent - the writer of the document containing the fragment.
+	 * 
+	 * @see #append(byte[], int, int)
+	 */
+	protected void setFragmentOutput(OutputStream os, Utf8XmlWriter parent) throws IOException {
+		setOutput(os, null);
+		
+		for(int i = 0; i < parent.bindingCount; i++) {
+			addBinding(parent.prefixes[i], parent.namespaces[i]);
+		}
+		
+		this.declaredCount = this.bindingCount;
+		this.generatedCount = parent.generatedCount;
+	}
+
+	/**
+	 * <p>Writes the encoded fragment as the content of the current element.
+	 * The fragment must be written by the writer set up by
+	 * {@link #setFragmentOutput(OutputStream, Utf8XmlWriter)}.</p>
+	 */
+	protected void append(byte[] bytes, int offset, int length) throws IOException {
+		closeStartTag();
+		
+		if(length > this.buffer.length - this.position) {
+			flushBuffer();
+			
+			if(length > this.buffer.length) {
+				this.out.write(bytes, offset, length);
+				this.written += length;
+				return;
+			}
+		}
+		
+		System.arraycopy(bytes, offset, this.buffer, this.position, length);
+		this.position += length;
+	}
+
+	@Override
+	public void startDocument(String encoding, Boolean standalone) throws IOException {
+		writeAscii("<?xml version='1.0'");
+		
+		if(encoding != null) {
+			writeAscii(" encoding='");
+			writeAscii(encoding);
+			write((byte) '\'');
+		}
+		
+		if(standalone != null) {
+			writeAscii(standalone ? " standalone='yes'" : " standalone='no'");
+		}
+		
+		writeAscii(" ?>");
+	}
+
+	@Override
+	public void setPrefix(String prefix, String namespace) throws IOException {
+		if(prefix == null) {
+			prefix = "";
+		}
+		
+		if(namespace == null) {
+			namespace = "";
+		}
+		
+		String bound = getNamespace(prefix);
+		
+		if(namespace.equals(bound) || (bound == null && namespace.isEmpty())) {
+			return;
+		}
+		
+		addBinding(prefix, namespace);
+	}
+
+	@Override
+	public void startTag(String namespace, String name) throws IOException {
+		closeStartTag();
+		int mark = this.declaredCount;
+		String prefix = null;
+		
+		if(namespace != null && !namespace.isEmpty()) {
+			prefix = getPrefix(namespace, false);
+			
+			if(prefix == null) {
+				prefix = generatePrefix();
+				addBinding(prefix, namespace);
+			}
+		}
+		
+		write((byte) '<');
+		writeName(prefix, name);
+		
+		for(int i = this.declaredCount; i < this.bindingCount; i++) {
+			writeDeclaration(this.prefixes[i], this.namespaces[i]);
+		}
+		
+		this.declaredCount = this.bindingCount;
+		pushElement(prefix, name, mark);
+		this.startTagOpen = true;
+	}
+
+	@Override
+	public void attribute(String namespace, String name, String value) throws IOException {
+		startAttribute(namespace, name);
+		writeEscaped(value, true);
+		write((byte) '"');
+	}
+
+	@Override
+	public void attribute(String namespace, String name, char[] buffer, int start, int length)
+			throws IOException {
+		
+		startAttribute(namespace, name);
+		writeEscaped(buffer, start, start + length, true);
+		write((byte) '"');
+	}
+
+	@Override
+	public void text(String text) throws IOException {
+		closeStartTag();
+		writeEscaped(text, false);
+	}
+
+	@Override
+	public void text(char[] buffer, int start, int length) throws IOException {
+		closeStartTag();
+		writeEscaped(buffer, start, start + length, false);
+	}
+
+	/**
+	 * Writes the name of the attribute and the opening quote of its value.
+	 */
+	private void startAttribute(String namespace, String name) throws IOException {
+		if(!this.startTagOpen) {
+			throw new IllegalStateException("Attribute " + name + " written outside of the start tag!");
+		}
+		
+		String prefix = null;
+		
+		if(namespace != null && !namespace.isEmpty()) {
+			//the default namespace does not apply to the attributes
+			prefix = getPrefix(namespace, true);
+			
+			if(prefix == null) {
+				prefix = generatePrefix();
+				addBinding(prefix, namespace);
+				writeDeclaration(prefix, namespace);
+				this.declaredCount = this.bindingCount;
+			}
+		}
+		
+		write((byte) ' ');
+		writeName(prefix, name);
+		write((byte) '=');
+		write((byte) '"');
+	}
+
+	@Override
+	public void endTag(String namespace, String name) throws IOException {
+		if(this.depth == 0) {
+			throw new IllegalStateException("No element to end: " + name);
+		}
+		
+		this.depth--;
+		
+		if(this.startTagOpen) {
+			write(EMPTY_TAG_END);
+			this.startTagOpen = false;
+		} else {
+			write(END_TAG_START);
+			writeName(this.elementPrefixes[this.depth], this.elementNames[this.depth]);
+			write((byte) '>');
+		}
+		
+		this.bindingCount = this.elementBindings[this.depth];
+		this.declaredCount = this.bindingCount;
+	}
+
+	@Override
+	public void endDocument() throws IOException {
+		while(this.depth > 0) {
+			endTag(null, null);
+		}
+		
+		flush();
+		
+		//moving average of the document sizes weighting the last document by 1/4
+		int size = (int) Math.min(this.written, Integer.MAX_VALUE);
+		this.averageSize += (size - this.averageSize) / 4;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		closeStartTag();
+		flushBuffer();
+		this.out.flush();
+	}
+
+	/**
+	 * Resizes the buffer to the power of two holding the average document,
+	 * limited by {@link #MIN_BUFFER_SIZE} and {@link #DEFAULT_BUFFER_SIZE}.
+	 */
+	private void adaptBuffer() {
+		int size = MIN_BUFFER_SIZE;
+		
+		while(size < this.averageSize && size < DEFAULT_BUFFER_SIZE) {
+			size <<= 1;
+		}
+		
+		if(size != this.buffer.length) {
+			this.buffer = new byte[size];
+		}
+	}
+
+	private void closeStartTag() throws IOException {
+		if(this.startTagOpen) {
+			write((byte) '>');
+			this.startTagOpen = false;
+		}
+	}
+
+	private void pushElement(String prefix, String name, int bindings) {
+		if(this.depth == this.elementNames.length) {
+			int length = this.depth * 2;
+			String[] elementPrefixes = new String[length];
+			String[] elementNames = new String[length];
+			int[] elementBindings = new int[length];
+			System.arraycopy(this.elementPrefixes, 0, elementPrefixes, 0, this.depth);
+			System.arraycopy(this.elementNames, 0, elementNames, 0, this.depth);
+			System.arraycopy(this.elementBindings, 0, elementBindings, 0, this.depth);
+			this.elementPrefixes = elementPrefixes;
+			this.elementNames = elementNames;
+			this.elementBindings = elementBindings;
+		}
+		
+		this.elementPrefixes[this.depth] = prefix;
+		this.elementNames[this.depth] = name;
+		this.elementBindings[this.depth] = bindings;
+		this.depth++;
+	}
+
+	private void addBinding(String prefix, String namespace) {
+		if(this.bindingCount == this.prefixes.length) {
+			String[] prefixes = new String[this.bindingCount * 2];
+			String[] namespaces = new String[this.bindingCount * 2];
+			System.arraycopy(this.prefixes, 0, prefixes, 0, this.bindingCount);
+			System.arraycopy(this.namespaces, 0, namespaces, 0, this.bindingCount);
+			this.prefixes = prefixes;
+			this.namespaces = namespaces;
+		}
+		
+		this.prefixes[this.bindingCount] = prefix;
+		this.namespaces[this.bindingCount] = namespace;
+		this.bindingCount++;
+	}
+
+	/**
+	 * @return the namespace bound to the <code>prefix</code> in the scope or
+	 * <code>null</code> if the prefix is not bound.
+	 */
+	private String getNamespace(String prefix) {
+		for(int i = this.bindingCount - 1; i >= 0; i--) {
+			if(this.prefixes[i].equals(prefix)) {
+				return this.namespaces[i];
+			}
+		}
+		
+		return null;
+	}
+
+	/**
+	 * @return the prefix bound to the <code>namespace</code> in the scope or
+	 * <code>null</code> if there is no such prefix.
+	 */
+	private String getPrefix(String namespace, boolean attribute) {
+		for(int i = this.bindingCount - 1; i >= 0; i--) {
+			String prefix = this.prefixes[i];
+			
+			if(this.namespaces[i].equals(namespace) && !(attribute && prefix.isEmpty())
+					&& namespace.equals(getNamespace(prefix))) {
+				
+				return prefix;
+			}
+		}
+		
+		return null;
+	}
+
+	private String generatePrefix() {
+		String prefix;
+		
+		do {
+			prefix = "n" + this.generatedCount++;
+		} while(getNamespace(prefix) != null);
+		
+		return prefix;
+	}
+
+	private void writeDeclaration(String prefix, String namespace) throws IOException {
+		write(XMLNS);
+		
+		if(!prefix.isEmpty()) {
+			write((byte) ':');
+			write(encode(prefix));
+		}
+		
+		write((byte) '=');
+		write((byte) '"');
+		writeEscaped(namespace, true);
+		write((byte) '"');
+	}
+
+	private void writeName(String prefix, String name) throws IOException {
+		if(prefix != null && !prefix.isEmpty()) {
+			write(encode(prefix));
+			write((byte) ':');
+		}
+		
+		write(encode(name));
+	}
+
+	/**
+	 * @return the UTF-8 bytes of the <code>name</code>, the names are encoded
+	 * once.
+	 */
+	private byte[] encode(String name) throws UnsupportedEncodingException {
+		byte[] bytes = this.names.get(name);
+		
+		if(bytes == null) {
+			bytes = name.getBytes(ENCODING);
+			this.names.put(name, bytes);
+		}
+		
+		return bytes;
+	}
+
+	private void writeAscii(String value) throws IOException {
+		int length = value.length();
+		
+		for(int i = 0; i < length; i++) {
+			write((byte) value.charAt(i));
+		}
+	}
+
+	/**
+	 * Writes the <code>value</code> encoded to UTF-8. The markup characters
+	 * and the carriage return are replaced by the entity references, the
+	 * attribute values escape also the quotes and the whitespace characters
+	 * normalized by the parsers.
+	 * The string is copied to the {@link #chars} buffer by blocks and
+	 * escaped from there.
+	 */
+	private void writeEscaped(String value, boolean attribute) throws IOException {
+		int length = value.length();
+		int offset = 0;
+		
+		while(offset < length) {
+			int count = Math.min(length - offset, this.chars.length);
+			
+			//the surrogate pair is not split by the blocks
+			if(offset + count < length && Character.isHighSurrogate(value.charAt(offset + count - 1))) {
+				count--;
+			}
+			
+			value.getChars(offset, offset + count, this.chars, 0);
+			writeEscaped(this.chars, 0, count, attribute);
+			offset += count;
+		}
+	}
+
+	/**
+	 * Writes the characters from <code>start</code> to <code>end</code> of
+	 * the <code>chars</code>. The runs of the characters not escaped by the
+	 * {@link #TEXT_ENTITIES} or {@link #ATTRIBUTE_ENTITIES} table are copied
+	 * by the tight loop, the escaped and the non-ASCII characters are written
+	 * one by one.
+	 * 
+	 * @throws IllegalArgumentException if the characters contain the
+	 * character not allowed by XML 1.0 or the unpaired surrogate, as by the
+	 * platform {@link org.xmlpull.v1.XmlSerializer}.
+	 * 
+	 * @see #writeEscaped(String, boolean)
+	 */
+	private void writeEscaped(char[] chars, int start, int end, boolean attribute)
+			throws IOException, IllegalArgumentException {
+		
+		byte[][] entities = attribute ? ATTRIBUTE_ENTITIES : TEXT_ENTITIES;
+		byte[] buffer = this.buffer;
+		int position = this.position;
+		int limit = buffer.length - MAX_CHAR_BYTES;
+		int i = start;
+		
+		while(i < end) {
+			//the run of the safe characters, limited by the free space of the buffer
+			int runEnd = Math.min(end, i + buffer.length - position);
+			char c;
+			
+			while(i < runEnd && (c = chars[i]) < 0x80 && entities[c] == null) {
+				buffer[position++] = (byte) c;
+				i++;
+			}
+			
+			if(i == end) {
+				break;
+			}
+			
+			if(position > limit) {
+				this.position = position;
+				flushBuffer();
+				position = this.position;
+			}
+			
+			c = chars[i++];
+			
+			if(c < 0x80) {
+				byte[] entity = entities[c];
+				
+				if(entity == null) {
+					buffer[position++] = (byte) c;
+				} else if(entity == ILLEGAL) {
+					this.position = position;
+					throw illegalCharacter(c);
+				} else {
+					System.arraycopy(entity, 0, buffer, position, entity.length);
+					position += entity.length;
+				}
+			} else if(c < 0x800) {
+				buffer[position++] = (byte) (0xC0 | (c >> 6));
+				buffer[position++] = (byte) (0x80 | (c & 0x3F));
+			} else if(Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(chars[i])) {
+				int codePoint = Character.toCodePoint(c, chars[i++]);
+				buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+				buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else if(c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				this.position = position;
+				throw new IllegalArgumentException("Unpaired surrogate (U+" + Integer.toHexString(c) + ")");
+			} else if(c >= 0xFFFE) {
+				this.position = position;
+				throw illegalCharacter(c);
+			} else {
+				buffer[position++] = (byte) (0xE0 | (c >> 12));
+				buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buffer[position++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		
+		this.position = position;
+	}
+
+	private static IllegalArgumentException illegalCharacter(char c) {
+		return new IllegalArgumentException("Illegal character (U+" + Integer.toHexString(c) + ")");
+	}
+
+	/**
+	 * @return the table of the ASCII characters replaced by the entity
+	 * references. The characters not escaped have <code>null</code>
+	 * entries, the control characters not allowed by XML 1.0 have the
+	 * {@link #ILLEGAL} entries. The carriage return is escaped also in the
+	 * text, so it is not normalized to the line feed by the parsers.
+	 */
+	private static byte[][] createEntities(boolean attribute) {
+		byte[][] entities = new byte[0x80][];
+		
+		for(int c = 0; c < 0x20; c++) {
+			if(c != '\t' && c != '\n' && c != '\r') {
+				entities[c] = ILLEGAL;
+			}
+		}
+		
+		entities['&'] = toAscii("&amp;");
+		entities['<'] = toAscii("&lt;");
+		entities['>'] = toAscii("&gt;");
+		entities['\r'] = toAscii("&#13;");
+		
+		if(attribute) {
+			entities['"'] = toAscii("&quot;");
+			entities['\n'] = toAscii("&#10;");
+			entities['\t'] = toAscii("&#9;");
+		}
+		
+		return entities;
+	}
+
+	private static byte[] toAscii(String value) {
+		byte[] bytes = new byte[value.length()];
+		
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) value.charAt(i);
+		}
+		
+		return bytes;
+	}
+
+	private void write(byte b) throws IOException {
+		if(this.position == this.buffer.length) {
+			flushBuffer();
+		}
+		
+		this.buffer[this.position++] = b;
+	}
+
+	private void write(byte[] bytes) throws IOException {
+		if(bytes.length > this.buffer.length - this.position) {
+			flushBuffer();
+			
+			if(bytes.length > this.buffer.length) {
+				this.out.write(bytes);
+				this.written += bytes.length;
+				return;
+			}
+		}
+		
+		System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+		this.position += bytes.length;
+	}
+
+	private void flushBuffer() throws IOException {
+		if(this.position > 0) {
+			this.out.write(this.buffer, 0, this.position);
+			this.written += this.position;
+			this.position = 0;
+		}
+	}
+
+}
@@ -0,0 +1,845 @@
+package org.xpaframework.xml;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+
+import org.xml.sax.Attributes;
+import org.xpaframework.BooleanValueAdapter;
+import org.xpaframework.CharArrayValueAdapter;
+import org.xpaframework.CharValueAdapter;
+import org.xpaframework.DeserializationException;
+import org.xpaframework.DoubleValueAdapter;
+import org.xpaframework.IntValueAdapter;
+import org.xpaframework.LongValueAdapter;
+import org.xpaframework.ValueAdapter;
+import org.xpaframework.ValueAdapterRegistry;
+import org.xpaframework.ValueConversionException;
+import org.xpaframework.xml.util.CharParser;
+import org.xpaframework.xml.util.Logger;
+import org.xpaframework.xml.util.Logger.Level;
+import org.xpaframework.xml.util.StringPool;
+
+
+/**
+ * <p>Class binding the XML document events to the objects described by the
+ * meta-data of the {@link MetaDataInitializer}. The binder is independent
+ * from the parsing engine, the events are delivered by the engine
+ * implementation (e.g. {@link XmlParser} for SAX or
+ * {@link XmlPullParserHandler} for XML pull parsing).</p>
+ * <p>The event order must follow the document structure:
+ * <ol>
+ * <li>{@link #startDocument()}</li>
+ * <li>{@link #startElement(String, String, Attributes)},
+ * {@link #characters(char[], int, int)} and {@link #endElement()} for
+ * each mapped element</li>
+ * <li>{@link #endDocument()}</li>
+ * </ol>
+ * </p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <T> - type of the root element.
+ * 
+ * @see XmlParser
+ * @see XmlPullParserHandler
+ */
+public class XmlBinder<T extends Object> {
+	
+	private final Logger logger = Logger.getLogger(getClass());
+	
+	private MetaDataInitializer metaDataInitializer;
+	private ElementSymbolTable symbolTable;
+	
+	/**
+	 * The pool of the repeated values or <code>null</code> if the pooling is
+	 * disabled.
+	 */
+	private StringPool stringPool;
+	
+	private PrimitiveTypeInitializer primitiveTypeInitializer;
+	private ValueAdapterRegistry adapterRegistry;
+	
+	/**
+	 * Parse state recycled by the documents parsed on the same thread. The
+	 * state is taken by {@link #startDocument()} and returned by
+	 * {@link #endDocument()}, so the nested parsing on the same thread gets
+	 * its own state and the state of the failed parsing is dropped.
+	 */
+	private static final ThreadLocal<ParseState> PARSE_STATES = new ThreadLocal<ParseState>();
+	
+	/**
+	 * Maximal length of the text and attribute buffers kept by the
+	 * {@link #PARSE_STATES}. The buffers grown by the longer values are
+	 * dropped, so each thread does not keep the largest buffer it has ever
+	 * used.
+	 */
+	private static final int MAX_KEPT_BUFFER_SIZE = 8 * 1024;
+	
+	/**
+	 * Frames of the open elements, the frames above the {@link #depth} are
+	 * recycled by the next started elements.
+	 */
+	private ObjectInfo[] frames;
+	private int depth;
+	private T value;
+	
+	/**
+	 * Text of all open elements. The text of each element starts at the
+	 * {@link ObjectInfo#getTextStart()} index and is discarded when the
+	 * element is finished, so the buffer is reused for the whole document.
+	 */
+	private char[] textBuffer;
+	private int textLength;
+	
+	/**
+	 * Buffer of the attribute value converted by the primitive-specialized
+	 * adapter.
+	 */
+	private char[] attributeBuffer;
+	
+	/**
+	 * Argument array of the setter invocations, the binder is used by one
+	 * thread only.
+	 * 
+	 * @see PropertyAccessor#set(Object, Object, Object[])
+	 */
+	private final Object[] arguments = new Object[1];
+	
+	/**
+	 * Path of the element names (starting with the root element) of the
+	 * items released by {@link #takeItem()} instead of injecting them
+	 * into their parent objects.
+	 */
+	private String[] itemPath;
+	private Object item;
+	private boolean itemAvailable;
+	
+	/**
+	 * Projection of the bound elements or <code>null</code> if whole
+	 * document is bound.
+	 */
+	private Projection projection;
+	
+	public void setPrimitiveTypeInitializer(PrimitiveTypeInitializer initializer) {
+		this.primitiveTypeInitializer = initializer;
+	}
+
+	public XmlBinder(MetaDataInitializer metaDataInitializer, ValueAdapterRegistry adapterRegistry) {
+		this.metaDataInitializer = metaDataInitializer;
+		this.adapterRegistry = adapterRegistry;
+	}
+
+	public T getValue() throws IllegalStateException {
+		return this.value;
+	}
+
+	/**
+	 * <p>Sets the path of the repeated elements that are released one by one
+	 * instead of being injected into their parent object. Released items are
+	 * retrieved by {@link #takeItem()} method.</p>
+	 * 
+	 * @param itemPath - local names of the elements starting with the root
+	 * element, e.g. <code>{"orders", "order"}</code>. The <code>null</code>
+	 * value disables the releasing of the items.
+	 */
+	public void setItemPath(String[] itemPath) {
+		this.itemPath = itemPath;
+	}
+
+	/**
+	 * <p>Sets the projection of the bound elements. The elements out of the
+	 * projection are reported as not mapped by
+	 * {@link #startElement(String, String, Attributes)}, so they are skipped
+	 * by the parsing engine.</p>
+	 * 
+	 * @param projection - the projection or <code>null</code> to bind whole
+	 * document.
+	 */
+	public void setProjection(Projection projection) {
+		this.projection = projection;
+	}
+
+	/**
+	 * @return <code>true</code> if the item matching the item path has been
+	 * completed and not yet taken by {@link #takeItem()}.
+	 * 
+	 * @see #setItemPath(String[])
+	 */
+	public boolean hasItem() {
+		return this.itemAvailable;
+	}
+
+	/**
+	 * <p>Returns the last completed item and releases the binder's reference
+	 * to it.</p>
+	 * 
+	 * @return the completed item.
+	 * 
+	 * @throws IllegalStateException if no item is available.
+	 * 
+	 * @see #hasItem()
+	 */
+	public Object takeItem() throws IllegalStateException {
+		if(!this.itemAvailable) {
+			throw new IllegalStateException("No item available!");
+		}
+		
+		Object result = this.item;
+		this.item = null;
+		this.itemAvailable = false;
+		return result;
+	}
+
+	/**
+	 * <p>Prepares the binder for the new document. The meta-data are
+	 * attached (the method waits for the meta-data creation thread if
+	 * necessary).</p>
+	 */
+	public void startDocument() {
+		this.logger.v("startDocument()");
+		
+		try {
+			this.symbolTable = metaDataInitializer.getParsingSymbols();
+			this.stringPool = metaDataInitializer.getStringPool();
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Metadata processing failure!", e);
+		}
+		
+		ParseState state = PARSE_STATES.get();
+		
+		if(state == null) {
+			state = new ParseState();
+		} else {
+			PARSE_STATES.set(null);
+		}
+		
+		this.frames = state.frames;
+		this.textBuffer = state.textBuffer;
+		this.attributeBuffer = state.attributeBuffer;
+		this.depth = 0;
+		this.value = null;
+		this.textLength = 0;
+		this.item = null;
+		this.itemAvailable = false;
+	}
+
+	/**
+	 * <p>Creates the object for the started element and binds its
+	 * attributes.</p>
+	 * 
+	 * @param uri - the namespace of the element.
+	 * @param localName - the local name of the element.
+	 * @param attributes - the element's attributes.
+	 * 
+	 * @return <code>true</code> if the element is mapped and the object was
+	 * created, <code>false</code> if no meta-data exist for the element or the
+	 * element is out of the projection. For the unmapped elements, the engine
+	 * must skip whole subtree of the element without calling
+	 * {@link #endElement()}.
+	 * 
+	 * @throws DeserializationException if any of the attribute values can not
+	 * be bound.
+	 */
+	public boolean startElement(String uri, String localName, Attributes attributes)
+			throws DeserializationException {
+		
+		if(this.logger.isLoggable(Level.VERBOSE)) {
+			this.logger.v("startElement() - name: " + localName);
+		}
+		
+		Projection.Node projectionNode = null;
+		
+		if(this.projection != null) {
+			Projection.Node parentNode = this.depth == 0 ? this.projection.getDocumentNode() :
+				peek().getProjectionNode();
+			
+			//the descendants of the completely bound element have no projection node
+			if(parentNode != null) {
+				projectionNode = parentNode.getChild(localName);
+				
+				if(projectionNode == null) {
+					return false;
+				} else if(projectionNode.isComplete()) {
+					projectionNode = null;
+				}
+			}
+		}
+		
+		ElementInfo elementInfo = getElementInfo(localName, uri, attributes);
+		
+		if(elementInfo == null) {
+			return false;
+		}
+		
+		boolean onItemPath = isOnItemPath(localName);
+		ObjectInfo element = createObject(elementInfo);
+		element.setOnItemPath(onItemPath);
+		element.setProjectionNode(projectionNode);
+		
+		//if there are no attributes, the element is (or should be) represented by the String object.
+		if(!elementInfo.getAttributeInformations().isEmpty()) {
+			bindAttributes(element.getObject(), attributes, elementInfo, projectionNode);
+		}
+		
+		return true;
+	}
+
+	/**
+	 * <p>Finishes the element started by the last mapped
+	 * {@link #startElement(String, String, Attributes)} call. The element value
+	 * is converted and the object is injected into its parent object.</p>
+	 * 
+	 * @throws DeserializationException if the element value can not be
+	 * converted.
+	 */
+	@SuppressWarnings("unchecked")
+	public void endElement() throws DeserializationException {
+		//the popped frame is not recycled until the next started element
+		ObjectInfo objectInfo = this.frames[--this.depth];
+		ElementInfo elementInfo = objectInfo.getElementInfo();
+		
+		if(this.logger.isLoggable(Level.VERBOSE)) {
+			this.logger.v("endElement() - name: " + elementInfo.getName());
+		}
+		
+		if(objectInfo.hasValue() && elementInfo.getMappingClass().isPrimitive()
+				&& injectPrimitive(objectInfo)) {
+			
+			this.textLength = objectInfo.getTextStart();
+			return;
+		}
+		
+		if(objectInfo.hasValue()) {
+			try {
+				Class<?> binding = elementInfo.getMappingClass();
+				
+				//the enumerations with their own adapter have no enumeration table
+				if(XmlUtils.isSimpleType(binding, false) || (binding.isEnum() && elementInfo.getEnumTable() == null)) {
+					ValueAdapter<?> adapter = this.adapterRegistry.getAdapter(binding);
+					Object value = convertText(adapter, objectInfo, isPooled(objectInfo));
+					objectInfo.setObject(value);
+				} else if(binding.isEnum()) {
+					int start = objectInfo.getTextStart();
+					Object value = elementInfo.getEnumTable().get(this.textBuffer, start, this.textLength - start);
+					objectInfo.setObject(value);
+				} else {//default implementation of XmlValue annotation
+					Field valueField = elementInfo.getValueField();
+					PropertyAccessor accessor = this.metaDataInitializer.getAccessor(valueField);
+					ValueAdapter<?> adapter = this.adapterRegistry.getAdapter(valueField.getType());
+					int start = objectInfo.getTextStart();
+					
+					if(!setPrimitive(accessor, adapter, objectInfo.getObject(), this.textBuffer, start,
+							this.textLength - start)) {
+						
+						accessor.set(objectInfo.getObject(), convertText(adapter, objectInfo,
+								elementInfo.isValuePooled()), this.arguments);
+					}
+				}
+			
+			} catch (ValueConversionException e) {
+				throw new DeserializationException("Value conversion error!", e);
+			}
+		}
+		
+		//the element's text is not needed anymore
+		this.textLength = objectInfo.getTextStart();
+		
+		if(objectInfo.isOnItemPath() && this.depth == this.itemPath.length - 1) {
+			this.item = objectInfo.getObject();
+			this.itemAvailable = true;
+			return;
+		}
+		
+		if(this.depth == 0) {//reached the root element
+			this.value = (T) objectInfo.getObject();
+			return;
+		}
+		
+		ObjectInfo parentObjectInfo = peek();
+		InjectionSlot slot = getInjectionSlot(parentObjectInfo, elementInfo);
+		
+		if(slot.isList()) {
+			parentObjectInfo.getList(slot).add(objectInfo.getObject());
+		} else {
+			slot.getAccessor().set(parentObjectInfo.getObject(), objectInfo.getObject(), this.arguments);
+		}
+	}
+
+	/**
+	 * <p>Finishes the document and returns the parse state for the next
+	 * document parsed on the current thread.</p>
+	 */
+	public void endDocument() {
+		if(this.logger.isLoggable(Level.VERBOSE)) {
+			this.logger.v("endDocument() - object:" + this.value);
+		}
+		
+		if(this.frames == null) {
+			return;
+		}
+		
+		//the recycled frames must not keep the objects of the document
+		for(int i = 0; i < this.frames.length && this.frames[i] != null; i++) {
+			this.frames[i].clear();
+		}
+		
+		ParseState state = new ParseState(this.frames, keptBuffer(this.textBuffer, ParseState.TEXT_BUFFER_SIZE),
+				keptBuffer(this.attributeBuffer, ParseState.ATTRIBUTE_BUFFER_SIZE));
+		this.frames = null;
+		PARSE_STATES.set(state);
+	}
+
+	/**
+	 * <p>Appends the text content to the currently processed element. The
+	 * text of the partially projected elements and the whitespace-only chunks
+	 * preceding the element's text are ignored, the whitespace-only chunks
+	 * following it (e.g. the character references of the carriage returns)
+	 * are kept. The characters are copied to the reused text buffer, no
+	 * {@link String} is created.</p>
+	 */
+	public void characters(char[] ch, int start, int length) {
+		if(this.depth == 0 || peek().getProjectionNode() != null
+				|| (!peek().hasValue() && CharParser.isWhitespace(ch, start, length))) {
+			
+			return;
+		}
+		
+		if(this.textLength + length > this.textBuffer.length) {
+			char[] buffer = new char[Math.max(this.textBuffer.length * 2, this.textLength + length)];
+			System.arraycopy(this.textBuffer, 0, buffer, 0, this.textLength);
+			this.textBuffer = buffer;
+		}
+		
+		System.arraycopy(ch, start, this.textBuffer, this.textLength, length);
+		this.textLength += length;
+		peek().setHasValue(true);
+	}
+
+	/**
+	 * Determines if the element with <code>localName</code> started at
+	 * the current depth lies on the {@link #itemPath}.
+	 */
+	private boolean isOnItemPath(String localName) {
+		if(this.itemPath == null || this.depth >= this.itemPath.length) {
+			return false;
+		} else if(this.depth > 0 && !peek().isOnItemPath()) {
+			return false;
+		}
+		
+		return this.itemPath[this.depth].equals(localName);
+	}
+
+	/**
+	 * Injects the value of the element mapped to the primitive field into its
+	 * parent object without the string conversion.
+	 * 
+	 * @return <code>false</code> if the element must be injected by the
+	 * generic way.
+	 */
+	private boolean injectPrimitive(ObjectInfo objectInfo) throws DeserializationException {
+		if(this.depth == 0 || objectInfo.isOnItemPath()) {
+			return false;
+		}
+		
+		ElementInfo elementInfo = objectInfo.getElementInfo();
+		ObjectInfo parentObjectInfo = peek();
+		InjectionSlot slot = getInjectionSlot(parentObjectInfo, elementInfo);
+		ValueAdapter<?> adapter = this.adapterRegistry.getAdapter(elementInfo.getMappingClass());
+		int start = objectInfo.getTextStart();
+		
+		try {
+			return setPrimitive(slot.getAccessor(), adapter, parentObjectInfo.getObject(),
+					this.textBuffer, start, this.textLength - start);
+		} catch (ValueConversionException e) {
+			throw new DeserializationException("Value conversion error!", e);
+		}
+	}
+
+	/**
+	 * Sets the primitive field by the primitive-specialized adapter, the value
+	 * is converted directly from the <code>buffer</code>.
+	 * 
+	 * @return <code>false</code> if the field is not primitive or the
+	 * <code>adapter</code> is not specialized for its type.
+	 * 
+	 * @see IntValueAdapter
+	 * @see LongValueAdapter
+	 * @see DoubleValueAdapter
+	 * @see BooleanValueAdapter
+	 * @see CharValueAdapter
+	 */
+	private boolean setPrimitive(PropertyAccessor accessor, ValueAdapter<?> adapter, Object target,
+			char[] buffer, int start, int length) throws ValueConversionException {
+		
+		Class<?> type = accessor.getField().getType();
+		
+		if(!type.isPrimitive()) {
+			return false;
+		} else if(type == int.class && adapter instanceof IntValueAdapter) {
+			accessor.setInt(target, ((IntValueAdapter<?>) adapter).parseInt(buffer, start, length),
+					this.arguments);
+		} else if(type == long.class && adapter instanceof LongValueAdapter) {
+			accessor.setLong(target, ((LongValueAdapter<?>) adapter).parseLong(buffer, start, length),
+					this.arguments);
+		} else if(type == double.class && adapter instanceof DoubleValueAdapter) {
+			accessor.setDouble(target, ((DoubleValueAdapter<?>) adapter).parseDouble(buffer, start, length),
+					this.arguments);
+		} else if(type == boolean.class && adapter instanceof BooleanValueAdapter) {
+			accessor.setBoolean(target, ((BooleanValueAdapter<?>) adapter).parseBoolean(buffer, start, length),
+					this.arguments);
+		} else if(type == char.class && adapter instanceof CharValueAdapter) {
+			accessor.setChar(target, ((CharValueAdapter<?>) adapter).parseChar(buffer, start, length),
+					this.arguments);
+		} else {
+			return false;
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Converts the text of the element by the <code>adapter</code>. The
+	 * text is converted directly from the text buffer if the adapter
+	 * supports it, the pooled text is canonicalized by the
+	 * {@link #stringPool} before its conversion.
+	 * 
+	 * @see CharArrayValueAdapter
+	 */
+	private Object convertText(ValueAdapter<?> adapter, ObjectInfo objectInfo, boolean pooled)
+			throws ValueConversionException {
+		
+		int start = objectInfo.getTextStart();
+		int length = this.textLength - start;
+		
+		if(adapter instanceof CharArrayValueAdapter) {
+			return ((CharArrayValueAdapter<?>) adapter).convertValue(this.textBuffer, start, length);
+		}
+		
+		String text = pooled ? this.stringPool.get(this.textBuffer, start, length) :
+			new String(this.textBuffer, start, length);
+		
+		return adapter.convertValue(text);
+	}
+
+	/**
+	 * Determines if the text of the element is canonicalized by the
+	 * {@link #stringPool}, the pooling is defined by the element's field of
+	 * the parent object.
+	 */
+	private boolean isPooled(ObjectInfo objectInfo) {
+		if(this.stringPool == null || this.depth == 0) {
+			return false;
+		}
+		
+		InjectionSlot slot = peek().getElementInfo().getInjectionSlot(objectInfo.getElementInfo());
+		return slot != null && slot.isPooled();
+	}
+
+	/**
+	 * Resolves the meta-data of the element. The inherited type defined by the
+	 * <code>xsi:type</code> attribute takes precedence over the element name.
+	 * No key string is created by the lookup.
+	 */
+	private ElementInfo getElementInfo(String localName, String namespace, Attributes attributes) {
+		String type = attributes.getValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "type");
+		int separator = type == null ? -1 : type.indexOf(':');
+		
+		if(separator >= 0) {
+			return this.symbolTable.get(namespace, type, separator + 1);
+		}
+		
+		return this.symbolTable.get(namespace, localName);
+	}
+
+	/**
+	 * Finds the precomputed binding of the element into its parent object.
+	 * 
+	 * @param parent - frame of the parent element.
+	 * @param elementInfo - {@link ElementInfo} object of the target XML element.
+	 * 
+	 * @return the binding of the element into the parent object.
+	 * 
+	 * @throws DeserializationException if the element can not be the child of
+	 * the parent element.
+	 */
+	private InjectionSlot getInjectionSlot(ObjectInfo parent, ElementInfo elementInfo)
+			throws DeserializationException {
+		
+		InjectionSlot slot = parent.getElementInfo().getInjectionSlot(elementInfo);
+		
+		if(slot == null) {
+			throw new DeserializationException("Element " + elementInfo.getName() +
+					" can not be injected into " + parent.getElementInfo().getName() + "!");
+		}
+		
+		return slot;
+	}
+
+	/**
+	 * Binds the attributes in a single pass over the <code>attributes</code>.
+	 * Each attribute is dispatched by the attribute table of the
+	 * <code>elementInfo</code>, the attributes with no meta-data or out of the
+	 * <code>projectionNode</code> (if any) are ignored.
+	 */
+	private Object bindAttributes(Object element, Attributes attributes, ElementInfo elementInfo,
+			Projection.Node projectionNode) throws DeserializationException {
+		
+		for(int i = 0; i < attributes.getLength(); i++) {
+			String localName = attributes.getLocalName(i);
+			
+			if(projectionNode != null && !projectionNode.containsAttribute(localName)) {
+				continue;
+			}
+			
+			AttributeInfo attributeInfo = elementInfo.getAttribute(attributes.getURI(i), localName);
+			
+			if(attributeInfo == null) {
+				continue;
+			}
+			
+			try {
+				String attributeValue = attributes.getValue(i);
+				
+				if(attributeInfo.isPooled()) {
+					attributeValue = this.stringPool.get(attributeValue);
+				}
+				
+				if(this.logger.isLoggable(Level.VERBOSE)) {
+					this.logger.v("Attribute [name: " + attributeInfo.getName() +
+							", value: " + attributeValue + "]");
+				}
+				
+				if(attributeInfo.getEnumTable() != null) {
+					attributeInfo.getAccessor().set(element, attributeInfo.getEnumTable().get(attributeValue),
+							this.arguments);
+					continue;
+				}
+				
+				ValueAdapter<?> adapter = attributeInfo.getAdapter();
+				
+				if(adapter == null) {
+					adapter = this.adapterRegistry.getAdapter(attributeInfo.getField().getType());
+				}
+				
+				if(!bindPrimitive(attributeInfo.getAccessor(), adapter, element, attributeValue)) {
+					Object valueObject = adapter.convertValue(attributeValue);
+					attributeInfo.getAccessor().set(element, valueObject, this.arguments);
+				}
+			} catch (ValueConversionException e) {
+				throw new DeserializationException("Value conversion error! Attribute: " + attributeInfo.getName(), e);
+			} catch (Exception e) {
+				throw new DeserializationException("Value conversion error! Element: " + element.getClass().getName() +
+						", Attribute: " + attributeInfo.getName(), e);
+			}
+		
+		}
+		
+		return element;
+	}
+
+	/**
+	 * Sets the primitive attribute field by the primitive-specialized
+	 * adapter. The value is copied to the reused {@link #attributeBuffer}.
+	 * 
+	 * @see #setPrimitive(PropertyAccessor, ValueAdapter, Object, char[], int, int)
+	 */
+	private boolean bindPrimitive(PropertyAccessor accessor, ValueAdapter<?> adapter, Object target,
+			String value) throws ValueConversionException {
+		
+		if(!accessor.getField().getType().isPrimitive()) {
+			return false;
+		}
+		
+		int length = value.length();
+		
+		if(length > this.attributeBuffer.length) {
+			this.attributeBuffer = new char[Math.max(length, this.attributeBuffer.length * 2)];
+		}
+		
+		value.getChars(0, length, this.attributeBuffer, 0);
+		return setPrimitive(accessor, adapter, target, this.attributeBuffer, 0, length);
+	}
+
+	/**
+	 * Creates and stores object into the recycled frame of the stack.
+	 * 
+	 * @param elementInfo - the meta-data required for object creation.
+	 * 
+	 * @return new object instance.
+	 */
+	private ObjectInfo createObject(ElementInfo elementInfo) {
+		
+		Class<?> binding = elementInfo.getMappingClass();
+		Object element = null;
+		
+		if(binding.isPrimitive()) {
+			element = this.primitiveTypeInitializer.getObject(binding.getCanonicalName());
+		} else if(!XmlUtils.isSimpleType(binding, true)) {//simple types can be not initialized
+			element = elementInfo.newInstance();
+		}
+		
+		if(this.depth == this.frames.length) {
+			ObjectInfo[] frames = new ObjectInfo[this.frames.length * 2];
+			System.arraycopy(this.frames, 0, frames, 0, this.depth);
+			this.frames = frames;
+		}
+		
+		ObjectInfo frame = this.frames[this.depth];
+		
+		if(frame == null) {
+			frame = new ObjectInfo();
+			this.frames[this.depth] = frame;
+		}
+		
+		frame.init(elementInfo, element, this.textLength);
+		this.depth++;
+		return frame;
+	}
+
+	/**
+	 * @return the frame of the innermost open element.
+	 */
+	private ObjectInfo peek() {
+		return this.frames[this.depth - 1];
+	}
+
+	/**
+	 * @return the <code>buffer</code> or the new buffer of the initial
+	 * <code>size</code> if the buffer is longer than
+	 * {@link #MAX_KEPT_BUFFER_SIZE}.
+	 */
+	private static char[] keptBuffer(char[] buffer, int size) {
+		return buffer.length > MAX_KEPT_BUFFER_SIZE ? new char[size] : buffer;
+	}
+
+	/**
+	 * Frames and buffers of the finished parsing kept for the next document.
+	 */
+	private static class ParseState {
+		
+		private static final int TEXT_BUFFER_SIZE = 256;
+		private static final int ATTRIBUTE_BUFFER_SIZE = 32;
+		
+		private final ObjectInfo[] frames;
+		private final char[] textBuffer;
+		private final char[] attributeBuffer;
+		
+		private ParseState() {
+			this(new ObjectInfo[16], new char[TEXT_BUFFER_SIZE], new char[ATTRIBUTE_BUFFER_SIZE]);
+		}
+		
+		private ParseState(ObjectInfo[] frames, char[] textBuffer, char[] attributeBuffer) {
+			this.frames = frames;
+			this.textBuffer = textBuffer;
+			this.attributeBuffer = attributeBuffer;
+		}
+	
+	}
+
+	/**
+	 * Frame of the open element, recycled by the elements started at the
+	 * same depth.
+	 */
+	private static class ObjectInfo {
+		
+		private ElementInfo elementInfo;
+		
+		public ElementInfo getElementInfo() {
+			return elementInfo;
+		}
+		
+		private Object object;
+		
+		public void setObject(Object object) {
+			this.object = object;
+		}
+		
+		public Object getObject() {
+			return object;
+		}
+		
+		private void init(ElementInfo elementInfo, Object object, int textStart) {
+			this.elementInfo = elementInfo;
+			this.textStart = textStart;
+			this.object = object;
+			this.onItemPath = false;
+			this.projectionNode = null;
+			this.hasValue = false;
+			this.listSlot = null;
+			this.list = null;
+		}
+		
+		private void clear() {
+			this.elementInfo = null;
+			this.object = null;
+			this.projectionNode = null;
+			this.listSlot = null;
+			this.list = null;
+		}
+		
+		/**
+		 * The list of the last injected repeated child element, the
+		 * consecutive children of the same field are added without calling
+		 * its getter.
+		 */
+		private InjectionSlot listSlot;
+		private List<Object> list;
+		
+		@SuppressWarnings("unchecked")
+		public List<Object> getList(InjectionSlot slot) {
+			if(this.listSlot != slot) {
+				this.list = (List<Object>) slot.getAccessor().get(this.object);
+				this.listSlot = slot;
+			}
+			
+			return this.list;
+		}
+		
+		private boolean onItemPath;
+		
+		public boolean isOnItemPath() {
+			return onItemPath;
+		}
+		
+		public void setOnItemPath(boolean onItemPath) {
+			this.onItemPath = onItemPath;
+		}
+		
+		/**
+		 * Index of the element's text in the text buffer.
+		 */
+		private int textStart;
+		
+		public int getTextStart() {
+			return textStart;
+		}
+		
+		/**
+		 * Projection node of the partially bound element or <code>null</code>
+		 * if the element is bound completely.
+		 */
+		private Projection.Node projectionNode;
+		
+		public Projection.Node getProjectionNode() {
+			return projectionNode;
+		}
+		
+		public void setProjectionNode(Projection.Node projectionNode) {
+			this.projectionNode = projectionNode;
+		}
+		
+		private boolean hasValue;
+		
+		public void setHasValue(boolean hasValue) {
+			this.hasValue = hasValue;
+		}
+		
+		public boolean hasValue() {
+			return this.hasValue;
+		}
+	
+	}
+
+}
@@ -1,22 +1,36 @@
 package org.xpaframework.xml;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
 import org.xpaframework.AbstractDeserializer;
 import org.xpaframework.AbstractSerializer;
 import org.xpaframework.Deserializer;
+import org.xpaframework.HttpSerializationClient;
 import org.xpaframework.MappingException;
 import org.xpaframework.SerializationException;
 import org.xpaframework.Serializer;
+import org.xpaframework.xml.util.StringPool;
 
 
 /**
@@ -42,6 +56,20 @@ public class XmlContext {
 	private Hashtable<Class<?>, MetaDataInitializer> initializers =
 			new Hashtable<Class<?>, MetaDataInitializer>();
 	
+	/**
+	 * The SAX parser of each thread using this context. The parser is removed
+	 * while in use, so the nested deserialization on the same thread creates
+	 * its own parser.
+	 */
+	private ThreadLocal<SAXParser> saxParsers = new ThreadLocal<SAXParser>();
+	
+	/**
+	 * The XML pull parser of each thread using this context.
+	 * 
+	 * @see #saxParsers
+	 */
+	private ThreadLocal<XmlPullParser> pullParsers = new ThreadLocal<XmlPullParser>();
+	
 	/**
 	 * <p>Creates context instance configured by the <code>options</code>
 	 * parameter.</p>
@@ -50,6 +78,29 @@ public class XmlContext {
 	 */
 	protected XmlContext(ContextConfiguration options) {
 		this.configuration = options;
+		
+		if(options.getStringPoolSize() > 0) {
+			this.stringPool = new StringPool(options.getStringPoolSize());
+		}
+	}
+
+	/**
+	 * The pool of the repeated values shared by all deserializers of this
+	 * context.
+	 */
+	private StringPool stringPool;
+	
+	/**
+	 * <p>Returns the string pool of this context. The pool statistics (e.g.
+	 * {@link StringPool#getHitRatio()}) show the efficiency of the pooling for
+	 * the deserialized documents.</p>
+	 * 
+	 * @return the string pool or <code>null</code> if the pooling is disabled.
+	 * 
+	 * @see ContextConfiguration#setStringPoolSize(int)
+	 */
+	public StringPool getStringPool() {
+		return this.stringPool;
 	}
 	
 	private Serializer serializer;
@@ -63,17 +114,78 @@ public class XmlContext {
 	 */
 	public Serializer createSerializer() {
 		if(this.serializer == null) {
-			this.serializer = new SerializationWrapper(this.configuration);
+			this.serializer = new SerializationWrapper(this.configuration, null, 1);
 			this.serializer.setValueAdapterRegistry(this.configuration.getAdapterRegistry());
 		}
 
 		return this.serializer;
 	}
 
+	/**
+	 * <p>Creates serializer encoding the large collections concurrently. The
+	 * items of the collections are encoded by the tasks of the
+	 * <code>executor</code> and written in the document order. The parallel
+	 * serialization requires {@link OutputType#UTF8} output, the serializer
+	 * of the other outputs is sequential.</p>
+	 * 
+	 * @param executor - executor running the encoding tasks. The executor is
+	 * not shut down by the serializer and the serialization must not be
+	 * called from its threads.
+	 * @param parallelism - count of the threads of the <code>executor</code>.
+	 * 
+	 * @return serializer responsible for objects serialization.
+	 * 
+	 * @throws NullPointerException if <code>executor</code> is
+	 * <code>null</code>.
+	 * 
+	 * @see XmlSerializer#setExecutor(ExecutorService, int)
+	 */
+	public Serializer createParallelSerializer(ExecutorService executor, int parallelism)
+			throws NullPointerException {
+		
+		if(executor == null) {
+			throw new NullPointerException("Executor: null");
+		}
+		
+		Serializer serializer = new SerializationWrapper(this.configuration, executor, parallelism);
+		serializer.setValueAdapterRegistry(this.configuration.getAdapterRegistry());
+		return serializer;
+	}
+
+	/**
+	 * <p>Creates client posting the serialized objects to the HTTP endpoints
+	 * over the kept-alive connections. The objects are serialized by
+	 * {@link #createSerializer()} and compressed by the content encoding of
+	 * the context configuration.</p>
+	 * 
+	 * @param maxConnectionsPerHost - the maximal count of the concurrent
+	 * requests to one host.
+	 * 
+	 * @return the client of this context.
+	 * 
+	 * @throws IllegalArgumentException if <code>maxConnectionsPerHost</code>
+	 * is not positive.
+	 * 
+	 * @see HttpSerializationClient
+	 */
+	public HttpSerializationClient createHttpClient(int maxConnectionsPerHost)
+			throws IllegalArgumentException {
+		
+		HttpSerializationClient client = new HttpSerializationClient(createSerializer(),
+				XmlUtils.CONTENT_TYPE_XML, maxConnectionsPerHost);
+		client.setContentEncoding(this.configuration.getContentEncoding());
+		return client;
+	}
+
 	/**
 	 * <p>Creates deserializer object for the specified root. This root must be
 	 * represented by this <code>clazz</code> object created according to
 	 * deserialization specification.</p>
+	 * <p>The files are deserialized from the memory mapped windows up to
+	 * {@link ContextConfiguration#setMaxMappedSize(long)}, the larger files
+	 * are read by the reused buffer. The files in the encodings not supported
+	 * by the binding and the files declaring the internal DTD subset are
+	 * parsed from the stream by the configured parser.</p>
 	 * 
 	 * @param clazz - class representing root element object.
 	 * @return {@link Deserializer} object responsible for document
@@ -88,10 +200,193 @@ public class XmlContext {
 		
 		MetaDataInitializer metaDataInitializer = getMetaData(clazz);
 		DeserializationWrapper<T> deserializer = new DeserializationWrapper<T>(
-				metaDataInitializer, this.configuration);
+				metaDataInitializer, this.configuration, null);
 		return deserializer;
 	}
 
+	/**
+	 * <p>Creates deserializer binding only the projected part of the document.
+	 * All elements out of the <code>projection</code> are skipped without any
+	 * object creation or value conversion.</p>
+	 * 
+	 * @param clazz - class representing root element object.
+	 * @param projection - the projection of the bound elements and attributes.
+	 * 
+	 * @return {@link Deserializer} object responsible for document
+	 * deserialization.
+	 * 
+	 * @throws NullPointerException if <code>clazz</code> or
+	 * <code>projection</code> is <code>null</code>.
+	 * 
+	 * @see Projection
+	 */
+	public <T> Deserializer<T> createDeserializer(Class<T> clazz, Projection projection)
+			throws NullPointerException {
+		
+		if(projection == null) {
+			throw new NullPointerException("Projection: null");
+		}
+		
+		if(clazz == null) {
+			throw new NullPointerException("Root class: null");
+		}
+		
+		MetaDataInitializer metaDataInitializer = getMetaData(clazz);
+		return new DeserializationWrapper<T>(metaDataInitializer, this.configuration, projection);
+	}
+
+	/**
+	 * <p>Creates deserializer binding the large documents concurrently. The
+	 * document is split at the boundaries of the repeated child elements of
+	 * the root element and the parts are bound by the tasks of the
+	 * <code>executor</code>.</p>
+	 * 
+	 * @param clazz - class representing root element object.
+	 * @param executor - executor running the binding tasks. The executor is
+	 * not shut down by the deserializer and the deserialization must not be
+	 * called from its threads.
+	 * @param parallelism - count of the threads of the <code>executor</code>.
+	 * 
+	 * @return {@link ParallelDeserializer} object responsible for document
+	 * deserialization.
+	 * 
+	 * @throws NullPointerException if <code>clazz</code> or
+	 * <code>executor</code> is <code>null</code>.
+	 * 
+	 * @see ParallelDeserializer
+	 */
+	public <T> ParallelDeserializer<T> createParallelDeserializer(Class<T> clazz, ExecutorService executor,
+			int parallelism) throws NullPointerException {
+		
+		if(clazz == null || executor == null) {
+			throw new NullPointerException("Root class and executor must be set!");
+		}
+		
+		MetaDataInitializer metaDataInitializer = getMetaData(clazz);
+		DeserializationWrapper<T> chunkDeserializer = new DeserializationWrapper<T>(
+				metaDataInitializer, this.configuration, null);
+		return new ParallelDeserializer<T>(chunkDeserializer, metaDataInitializer, clazz,
+				executor, parallelism);
+	}
+
+	/**
+	 * <p>Creates iterator deserializing the repeated elements of the document
+	 * one by one. The items are released to the caller and are not injected
+	 * into their parent objects, so the document of any size can be processed
+	 * in constant memory.</p>
+	 * 
+	 * @param rootClass - class representing root element object.
+	 * @param itemType - class of the iterated items.
+	 * @param path - path of the element names starting with the root element,
+	 * delimited by {@link XmlIterator#PATH_DELIMITER}, e.g.
+	 * <code>"orders/order"</code>.
+	 * @param inputStream - stream containing the XML document.
+	 * 
+	 * @return the iterator over the items.
+	 * 
+	 * @throws NullPointerException if any of the arguments is <code>null</code>.
+	 * @throws MappingException if the parsing can not be started.
+	 * 
+	 * @see XmlIterator
+	 */
+	public <E> XmlIterator<E> createIterator(Class<?> rootClass, Class<E> itemType, String path,
+			InputStream inputStream) throws NullPointerException, MappingException {
+		
+		if(rootClass == null || itemType == null || path == null || inputStream == null) {
+			throw new NullPointerException("Root class, item type, path and input must be set!");
+		}
+		
+		MetaDataInitializer metaDataInitializer = getMetaData(rootClass);
+		return new XmlIterator<E>(metaDataInitializer, this.configuration.getAdapterRegistry(),
+				this.configuration.getPrimitiveTypeInitializer(), itemType, path, inputStream);
+	}
+
+	/**
+	 * <p>Creates writer serializing the repeated elements of the document one
+	 * by one. The items are not collected by the root object, so the
+	 * document of any size can be written in constant memory.</p>
+	 * 
+	 * @param rootClass - class representing root element object.
+	 * @param itemType - class of the written items.
+	 * @param path - path of the root and the item element names, delimited by
+	 * {@link XmlIterator#PATH_DELIMITER}, e.g. <code>"orders/order"</code>.
+	 * @param outputStream - the target stream of the XML document.
+	 * 
+	 * @return the writer of the items.
+	 * 
+	 * @throws NullPointerException if any of the arguments is <code>null</code>.
+	 * @throws IllegalArgumentException if the <code>path</code> does not
+	 * select the repeated element of the root class.
+	 * @throws SerializationException if the serializer can not be created.
+	 * 
+	 * @see XmlStreamWriter
+	 */
+	public <E> XmlStreamWriter<E> createStreamWriter(Class<?> rootClass, Class<E> itemType, String path,
+			OutputStream outputStream) throws NullPointerException, IllegalArgumentException,
+			SerializationException {
+		
+		if(rootClass == null || itemType == null || path == null || outputStream == null) {
+			throw new NullPointerException("Root class, item type, path and output must be set!");
+		}
+		
+		MetaDataInitializer metaDataInitializer = getMetaData(rootClass);
+		return new XmlStreamWriter<E>(metaDataInitializer, this.configuration.getAdapterRegistry(),
+				this.configuration.getOutputType(), rootClass, itemType, path, outputStream,
+				this.configuration.getEncoding(), this.configuration.isStandalone());
+	}
+
+	/**
+	 * <p>Creates non-blocking deserializer of the document pushed by the
+	 * chunks of bytes.</p>
+	 * 
+	 * @param rootClass - class representing root element object.
+	 * 
+	 * @return the feeder of the document.
+	 * 
+	 * @throws NullPointerException if <code>rootClass</code> is
+	 * <code>null</code>.
+	 * 
+	 * @see XmlFeeder
+	 */
+	public <T> XmlFeeder<T> createFeeder(Class<T> rootClass) throws NullPointerException {
+		if(rootClass == null) {
+			throw new NullPointerException("Root class: null");
+		}
+		
+		MetaDataInitializer metaDataInitializer = getMetaData(rootClass);
+		return new XmlFeeder<T>(metaDataInitializer, this.configuration.getAdapterRegistry(),
+				this.configuration.getPrimitiveTypeInitializer(), null, null);
+	}
+
+	/**
+	 * <p>Creates non-blocking deserializer of the document pushed by the
+	 * chunks of bytes releasing the repeated elements to the
+	 * <code>listener</code> as soon as they are completed.</p>
+	 * 
+	 * @param rootClass - class representing root element object.
+	 * @param path - path of the element names starting with the root element,
+	 * delimited by {@link XmlIterator#PATH_DELIMITER}, e.g.
+	 * <code>"orders/order"</code>.
+	 * @param listener - listener of the completed items.
+	 * 
+	 * @return the feeder of the document.
+	 * 
+	 * @throws NullPointerException if any of the arguments is <code>null</code>.
+	 * 
+	 * @see XmlFeeder
+	 */
+	public <T, E> XmlFeeder<T> createFeeder(Class<T> rootClass, String path,
+			XmlFeeder.ItemListener<E> listener) throws NullPointerException {
+		
+		if(rootClass == null || path == null || listener == null) {
+			throw new NullPointerException("Root class, path and listener must be set!");
+		}
+		
+		MetaDataInitializer metaDataInitializer = getMetaData(rootClass);
+		return new XmlFeeder<T>(metaDataInitializer, this.configuration.getAdapterRegistry(),
+				this.configuration.getPrimitiveTypeInitializer(), path, listener);
+	}
+
 	/**
 	 * Creates and returns threat resolving meta-data for target <code>clazz</code>.
 	 * If the meta-data were created already, the method simply returns created
@@ -104,11 +399,11 @@ public class XmlContext {
 	 * 
 	 * @see Thread#start()
 	 */
-	private MetaDataInitializer getMetaData(Class<?> clazz) {
+	private synchronized MetaDataInitializer getMetaData(Class<?> clazz) {
 		MetaDataInitializer initializer = this.initializers.get(clazz);
 		
 		if(initializer == null) {
-			initializer = new MetaDataInitializer(clazz, this.configuration);
+			initializer = new MetaDataInitializer(clazz, this.configuration, this.stringPool);
 			this.initializers.put(clazz, initializer);
 			initializer.start();
 		}
@@ -116,19 +411,97 @@ public class XmlContext {
 		return initializer;
 	}
 	
+	/**
+	 * <p>Takes the SAX parser of the current thread. The parser is created
+	 * if the thread has none. The parser must be returned by
+	 * {@link #releaseSaxParser(SAXParser)} after the parsing.</p>
+	 * 
+	 * @return the namespace aware, non-validating parser.
+	 */
+	private SAXParser takeSaxParser() throws ParserConfigurationException, SAXException {
+		SAXParser parser = this.saxParsers.get();
+		
+		if(parser != null) {
+			this.saxParsers.remove();
+			return parser;
+		}
+		
+		SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+		parserFactory.setValidating(false);
+		parserFactory.setNamespaceAware(true);
+		return parserFactory.newSAXParser();
+	}
+
+	/**
+	 * <p>Resets the <code>parser</code> and returns it to the current
+	 * thread for the next parsing.</p>
+	 */
+	private void releaseSaxParser(SAXParser parser) {
+		parser.reset();
+		this.saxParsers.set(parser);
+	}
+
+	/**
+	 * <p>Takes the XML pull parser of the current thread.</p>
+	 * 
+	 * @see #takeSaxParser()
+	 */
+	private XmlPullParser takePullParser() throws XmlPullParserException {
+		XmlPullParser parser = this.pullParsers.get();
+		
+		if(parser != null) {
+			this.pullParsers.remove();
+			return parser;
+		}
+		
+		XmlPullParserFactory parserFactory = XmlPullParserFactory.newInstance();
+		parserFactory.setNamespaceAware(true);
+		return parserFactory.newPullParser();
+	}
+
+	/**
+	 * <p>Resets the input of the <code>parser</code> and returns it to the
+	 * current thread, so the cached parser does not hold the parsed stream.
+	 * The parser failing to reset its input is not cached.</p>
+	 */
+	private void releasePullParser(XmlPullParser parser) {
+		try {
+			parser.setInput(null);
+		} catch (XmlPullParserException e) {
+			return;
+		}
+		
+		this.pullParsers.set(parser);
+	}
+
 	//Serializer/Deserializer implementation
 	
 	/**
 	 * <p>Class wrapping serialization process.</p>
+	 * <p>The serializers are cached by each thread for the serialized root
+	 * classes, so the next document of the same class reuses the serializer
+	 * with its output backend and buffers and skips the meta-data
+	 * lookup.</p>
 	 * 
 	 * @author Jan Janickovic
 	 */
 	private class SerializationWrapper extends AbstractSerializer {
 
 		private ContextConfiguration contextConfig;
+		private ExecutorService executor;
+		private int parallelism;
+		
+		/**
+		 * The serializers of the current thread by the root classes.
+		 */
+		private ThreadLocal<Map<Class<?>, XmlSerializer>> serializers =
+				new ThreadLocal<Map<Class<?>, XmlSerializer>>();
 		
-		private SerializationWrapper(ContextConfiguration config) {
+		private SerializationWrapper(ContextConfiguration config, ExecutorService executor, int parallelism) {
 			this.contextConfig = config;
+			this.executor = executor;
+			this.parallelism = parallelism;
+			setContentEncoding(config.getContentEncoding());
 		}
 		
 		@Override
@@ -146,9 +519,10 @@ public class XmlContext {
 				throw new SerializationException("XML serrialization error", cause);
 			}
 			
+			XmlSerializer serializer = null;
+			
 			try {
-				MetaDataInitializer initializer = getMetaData(obj.getClass());
-				XmlSerializer serializer = new XmlSerializer(initializer, getAdapterRegistry());
+				serializer = getSerializer(obj.getClass());
 				String encoding = this.contextConfig.getEncoding();
 				boolean standalone = this.contextConfig.isStandalone();
 				serializer.serialize(obj, os, encoding, standalone);
@@ -158,36 +532,120 @@ public class XmlContext {
 			} catch (IllegalStateException e) {
 				throw new SerializationException(e);
 			} finally {
+				if(serializer != null) {
+					serializer.release();
+				}
 //				if(os != null) {
 //					os.close();
 //				}
 			}
 		}
+		
+		/**
+		 * @return the serializer of the <code>rootClass</code> cached by the
+		 * current thread. The serializer is created if it is not cached or
+		 * if the adapter registry or the output type was changed.
+		 */
+		private XmlSerializer getSerializer(Class<?> rootClass) throws IOException {
+			Map<Class<?>, XmlSerializer> serializers = this.serializers.get();
+			
+			if(serializers == null) {
+				serializers = new HashMap<Class<?>, XmlSerializer>();
+				this.serializers.set(serializers);
+			}
+			
+			XmlSerializer serializer = serializers.get(rootClass);
+			OutputType outputType = this.contextConfig.getOutputType();
+			
+			if(serializer == null || !serializer.isCreatedFor(getAdapterRegistry(), outputType)) {
+				MetaDataInitializer initializer = getMetaData(rootClass);
+				serializer = new XmlSerializer(initializer, getAdapterRegistry(), outputType);
+				
+				if(this.executor != null) {
+					serializer.setExecutor(this.executor, this.parallelism);
+				}
+				
+				serializers.put(rootClass, serializer);
+			}
+			
+			return serializer;
+		}
 	}
 	
 	/**
-	 * <p>Class wrapping deserialization process.</p>
+	 * <p>Class wrapping deserialization process. The parsing engine is
+	 * selected by {@link ContextConfiguration#getParserType()}.</p>
+	 * <p>The wrapper holds no parsing state, each deserialization creates its
+	 * own handler and uses the parser of the current thread. The
+	 * {@link #getValue()} returns the value of the last deserialization of
+	 * the instance, so the value is visible to the thread the instance is
+	 * handed to. The threads deserializing concurrently should use their own
+	 * deserializers, they share the meta-data of the context. No object
+	 * graph is held by the threads.</p>
 	 * 
 	 * @author Jan Janickovic
 	 */
-	private class DeserializationWrapper<T> extends AbstractDeserializer<T> {
+	class DeserializationWrapper<T> extends AbstractDeserializer<T> {
 
-		private XmlParser<T> parser;
+		private ParserType parserType;
+		private MetaDataInitializer metaDataInitializer;
+		private ContextConfiguration contextConfig;
+		private Projection projection;
+		
+		/**
+		 * Size of the file region mapped at once. The window limits the
+		 * address space used by the large files.
+		 */
+		private static final long MAP_WINDOW_SIZE = 16 * 1024 * 1024;
+		
+		/**
+		 * Size of the reused buffer reading the files larger than
+		 * {@link ContextConfiguration#getMaxMappedSize()}.
+		 */
+		private static final int READ_BUFFER_SIZE = 256 * 1024;
+		
+		private volatile T value;
 		
 		private DeserializationWrapper(MetaDataInitializer metaDataInitializer, 
-				ContextConfiguration config) {
+				ContextConfiguration config, Projection projection) {
 			
-			this.parser = new XmlParser<T>(metaDataInitializer, config.getAdapterRegistry());
-			parser.setPrimitiveTypeInitializer(config.getPrimitiveTypeInitializer());
+			this.parserType = config.getParserType();
+			this.metaDataInitializer = metaDataInitializer;
+			this.contextConfig = config;
+			this.projection = projection;
+			setContentEncoding(config.getContentEncoding());
 		}
 		
 		@Override
 		public void deserialize(InputStream inputStream) throws MappingException {
+			this.value = null;
+			this.value = parse(inputStream);
+		}
+			
+		/**
+		 * @return the value deserialized from the <code>inputStream</code>.
+		 * The value is not stored by the wrapper.
+		 * 
+		 * @see ParallelDeserializer
+		 */
+		T parse(InputStream inputStream) throws MappingException {
+			if(this.parserType == ParserType.PULL) {
+				return parsePull(inputStream);
+			}
+			
+			XmlParser<T> handler = new XmlParser<T>(this.metaDataInitializer,
+					this.contextConfig.getAdapterRegistry());
+			handler.setPrimitiveTypeInitializer(this.contextConfig.getPrimitiveTypeInitializer());
+			handler.setProjection(this.projection);
+			
 			try {
-				SAXParserFactory parserFactory = SAXParserFactory.newInstance();
-				parserFactory.setValidating(false);
-				SAXParser parser = parserFactory.newSAXParser();
-				parser.parse(inputStream, this.parser);
+				SAXParser parser = takeSaxParser();
+				
+				try {
+					parser.parse(inputStream, handler);
+				} finally {
+					releaseSaxParser(parser);
+				}
 			} catch (SAXException e) {
 				throw new MappingException(e);
 			} catch (IOException e) {
@@ -195,11 +653,138 @@ public class XmlContext {
 			} catch (ParserConfigurationException e) {
 				throw new MappingException(e);
 			}
+			
+			return handler.getValue();
+		}
+		
+		private T parsePull(InputStream inputStream) throws MappingException {
+			XmlPullParserHandler<T> handler = new XmlPullParserHandler<T>(this.metaDataInitializer,
+					this.contextConfig.getAdapterRegistry());
+			handler.setPrimitiveTypeInitializer(this.contextConfig.getPrimitiveTypeInitializer());
+			handler.setProjection(this.projection);
+			
+			try {
+				XmlPullParser parser = takePullParser();
+				
+				try {
+					parser.setInput(inputStream, null);
+					handler.parse(parser);
+				} finally {
+					releasePullParser(parser);
+				}
+			} catch (XmlPullParserException e) {
+				throw new MappingException(e);
+			} catch (IOException e) {
+				throw new MappingException(e);
+			}
+			
+			return handler.getValue();
 		}
 
+		/**
+		 * <p>Maps the <code>file</code> to the memory by the windows of
+		 * {@link #MAP_WINDOW_SIZE} bytes and binds them by the
+		 * {@link XmlTokenizer} directly from the mapped buffers, so the
+		 * document is neither copied nor read by the system calls. The files
+		 * larger than {@link ContextConfiguration#getMaxMappedSize()} are not
+		 * mapped, they are read to the reused buffer and fed to the tokenizer
+		 * by its chunks.</p>
+		 * <p>The documents in the encodings not supported by the tokenizer and
+		 * the documents declaring the internal DTD subset are parsed from the
+		 * buffered stream by the configured parser.</p>
+		 * 
+		 * @see XmlTokenizer#isSupported(ByteBuffer)
+		 */
+		@Override
+		public void deserialize(File file) throws MappingException {
+			this.value = null;
+			this.value = parse(file);
+		}
+		
+		private T parse(File file) throws MappingException {
+			FileInputStream inputStream;
+			
+			try {
+				inputStream = new FileInputStream(file);
+			} catch (FileNotFoundException e) {
+				throw new MappingException("Deseiralization failure! File: " + file, e);
+			}
+			
+			try {
+				FileChannel channel = inputStream.getChannel();
+				long size = channel.size();
+				ByteBuffer readBuffer = size > this.contextConfig.getMaxMappedSize() ?
+						ByteBuffer.allocate(READ_BUFFER_SIZE) : null;
+				ByteBuffer window = nextWindow(channel, 0, size, readBuffer);
+				
+				if(!XmlTokenizer.isSupported(window)) {
+					return parse(new BufferedInputStream(inputStream));
+				}
+				
+				XmlBinder<T> binder = new XmlBinder<T>(this.metaDataInitializer,
+						this.contextConfig.getAdapterRegistry());
+				binder.setPrimitiveTypeInitializer(this.contextConfig.getPrimitiveTypeInitializer());
+				binder.setProjection(this.projection);
+				XmlTokenizer<T> tokenizer = new XmlTokenizer<T>(binder);
+				long position = 0;
+				
+				while(window.hasRemaining()) {
+					position += window.remaining();
+					tokenizer.feed(window);
+					
+					if(position >= size || tokenizer.isFinished()) {
+						break;
+					}
+					
+					window = nextWindow(channel, position, size, readBuffer);
+				}
+				
+				tokenizer.finish();
+				return binder.getValue();
+			} catch (IOException e) {
+				throw new MappingException(e);
+			} finally {
+				try {
+					inputStream.close();
+				} catch (IOException e) {
+					//the document was processed already
+				}
+			}
+		}
+		
+		/**
+		 * @return the next mapped window of the file starting at the
+		 * <code>position</code> or the <code>readBuffer</code> filled by the
+		 * file content if the file is not mapped. The position of the
+		 * channel is not changed.
+		 */
+		private ByteBuffer nextWindow(FileChannel channel, long position, long size, ByteBuffer readBuffer)
+				throws IOException {
+			
+			if(readBuffer == null) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, position,
+						Math.min(size - position, MAP_WINDOW_SIZE));
+			}
+			
+			readBuffer.clear();
+			
+			while(readBuffer.hasRemaining()) {
+				if(channel.read(readBuffer, position + readBuffer.position()) < 0) {
+					break;
+				}
+			}
+			
+			readBuffer.flip();
+			return readBuffer;
+		}
+		
+		/**
+		 * @return the value deserialized by the last call or
+		 * <code>null</code> if the last call failed.
+		 */
 		@Override
 		public T getValue() {
-			return this.parser.getValue();
+			return this.value;
 		}
 	}
 
@@ -0,0 +1,185 @@
+package org.xpaframework.xml;
+
+import java.nio.ByteBuffer;
+
+import org.xpaframework.DeserializationException;
+import org.xpaframework.ValueAdapterRegistry;
+
+
+/**
+ * <p>Non-blocking deserializer of the XML document pushed by the chunks of
+ * bytes as they arrive, e.g. from the NIO selector loop. No thread is blocked
+ * waiting for the input: each call of {@link #feed(ByteBuffer)} binds the
+ * completed part of the document and returns immediately.</p>
+ * <p>The meta-data of the root class are created by the background thread
+ * of the context. The chunks fed before the meta-data are created are
+ * copied to the internal buffer and bound by the first call after the
+ * creation, so the feeding does not wait for the meta-data. Only
+ * {@link #finish()} waits for them if they are not created yet.</p>
+ * <p>The documents in the UTF-8, US-ASCII and ISO-8859-1 encodings are
+ * supported. The documents declaring the internal DTD subset are not
+ * supported, the feeding fails when the subset is reached.</p>
+ * <p>The completion of the document is signaled by {@link #isCompleted()},
+ * the end of the input is confirmed by {@link #finish()}. If the item path is
+ * specified, the completed repeated elements are released to the
+ * {@link ItemListener} during the feeding and are not injected into their
+ * parent objects.</p>
+ * <p>The feeder is created by {@link XmlContext#createFeeder(Class)} or
+ * {@link XmlContext#createFeeder(Class, String, ItemListener)} methods, one
+ * instance deserializes one document and is not thread-safe.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <T> - type of the root element.
+ * 
+ * @see XmlTokenizer
+ */
+public class XmlFeeder<T extends Object> {
+	
+	private MetaDataInitializer metaDataInitializer;
+	private XmlBinder<T> binder;
+	private XmlTokenizer<T> tokenizer;
+	
+	/**
+	 * The input fed before the meta-data are created or <code>null</code>
+	 * once the meta-data are attached.
+	 */
+	private byte[] pending = new byte[0];
+	private int pendingLength;
+	
+	private boolean finished;
+	
+	protected XmlFeeder(MetaDataInitializer metaDataInitializer, ValueAdapterRegistry adapterRegistry,
+			PrimitiveTypeInitializer primitiveTypeInitializer, String itemPath,
+			ItemListener<?> itemListener) {
+		
+		this.metaDataInitializer = metaDataInitializer;
+		this.binder = new XmlBinder<T>(metaDataInitializer, adapterRegistry);
+		this.binder.setPrimitiveTypeInitializer(primitiveTypeInitializer);
+		this.tokenizer = new XmlTokenizer<T>(this.binder);
+		
+		if(itemPath != null) {
+			if(itemPath.isEmpty()) {
+				throw new IllegalArgumentException("Item path not specified!");
+			}
+			
+			this.binder.setItemPath(itemPath.split(XmlIterator.PATH_DELIMITER));
+			this.tokenizer.setItemListener(itemListener);
+		}
+	}
+
+	/**
+	 * <p>Binds the next chunk of the document. All remaining bytes of the
+	 * <code>buffer</code> are consumed, the incomplete markup at its end is
+	 * kept by the feeder, so the buffer can be reused by the caller. The
+	 * chunks are only copied until the meta-data are created.</p>
+	 * 
+	 * @param buffer - the next chunk of the document.
+	 * 
+	 * @throws DeserializationException if the document is not well-formed,
+	 * is not supported or its binding fails.
+	 * @throws IllegalStateException if the input was finished already.
+	 */
+	public void feed(ByteBuffer buffer) throws DeserializationException, IllegalStateException {
+		if(this.finished) {
+			throw new IllegalStateException("Input already finished!");
+		}
+		
+		if(this.pending != null) {
+			if(!this.metaDataInitializer.isCreated()) {
+				append(buffer);
+				return;
+			}
+			
+			feedPending();
+		}
+		
+		this.tokenizer.feed(buffer);
+	}
+
+	/**
+	 * @see #feed(ByteBuffer)
+	 */
+	public void feed(byte[] data, int offset, int length) throws DeserializationException,
+			IllegalStateException {
+		
+		feed(ByteBuffer.wrap(data, offset, length));
+	}
+
+	/**
+	 * <p>Signals the end of the input. The method waits for the meta-data
+	 * if the whole input was fed before they were created.</p>
+	 * 
+	 * @throws DeserializationException if the root element was not
+	 * completed.
+	 */
+	public void finish() throws DeserializationException {
+		if(!this.finished) {
+			this.finished = true;
+			
+			if(this.pending != null) {
+				feedPending();
+			}
+			
+			this.tokenizer.finish();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the root element was completed, the
+	 * following input is ignored.
+	 */
+	public boolean isCompleted() {
+		return this.tokenizer.isFinished();
+	}
+
+	/**
+	 * @return the root object of the document or <code>null</code> if the
+	 * document is not completed.
+	 */
+	public T getValue() {
+		return isCompleted() ? this.binder.getValue() : null;
+	}
+
+	private void append(ByteBuffer buffer) {
+		int length = this.pendingLength + buffer.remaining();
+		
+		if(length > this.pending.length) {
+			byte[] pending = new byte[Math.max(length, this.pending.length * 2)];
+			System.arraycopy(this.pending, 0, pending, 0, this.pendingLength);
+			this.pending = pending;
+		}
+		
+		buffer.get(this.pending, this.pendingLength, buffer.remaining());
+		this.pendingLength = length;
+	}
+
+	/**
+	 * Feeds the input copied before the meta-data were created, the
+	 * meta-data are attached by the tokenizer.
+	 */
+	private void feedPending() throws DeserializationException {
+		ByteBuffer pending = ByteBuffer.wrap(this.pending, 0, this.pendingLength);
+		this.pending = null;
+		this.tokenizer.feed(pending);
+	}
+
+	/**
+	 * <p>Listener of the repeated elements released by the feeder.</p>
+	 * 
+	 * @author Jan Janickovic
+	 * 
+	 * @param <E> - type of the released items.
+	 */
+	public interface ItemListener<E> {
+		
+		/**
+		 * <p>Called when the item is completed. The item is not injected into
+		 * its parent object.</p>
+		 * 
+		 * @param item - the completed item.
+		 */
+		void itemCompleted(E item);
+	}
+
+}
@@ -0,0 +1,149 @@
+package org.xpaframework.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.xml.sax.Attributes;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xpaframework.DeserializationException;
+import org.xpaframework.ValueAdapterRegistry;
+
+
+/**
+ * <p>Iterator deserializing the repeated elements of the XML document one by
+ * one. The document is parsed only as far as the next item is completed, the
+ * item is then released to the caller and is not injected into its parent
+ * object, so the memory used by the iteration does not depend on the size of
+ * the document.</p>
+ * <p>The items are selected by the path of the element names starting with
+ * the root element, e.g. <code>"orders/order"</code> iterates over all
+ * <code>order</code> elements of the <code>orders</code> root element.</p>
+ * <p>The iterator is created by
+ * {@link XmlContext#createIterator(Class, Class, String, InputStream)} method.
+ * The input stream is closed when the end of the document is reached or by
+ * calling {@link #close()} method.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <E> - type of the iterated items.
+ * 
+ * @see XmlContext#createIterator(Class, Class, String, InputStream)
+ */
+public class XmlIterator<E> implements Iterator<E> {
+	
+	/**
+	 * Delimiter of the element names in the item path.
+	 */
+	public static final String PATH_DELIMITER = "/";
+	
+	private Class<E> itemType;
+	private InputStream inputStream;
+	
+	private XmlPullParserHandler<Object> handler;
+	private XmlPullParser parser;
+	private Attributes attributes;
+	
+	private boolean finished;
+	
+	protected XmlIterator(MetaDataInitializer metaDataInitializer, ValueAdapterRegistry adapterRegistry,
+			PrimitiveTypeInitializer primitiveTypeInitializer, Class<E> itemType, String path,
+			InputStream inputStream) throws DeserializationException {
+		
+		if(path == null || path.isEmpty()) {
+			throw new IllegalArgumentException("Item path not specified!");
+		}
+		
+		this.itemType = itemType;
+		this.inputStream = inputStream;
+		
+		this.handler = new XmlPullParserHandler<Object>(metaDataInitializer, adapterRegistry);
+		this.handler.setPrimitiveTypeInitializer(primitiveTypeInitializer);
+		this.handler.getBinder().setItemPath(path.split(PATH_DELIMITER));
+		
+		try {
+			this.parser = this.handler.createParser(inputStream);
+		} catch (XmlPullParserException e) {
+			throw new DeserializationException("Parser creation failed!", e);
+		}
+		
+		this.attributes = this.handler.createAttributes(this.parser);
+		this.handler.getBinder().startDocument();
+	}
+
+	/**
+	 * <p>Parses the document until the next item is completed or the end of
+	 * the document is reached.</p>
+	 * 
+	 * @throws IllegalStateException if the parsing or binding of the document
+	 * fails. The cause of the exception is the original exception.
+	 */
+	@Override
+	public boolean hasNext() throws IllegalStateException {
+		XmlBinder<Object> binder = this.handler.getBinder();
+		
+		try {
+			while(!binder.hasItem() && !this.finished) {
+				if(this.handler.processNext(this.parser, this.attributes) == XmlPullParser.END_DOCUMENT) {
+					binder.endDocument();
+					close();
+				}
+			}
+		} catch (XmlPullParserException e) {
+			close();
+			throw new IllegalStateException("Deserialization failure!", e);
+		} catch (IOException e) {
+			close();
+			throw new IllegalStateException("Deserialization failure!", e);
+		} catch (DeserializationException e) {
+			close();
+			throw new IllegalStateException("Deserialization failure!", e);
+		}
+		
+		return binder.hasItem();
+	}
+
+	/**
+	 * @throws NoSuchElementException if there are no more items in the
+	 * document.
+	 * @throws ClassCastException if the item is not of the iterated type.
+	 */
+	@Override
+	public E next() throws NoSuchElementException, ClassCastException {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		
+		return this.itemType.cast(this.handler.getBinder().takeItem());
+	}
+
+	/**
+	 * <p>Not supported.</p>
+	 * 
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public void remove() throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("Items can not be removed from the document!");
+	}
+
+	/**
+	 * <p>Finishes the iteration and closes the input stream.</p>
+	 */
+	public void close() {
+		if(this.finished) {
+			return;
+		}
+		
+		this.finished = true;
+		
+		try {
+			this.inputStream.close();
+		} catch (IOException e) {
+			//closing failure does not affect the already released items
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package org.xpaframework.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>Output backend of the {@link XmlSerializer}. The serializer produces
+ * the document by the calls of this interface, the backend encodes the
+ * markup and writes it to the output stream. The methods follow the
+ * semantics of the corresponding {@link org.xmlpull.v1.XmlSerializer}
+ * methods.</p>
+ * <p>The backend is selected by
+ * {@link ContextConfiguration#setOutputType(OutputType)} method.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see XmlPullOutput
+ * @see Utf8XmlWriter
+ */
+public interface XmlOutput {
+	
+	/**
+	 * <p>Sets the output stream of the document. The state of the previous
+	 * document is discarded, the buffers are kept for the next document.</p>
+	 * 
+	 * @param os - the target stream or <code>null</code> to release the stream
+	 * of the previous document.
+	 * @param encoding - the encoding of the document.
+	 * 
+	 * @throws IOException if the encoding is not supported by the backend.
+	 */
+	void setOutput(OutputStream os, String encoding) throws IOException;
+	
+	/**
+	 * <p>Writes the XML declaration.</p>
+	 * 
+	 * @param encoding - the encoding of the document or <code>null</code>.
+	 * @param standalone - the standalone flag or <code>null</code> if not
+	 * declared.
+	 */
+	void startDocument(String encoding, Boolean standalone) throws IOException;
+	
+	/**
+	 * <p>Binds the <code>prefix</code> to the <code>namespace</code> for the
+	 * next started element. The binding is declared only if it differs from
+	 * the binding in the scope.</p>
+	 */
+	void setPrefix(String prefix, String namespace) throws IOException;
+	
+	void startTag(String namespace, String name) throws IOException;
+	
+	/**
+	 * <p>Writes the attribute of the last started element. The attribute must
+	 * be written before any content of the element.</p>
+	 */
+	void attribute(String namespace, String name, String value) throws IOException;
+	
+	/**
+	 * <p>Writes the attribute of the last started element with the value of
+	 * the <code>length</code> characters of the <code>buffer</code>.</p>
+	 * 
+	 * @see #attribute(String, String, String)
+	 */
+	void attribute(String namespace, String name, char[] buffer, int start, int length) throws IOException;
+	
+	/**
+	 * <p>Writes the escaped text content of the current element.</p>
+	 */
+	void text(String text) throws IOException;
+	
+	/**
+	 * <p>Writes the escaped <code>length</code> characters of the
+	 * <code>buffer</code> as the text content of the current element.</p>
+	 */
+	void text(char[] buffer, int start, int length) throws IOException;
+	
+	void endTag(String namespace, String name) throws IOException;
+	
+	/**
+	 * <p>Finishes all open elements and flushes the output.</p>
+	 */
+	void endDocument() throws IOException;
+	
+	/**
+	 * <p>Writes all buffered output to the output stream.</p>
+	 */
+	void flush() throws IOException;
+
+}
@@ -0,0 +1,87 @@
+package org.xpaframework.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import android.util.Xml;
+
+/**
+ * <p>Output backend delegating to the platform
+ * {@link org.xmlpull.v1.XmlSerializer} created by
+ * {@link Xml#newSerializer()}.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see OutputType#PULL
+ */
+public class XmlPullOutput implements XmlOutput {
+	
+	private org.xmlpull.v1.XmlSerializer serializer;
+	
+	protected XmlPullOutput() {
+		this.serializer = Xml.newSerializer();
+	}
+
+	@Override
+	public void setOutput(OutputStream os, String encoding) throws IOException {
+		if(os == null) {
+			this.serializer.setOutput((Writer) null);
+		} else {
+			this.serializer.setOutput(os, encoding);
+		}
+	}
+
+	@Override
+	public void startDocument(String encoding, Boolean standalone) throws IOException {
+		this.serializer.startDocument(encoding, standalone);
+	}
+
+	@Override
+	public void setPrefix(String prefix, String namespace) throws IOException {
+		this.serializer.setPrefix(prefix, namespace);
+	}
+
+	@Override
+	public void startTag(String namespace, String name) throws IOException {
+		this.serializer.startTag(namespace, name);
+	}
+
+	@Override
+	public void attribute(String namespace, String name, String value) throws IOException {
+		this.serializer.attribute(namespace, name, value);
+	}
+
+	@Override
+	public void attribute(String namespace, String name, char[] buffer, int start, int length)
+			throws IOException {
+		
+		this.serializer.attribute(namespace, name, new String(buffer, start, length));
+	}
+
+	@Override
+	public void text(String text) throws IOException {
+		this.serializer.text(text);
+	}
+
+	@Override
+	public void text(char[] buffer, int start, int length) throws IOException {
+		this.serializer.text(buffer, start, length);
+	}
+
+	@Override
+	public void endTag(String namespace, String name) throws IOException {
+		this.serializer.endTag(namespace, name);
+	}
+
+	@Override
+	public void endDocument() throws IOException {
+		this.serializer.endDocument();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.serializer.flush();
+	}
+
+}
@@ -0,0 +1,288 @@
+package org.xpaframework.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.xml.sax.Attributes;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.xpaframework.DeserializationException;
+import org.xpaframework.ValueAdapterRegistry;
+
+
+/**
+ * <p>Class providing XML input parsing to given object by the
+ * {@link XmlPullParser}. The parsing events are pulled from the parser
+ * and delivered to the {@link XmlBinder} object, the same binding is
+ * used as for the SAX parsing provided by {@link XmlParser}.</p>
+ * <p>The subtrees of the elements with no meta-data are skipped by
+ * the parser without any binding.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <T> - type of the root element.
+ * 
+ * @see XmlParser
+ * @see XmlBinder
+ * @see ParserType#PULL
+ */
+public class XmlPullParserHandler<T extends Object> {
+	
+	private XmlBinder<T> binder;
+	
+	private XmlPullParserFactory parserFactory;
+	
+	/**
+	 * Holder for the text start and length used by
+	 * {@link XmlPullParser#getTextCharacters(int[])}.
+	 */
+	private int[] textHolder = new int[2];
+	
+	public void setPrimitiveTypeInitializer(PrimitiveTypeInitializer initializer) {
+		this.binder.setPrimitiveTypeInitializer(initializer);
+	}
+
+	/**
+	 * @see XmlBinder#setProjection(Projection)
+	 */
+	public void setProjection(Projection projection) {
+		this.binder.setProjection(projection);
+	}
+
+	public XmlPullParserHandler(MetaDataInitializer metaDataInitializer, ValueAdapterRegistry adapterRegistry) {
+		this.binder = new XmlBinder<T>(metaDataInitializer, adapterRegistry);
+	}
+
+	public T getValue() throws IllegalStateException {
+		return this.binder.getValue();
+	}
+
+	/**
+	 * @return the binder receiving the events of this parser.
+	 */
+	protected XmlBinder<T> getBinder() {
+		return binder;
+	}
+
+	/**
+	 * <p>Parses the <code>inputStream</code>. The encoding of the stream is
+	 * detected by the parser.</p>
+	 * 
+	 * @param inputStream - the XML document stream.
+	 * 
+	 * @throws XmlPullParserException if the document is not well-formed.
+	 * @throws IOException if the reading of the stream fails.
+	 * @throws DeserializationException if the binding of the values fails.
+	 */
+	public void parse(InputStream inputStream)
+			throws XmlPullParserException, IOException, DeserializationException {
+		
+		parse(createParser(inputStream));
+	}
+
+	/**
+	 * <p>Creates the parser for the <code>inputStream</code>. The encoding of
+	 * the stream is detected by the parser.</p>
+	 * 
+	 * @param inputStream - the XML document stream.
+	 * 
+	 * @return the parser positioned at the start of the document.
+	 * 
+	 * @throws XmlPullParserException if the parser can not be created.
+	 */
+	protected XmlPullParser createParser(InputStream inputStream) throws XmlPullParserException {
+		XmlPullParser parser = createParser();
+		parser.setInput(inputStream, null);
+		return parser;
+	}
+
+	/**
+	 * <p>Pulls the events from the <code>parser</code> until the end of the
+	 * document is reached.</p>
+	 * 
+	 * @param parser - parser with the input set.
+	 */
+	protected void parse(XmlPullParser parser)
+			throws XmlPullParserException, IOException, DeserializationException {
+		
+		Attributes attributes = createAttributes(parser);
+		this.binder.startDocument();
+		
+		while(processNext(parser, attributes) != XmlPullParser.END_DOCUMENT) {
+			continue;
+		}
+		
+		this.binder.endDocument();
+	}
+
+	/**
+	 * <p>Pulls the next event from the <code>parser</code> and delivers it to
+	 * the binder.</p>
+	 * 
+	 * @param parser - the parser.
+	 * @param attributes - the attributes view of the <code>parser</code>.
+	 * 
+	 * @return the type of the processed event.
+	 */
+	protected int processNext(XmlPullParser parser, Attributes attributes)
+			throws XmlPullParserException, IOException, DeserializationException {
+		
+		int event = parser.next();
+		
+		switch (event) {
+		case XmlPullParser.START_TAG:
+			if(!this.binder.startElement(parser.getNamespace(), parser.getName(), attributes)) {
+				skipSubtree(parser);
+			}
+			
+			break;
+		case XmlPullParser.TEXT:
+			char[] text = parser.getTextCharacters(this.textHolder);
+			this.binder.characters(text, this.textHolder[0], this.textHolder[1]);
+			break;
+		case XmlPullParser.END_TAG:
+			this.binder.endElement();
+			break;
+		default:
+			break;
+		}
+		
+		return event;
+	}
+
+	/**
+	 * @return new {@link Attributes} view of the <code>parser</code>'s
+	 * current start tag.
+	 */
+	protected Attributes createAttributes(XmlPullParser parser) {
+		return new PullParserAttributes(parser);
+	}
+
+	/**
+	 * <p>Moves the <code>parser</code> to the end tag of the current element.
+	 * No event of the skipped subtree is delivered to the binder.</p>
+	 */
+	private void skipSubtree(XmlPullParser parser) throws XmlPullParserException, IOException {
+		int depth = 1;
+		
+		while(depth > 0) {
+			switch (parser.next()) {
+			case XmlPullParser.START_TAG:
+				depth++;
+				break;
+			case XmlPullParser.END_TAG:
+				depth--;
+				break;
+			case XmlPullParser.END_DOCUMENT:
+				throw new XmlPullParserException("Unexpected end of document!", parser, null);
+			default:
+				break;
+			}
+		}
+	}
+
+	private XmlPullParser createParser() throws XmlPullParserException {
+		if(this.parserFactory == null) {
+			this.parserFactory = XmlPullParserFactory.newInstance();
+			this.parserFactory.setNamespaceAware(true);
+		}
+		
+		return this.parserFactory.newPullParser();
+	}
+
+	/**
+	 * <p>The {@link Attributes} view of the current start tag of the
+	 * {@link XmlPullParser}. No attribute value is copied, all calls are
+	 * delegated to the parser.</p>
+	 * 
+	 * @author Jan Janickovic
+	 */
+	private static class PullParserAttributes implements Attributes {
+		
+		private static final String TYPE_CDATA = "CDATA";
+		
+		private XmlPullParser parser;
+		
+		private PullParserAttributes(XmlPullParser parser) {
+			this.parser = parser;
+		}
+		
+		@Override
+		public int getLength() {
+			return this.parser.getAttributeCount();
+		}
+		
+		@Override
+		public String getURI(int index) {
+			return this.parser.getAttributeNamespace(index);
+		}
+		
+		@Override
+		public String getLocalName(int index) {
+			return this.parser.getAttributeName(index);
+		}
+		
+		@Override
+		public String getQName(int index) {
+			String prefix = this.parser.getAttributePrefix(index);
+			String name = this.parser.getAttributeName(index);
+			return prefix == null || prefix.isEmpty() ? name : prefix + ":" + name;
+		}
+		
+		@Override
+		public String getType(int index) {
+			return TYPE_CDATA;
+		}
+		
+		@Override
+		public String getValue(int index) {
+			return this.parser.getAttributeValue(index);
+		}
+		
+		@Override
+		public int getIndex(String uri, String localName) {
+			for(int i = 0; i < getLength(); i++) {
+				if(localName.equals(getLocalName(i)) && uri.equals(getURI(i))) {
+					return i;
+				}
+			}
+			
+			return -1;
+		}
+		
+		@Override
+		public int getIndex(String qName) {
+			for(int i = 0; i < getLength(); i++) {
+				if(qName.equals(getQName(i))) {
+					return i;
+				}
+			}
+			
+			return -1;
+		}
+		
+		@Override
+		public String getType(String uri, String localName) {
+			return getIndex(uri, localName) < 0 ? null : TYPE_CDATA;
+		}
+		
+		@Override
+		public String getType(String qName) {
+			return getIndex(qName) < 0 ? null : TYPE_CDATA;
+		}
+		
+		@Override
+		public String getValue(String uri, String localName) {
+			int index = getIndex(uri, localName);
+			return index < 0 ? null : getValue(index);
+		}
+		
+		@Override
+		public String getValue(String qName) {
+			int index = getIndex(qName);
+			return index < 0 ? null : getValue(index);
+		}
+	}
+
+}
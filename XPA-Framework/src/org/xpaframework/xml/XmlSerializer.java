@@ -1,14 +1,28 @@
 package org.xpaframework.xml;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.xml.XMLConstants;
 
+import org.xpaframework.BooleanValueAdapter;
+import org.xpaframework.CharValueAdapter;
+import org.xpaframework.DoubleValueAdapter;
+import org.xpaframework.IntValueAdapter;
+import org.xpaframework.LongValueAdapter;
+import org.xpaframework.PrintingValueAdapter;
 import org.xpaframework.SerializationException;
 import org.xpaframework.ValueAdapter;
 import org.xpaframework.ValueAdapterRegistry;
@@ -16,40 +30,140 @@ import org.xpaframework.xml.annotation.XmlRootElement;
 import org.xpaframework.xml.annotation.XmlValue;
 import org.xpaframework.xml.util.Logger;
 
-import android.util.Xml;
-
 /**
- * <p>Object to XML serialization class using
- * {@link org.xmlpull.v1.XmlSerializer} object to create XML output.</p>
+ * <p>Object to XML serialization class using {@link XmlOutput} backend to
+ * create XML output.</p>
+ * <p>The serializer with the executor set by
+ * {@link #setExecutor(ExecutorService, int)} encodes the large collections
+ * concurrently. The items are split into the chunks of consecutive items,
+ * each chunk is encoded into its own buffer by the task of the executor and
+ * the buffers are written to the output in the document order. The parallel
+ * mode requires the {@link Utf8XmlWriter} backend, the other backends
+ * serialize the collections sequentially.</p>
  * 
  * @author Jan Janickovic
+ * 
+ * @see OutputType
  */
 public class XmlSerializer {
 	
+	/**
+	 * Minimal count of the collection's items serialized concurrently.
+	 */
+	public static final int MIN_PARALLEL_ITEMS = 256;
+	
+	/**
+	 * Count of the chunks per thread of the executor. More chunks than
+	 * threads balance the different encoding time of the chunks.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	
+	/**
+	 * Minimal count of the items encoded by one task.
+	 */
+	private static final int MIN_CHUNK_ITEMS = 32;
+	
+	/**
+	 * Buffer size of the writers encoding the chunks. The writers flush into
+	 * the growing chunk buffers, so the small buffer is sufficient.
+	 */
+	private static final int FRAGMENT_BUFFER_SIZE = 8 * 1024;
+	
+	/**
+	 * Size of the buffer of the values printed by the
+	 * {@link PrintingValueAdapter}s.
+	 */
+	private static final int PRINT_BUFFER_SIZE = 64;
+	
 	private final Logger logger = Logger.getLogger(getClass());
 
-	private org.xmlpull.v1.XmlSerializer serializer;
+	private XmlOutput serializer;
+	private OutputType outputType;
 	
 	private MetaDataInitializer metaDataInitializer;
 	private ValueAdapterRegistry adapterRegistry;
 	
 	private Map<String, ElementInfo> serializationInfo;
+	private Map<ElementInfo, SerializationPlan> serializationPlans;
+	
+	/**
+	 * Whether the adapters and the enumeration tables resolved by the plans
+	 * are used. They are resolved from the registry of the meta-data, so
+	 * they are used only if the serializer has the same registry. Otherwise
+	 * the values are converted by the adapters of the serializer's registry.
+	 */
+	private boolean planAdapters;
+	
+	/**
+	 * The buffer of the printed values. The values are written from the
+	 * buffer to the output, so no {@link String} is created for them.
+	 */
+	private char[] printBuffer = new char[PRINT_BUFFER_SIZE];
+	
+	private ExecutorService executor;
+	private int parallelism;
+	
+	/**
+	 * Encoders of the chunks released by the finished tasks. The encoders and
+	 * their buffers are reused by the next chunks of the document.
+	 */
+	private Queue<Fragment> fragments;
 	
 	public XmlSerializer(MetaDataInitializer metaDataInitializer, ValueAdapterRegistry adapterRegistry)
 			throws IOException {
 		
+		this(metaDataInitializer, adapterRegistry, OutputType.PULL);
+	}
+
+	public XmlSerializer(MetaDataInitializer metaDataInitializer, ValueAdapterRegistry adapterRegistry,
+			OutputType outputType) throws IOException {
+		
 		this.metaDataInitializer = metaDataInitializer;
 		this.adapterRegistry = adapterRegistry;
-		this.serializer = Xml.newSerializer();
+		this.planAdapters = adapterRegistry == metaDataInitializer.getAdapterRegistry();
+		this.outputType = outputType;
+		this.serializer = outputType == OutputType.UTF8 ? new Utf8XmlWriter() : new XmlPullOutput();
 		
 		try {
 			this.serializationInfo = this.metaDataInitializer.getSerializationInfo();
+			this.serializationPlans = this.metaDataInitializer.getSerializationPlans();
 			this.logger.v( "meta-data:\r\n " + this.serializationInfo);
 		} catch (InterruptedException e) {
 			throw new RuntimeException("Metadata processing failure!", e);
 		}
 	}
 	
+	/**
+	 * Creates the sequential serializer of the chunks sharing the meta-data of
+	 * the <code>parent</code>.
+	 */
+	private XmlSerializer(XmlSerializer parent) {
+		this.metaDataInitializer = parent.metaDataInitializer;
+		this.adapterRegistry = parent.adapterRegistry;
+		this.planAdapters = parent.planAdapters;
+		this.serializationInfo = parent.serializationInfo;
+		this.serializationPlans = parent.serializationPlans;
+		this.outputType = OutputType.UTF8;
+		this.serializer = new Utf8XmlWriter(FRAGMENT_BUFFER_SIZE);
+	}
+
+	/**
+	 * <p>Enables the parallel serialization of the collections with at least
+	 * {@link #MIN_PARALLEL_ITEMS} items. The nested collections of the items
+	 * are serialized sequentially.</p>
+	 * 
+	 * @param executor - executor running the encoding tasks or
+	 * <code>null</code> to serialize sequentially. The executor is not shut
+	 * down by the serializer and the serialization must not be called from
+	 * its threads.
+	 * @param parallelism - count of the threads of the <code>executor</code>.
+	 */
+	public void setExecutor(ExecutorService executor, int parallelism) {
+		this.executor = executor;
+		this.parallelism = Math.max(1, parallelism);
+		this.fragments = new ConcurrentLinkedQueue<Fragment>();
+	}
+
 	/**
 	 * Serializes this <code>obj</code> to the specified output.
 	 * 
@@ -70,13 +184,13 @@ public class XmlSerializer {
 		}
 
 		XmlUtils.validateRoot(obj.getClass());
-		ElementInfo elementInfo = getElementInfo(obj.getClass(), null);
+		SerializationPlan plan = getRootPlan(obj.getClass());
 		
 		try {
 			this.serializer.setOutput(os, encoding);
 			this.serializer.startDocument(encoding, standalone);
 			
-			serialize(obj, elementInfo);
+			serialize(obj, plan);
 			
 			this.serializer.endDocument();
 			this.serializer.flush();
@@ -90,235 +204,549 @@ public class XmlSerializer {
 	}
 	
 	/**
-	 * <p>Serializes this object to XML format. This object's data are represented
-	 * by the <code>elementInfo</code> argument that holds all meta-data required
-	 * for XML serialization.</p>
+	 * <p>Serializes this object to XML format by its compiled plan. The plan
+	 * holds all meta-data required for XML serialization.</p>
 	 * <p>This method is used for standard serialization where the
-	 * {@link ElementInfo#getName()} represents name of the XML element. The non-standard
-	 * serialization is made by {@link #serialize(Object, ElementInfo, String, String)}
+	 * {@link SerializationPlan#getName()} represents name of the XML element.
+	 * The non-standard serialization is made by
+	 * {@link #serialize(Object, SerializationPlan, String, NamespaceInfo)}
 	 * method.</p>
 	 * 
 	 * @param obj - object to serialize.
-	 * @param elementInfo - element information required for serialization.
-	 * 
-	 * @throws IllegalArgumentException defined by {@link org.xmlpull.v1.XmlSerializer}
-	 * object or if no meta data information is found for currently serializing object.
+	 * @param plan - the serialization plan of the object's element.
 	 * 
-	 * @throws IllegalArgumentException defined by {@link org.xmlpull.v1.XmlSerializer} object.
-	 * @throws IllegalStateException defined by {@link org.xmlpull.v1.XmlSerializer} object.
-	 * @throws IOException defined by {@link org.xmlpull.v1.XmlSerializer} object.
+	 * @throws IllegalArgumentException defined by {@link XmlOutput} object.
+	 * @throws IllegalStateException defined by {@link XmlOutput} object.
+	 * @throws IOException defined by {@link XmlOutput} object.
 	 * 
-	 * @see #serialize(Object, ElementInfo, String, String)
+	 * @see #serialize(Object, SerializationPlan, String, NamespaceInfo)
 	 */
-	void serialize(Object obj, ElementInfo elementInfo)
+	void serialize(Object obj, SerializationPlan plan)
 			throws IllegalArgumentException, IllegalStateException, IOException {
 		
-		serialize(obj, elementInfo, elementInfo.getName(), elementInfo.getNamespace());
+		serialize(obj, plan, plan.getName(), plan.getNamespace());
 	}
 	
 	/**
-	 * <p>Serializes this object to XML format. This object's data are represented
-	 * by the <code>elementInfo</code> argument that holds all meta-data required
-	 * for XML serialization.</p>
+	 * <p>Serializes this object to XML format by its compiled plan.</p>
 	 * <p>The arguments <code>elementName</code> and <code>namespace</code> can
-	 * differ from those held in the {@link ElementInfo} object. This can happen
-	 * in inheritance, where the {@link ElementInfo#getName()} doesn't represent
-	 * XML element's name, but its type.</p>
+	 * differ from those held in the plan. This can happen in inheritance,
+	 * where the {@link SerializationPlan#getName()} doesn't represent XML
+	 * element's name, but its type.</p>
 	 * 
 	 * @param obj - object to serialize.
-	 * @param elementInfo - element information required for serialization.
+	 * @param plan - the serialization plan of the object's element.
 	 * @param elementName - the name of the XML element.
-	 * @param targetNamespace - the XML element's namespace.
+	 * @param namespace - the XML element's namespace.
 	 * 
-	 * @throws IllegalArgumentException defined by {@link org.xmlpull.v1.XmlSerializer}
-	 * object or if no meta data information is found for currently serializing object.
+	 * @throws IllegalArgumentException defined by {@link XmlOutput} object.
+	 * This exception is also thrown when the <code>plan</code> is <code>null</code>.
+	 * @throws IllegalStateException defined by {@link XmlOutput} object.
+	 * @throws IOException defined by {@link XmlOutput} object.
 	 * 
-	 * @throws IllegalArgumentException defined by {@link org.xmlpull.v1.XmlSerializer} object.
-	 * This exception is also thrown when the <code>elementInfo</code> is <code>null</code>.
-	 * @throws IllegalStateException defined by {@link org.xmlpull.v1.XmlSerializer} object.
-	 * @throws IOException defined by {@link org.xmlpull.v1.XmlSerializer} object.
-	 * 
-	 * @see #serialize(Object, ElementInfo)
+	 * @see #serialize(Object, SerializationPlan)
 	 */
-	@SuppressWarnings("unchecked")
-	void serialize(Object obj, ElementInfo elementInfo, String elementName, NamespaceInfo namespace)
+	void serialize(Object obj, SerializationPlan plan, String elementName, NamespaceInfo namespace)
 			throws IllegalArgumentException, IllegalStateException, IOException {
-		this.logger.v("Serializing object: " + obj + " of class: " + obj.getClass());
 		
-		if(elementInfo == null) {
-			String massageFormat = "[Object: %s, element: %s:%s]: ElementInfo object = null!";
+		if(plan == null) {
+			String massageFormat = "[Object: %s, element: %s:%s]: SerializationPlan object = null!";
 			String message = String.format(massageFormat, obj, namespace, elementName);
 			throw new IllegalArgumentException(message);
 		}
 
-		/*
-		 * 1 - Start element
-		 * 2 - bind all attribute of target object (including super class attributes).
-		 * 		The order is not important.
-		 * 3 - bind value if any.
-		 * 4 - create list of meta-objects containing: element name, target namespace,
-		 * 			object reference
-		 * 5 - based on XmlType order serialize and remove elements from the list, then
-		 * 		add remaining elements. This step calls recursively steps 1-5.
-		 */
-		
-		//1
 		this.serializer.setPrefix(namespace.getPrefix(), namespace.getNamespace());
 		this.serializer.startTag(namespace.getNamespace(), elementName);
 
 		/*
 		 * Simple types are supposed to have only its value, so they are serialized
-		 * into the plain string. Serializing values of simple type provides different way
-		 * so they need to be processed separately.
+		 * into the plain string. The complex types are serialized by the steps of
+		 * the plan: the attributes first, then the value and the nested elements
+		 * in the order defined by the XmlType annotation.
 		 */
-		if(XmlUtils.isSimpleType(obj.getClass(), true)) {
-			ValueAdapter<Object> adapter = (ValueAdapter<Object>) this.adapterRegistry.getAdapter(
-					obj.getClass());
-			this.serializer.text(adapter.toString(obj));
-		} else {//complex type serialization
-			//2
-			serializeAttributes(obj, elementInfo);
+		if(this.planAdapters && plan.getEnumTable() != null) {
+			this.serializer.text(plan.getEnumTable().getValue((Enum<?>) obj));
+		} else if(plan.isSimpleType()) {
+			ValueAdapter<?> adapter = getAdapter(getPlanAdapter(plan, obj.getClass()), obj);
+			int length = print(adapter, obj);
 			
-			//3 serialize value
-			if(elementInfo.hasValue()) {
-				serializeValue(obj, elementInfo.getValueField());
+			if(length >= 0) {
+				this.serializer.text(this.printBuffer, 0, length);
+			} else {
+				this.serializer.text(toString(adapter, obj));
 			}
-			
-			//4 (5 is implemented by recursive call of this method)
-			Class<?> mappingClass = elementInfo.getMappingClass();
-			NamespaceInfo targetNamespace = elementInfo.getNamespace();
-			serializeElements(obj, mappingClass, elementInfo.getOrder(), targetNamespace);
-			serializeElements(obj, mappingClass, elementInfo.getChildren(), targetNamespace);
+		} else {
+			serializeContent(obj, plan, null);
 		}
 		
 		this.serializer.endTag(namespace.getNamespace(), elementName);
 	}
-	
+
 	/**
-	 * <p>Serializes attributes of the <code>obj</code>.</p>
-	 *  
-	 * @param obj
-	 * @param elementInfo
-	 * @throws IllegalArgumentException
-	 * @throws IllegalStateException
-	 * @throws IOException
+	 * <p>Serializes the attributes, the value and the nested elements of the
+	 * complex type <code>obj</code>. The start tag of the element must be
+	 * written already.</p>
+	 * 
+	 * @param obj - object to serialize.
+	 * @param plan - the serialization plan of the object's element.
+	 * @param excluded - the step that is not serialized or <code>null</code>.
+	 * 
+	 * @throws IllegalArgumentException defined by {@link XmlOutput} object.
+	 * @throws IllegalStateException defined by {@link XmlOutput} object.
+	 * @throws IOException defined by {@link XmlOutput} object.
 	 */
-	@SuppressWarnings("unchecked")
-	void serializeAttributes(Object obj, ElementInfo elementInfo)
+	void serializeContent(Object obj, SerializationPlan plan, SerializationPlan.Step excluded)
 			throws IllegalArgumentException, IllegalStateException, IOException {
-
-		if(XmlUtils.hasAncestor(obj.getClass())) {
-			String type = XmlUtils.getElementType(obj.getClass());
-			
-			this.serializer.attribute(
-					XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
-					XmlUtils.ATTRIBUTE_TYPE, type);
+		
+		if(plan.getInheritedType() != null) {
+			this.serializer.attribute(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
+					XmlUtils.ATTRIBUTE_TYPE, plan.getInheritedType());
 		}
-
-		for(AttributeInfo attributeInfo : elementInfo.getAttributeInformations()) {
-			Field field = attributeInfo.getField();
-			Method getter = this.metaDataInitializer.getGetterMethod(field);
-			Object value = XmlUtils.invoke(getter, obj);
-			
-			if(value == null) {//skipping null values
+		
+		for(SerializationPlan.Step step : plan.getSteps()) {
+			if(step == excluded) {
 				continue;
 			}
 			
-			ValueAdapter<Object> adapter = (ValueAdapter<Object>) this.adapterRegistry.getAdapter(value.getClass());
-			String stringValue = adapter.toString(value);
-			this.serializer.attribute(attributeInfo.getNamespace().getPrefix(),
-					attributeInfo.getName(), stringValue);
+			switch(step.getKind()) {
+			case SerializationPlan.ATTRIBUTE:
+				serializeAttribute(obj, step);
+				break;
+			case SerializationPlan.VALUE:
+				serializeValue(obj, step);
+				break;
+			case SerializationPlan.ELEMENT:
+				serializeElement(obj, step);
+				break;
+			case SerializationPlan.COLLECTION:
+				serializeElements(obj, step);
+				break;
+			}
 		}
 	}
 	
 	/**
-	 * <p>Serializes nested elements of the target <code>obj</code>.</p>
-	 * 
-	 * @param obj
-	 * @param target
-	 * @param fields
-	 * @param namespace
-	 * @throws IOException
+	 * <p>Serializes the attribute of the <code>obj</code>. The <code>null</code>
+	 * values are skipped.</p>
 	 */
-	private void serializeElements(Object obj, Class<?> target, Collection<Field> fields, NamespaceInfo namespace)
-			throws IOException {
-		
-		for(Field field : fields) {
-			Method getter = this.metaDataInitializer.getGetterMethod(field);
-			Object value = XmlUtils.invoke(getter, obj);
+	private void serializeAttribute(Object obj, SerializationPlan.Step step)
+			throws IllegalArgumentException, IllegalStateException, IOException {
+
+		int length = step.isPrimitive() ? printDigits(step, obj) : -1;
+		String stringValue = step.isPrimitive() && length < 0 ? printPrimitive(step, obj) : null;
 			
+		if(length < 0 && stringValue == null) {
+			Object value = step.getAccessor().get(obj);
+
 			if(value == null) {//skipping null values
-				continue;
+				return;
 			}
 			
-			String elementName = XmlUtils.getElementName(field);
-			Class<? extends Object> valueClass = value.getClass();
-			
-			if(Collection.class.isAssignableFrom(valueClass)) {
-				serializeElements((Collection<?>) value, field, elementName);
+			if(this.planAdapters && step.getEnumTable() != null) {
+				stringValue = step.getEnumTable().getValue((Enum<?>) value);
 			} else {
-				ElementInfo elementInfo = getElementInfo(valueClass, field);
-				NamespaceInfo targetNamespace = this.metaDataInitializer.getNamespace(field);
-				
-				if(targetNamespace != null) {
-					namespace = targetNamespace;
-				}
-				
-				serialize(value, elementInfo);
+				ValueAdapter<?> adapter = getAdapter(getStepAdapter(step, value.getClass()), value);
+				length = print(adapter, value);
+				stringValue = length < 0 ? toString(adapter, value) : null;
 			}
+		}
+		
+		if(length >= 0) {
+			this.serializer.attribute(step.getNamespace().getPrefix(), step.getName(),
+					this.printBuffer, 0, length);
+		} else {
+			this.serializer.attribute(step.getNamespace().getPrefix(), step.getName(), stringValue);
+		}
+	}
 
+	/**
+	 * <p>Serializes the nested element of the target <code>obj</code>. The
+	 * <code>null</code> values are skipped.</p>
+	 */
+	private void serializeElement(Object obj, SerializationPlan.Step step)
+			throws IllegalArgumentException, IllegalStateException, IOException {
+			
+		int length = step.isPrimitive() ? printDigits(step, obj) : -1;
+		String primitiveValue = step.isPrimitive() && length < 0 ? printPrimitive(step, obj) : null;
+			
+		if(length >= 0 || primitiveValue != null) {
+			NamespaceInfo namespace = step.getNamespace();
+			
+			this.serializer.setPrefix(namespace.getPrefix(), namespace.getNamespace());
+			this.serializer.startTag(namespace.getNamespace(), step.getName());
+			
+			if(length >= 0) {
+				this.serializer.text(this.printBuffer, 0, length);
+			} else {
+				this.serializer.text(primitiveValue);
+			}
+			
+			this.serializer.endTag(namespace.getNamespace(), step.getName());
+			return;
+		}
+			
+		Object value = step.getAccessor().get(obj);
+			
+		if(value != null) {
+			serialize(value, getPlan(step, value.getClass()));
 		}
 	}
 
 	/**
+	 * <p>Serializes the items of the collection held by the target
+	 * <code>obj</code>. Each item is serialized as the element named by the
+	 * collection's field.</p>
 	 * 
-	 * @param collection - collection to serialize.
-	 * 
-	 * @throws IllegalArgumentException thrown by {@link org.xmlpull.v1.XmlSerializer} object.
-	 * @throws IllegalStateException thrown by {@link org.xmlpull.v1.XmlSerializer} object.
-	 * @throws IOException thrown by {@link org.xmlpull.v1.XmlSerializer} object.
+	 * @throws IllegalArgumentException thrown by {@link XmlOutput} object.
+	 * @throws IllegalStateException thrown by {@link XmlOutput} object.
+	 * @throws IOException thrown by {@link XmlOutput} object.
 	 */
-	void serializeElements(Collection<?> collection, Field owner, String elementName)
+	void serializeElements(Object obj, SerializationPlan.Step step)
 			throws IllegalArgumentException, IllegalStateException, IOException {
 
+		Collection<?> collection = (Collection<?>) step.getAccessor().get(obj);
+		
 		if(collection == null || collection.isEmpty()) {
 			return;
 		}
 
-		for(Object obj : collection) {
-			ElementInfo elementInfo = getElementInfo(obj.getClass(), owner);
-			serialize(obj, elementInfo, elementName, elementInfo.getNamespace());
+		if(this.executor != null && this.parallelism > 1 && collection.size() >= MIN_PARALLEL_ITEMS
+				&& this.serializer instanceof Utf8XmlWriter) {
+			
+			serializeElements(collection.toArray(), step);
+			return;
+		}
+		
+		for(Object item : collection) {
+			serializeItem(item, step);
+		}
+	}
+
+	/**
+	 * <p>Serializes the <code>items</code> by the tasks of the executor. The
+	 * count of the chunks encoded at once is limited, so the memory used by
+	 * the buffers does not depend on the size of the collection.</p>
+	 * 
+	 * @throws InterruptedIOException if the thread is interrupted while
+	 * waiting for the chunk.
+	 */
+	private void serializeElements(Object[] items, SerializationPlan.Step step)
+			throws IllegalArgumentException, IllegalStateException, IOException {
+		
+		Utf8XmlWriter writer = (Utf8XmlWriter) this.serializer;
+		int chunkCount = this.parallelism * CHUNKS_PER_THREAD;
+		int chunkSize = Math.max(MIN_CHUNK_ITEMS, (items.length + chunkCount - 1) / chunkCount);
+		LinkedList<Future<Fragment>> results = new LinkedList<Future<Fragment>>();
+		int next = 0;
+		
+		try {
+			while(next < items.length || !results.isEmpty()) {
+				while(next < items.length && results.size() < this.parallelism * 2) {
+					int end = Math.min(next + chunkSize, items.length);
+					results.add(this.executor.submit(new ChunkTask(items, next, end, step, writer)));
+					next = end;
+				}
+				
+				Fragment fragment = results.removeFirst().get();
+				writer.append(fragment.buffer.getBuffer(), 0, fragment.buffer.size());
+				this.fragments.offer(fragment);
+			}
+		} catch (InterruptedException e) {
+			cancel(results);
+			Thread.currentThread().interrupt();
+			InterruptedIOException exception = new InterruptedIOException("Serialization interrupted!");
+			exception.initCause(e);
+			throw exception;
+		} catch (ExecutionException e) {
+			cancel(results);
+			Throwable cause = e.getCause();
+			
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			
+			throw new IllegalStateException("Chunk serialization failure!", cause);
+		}
+	}
+
+	private void cancel(Collection<Future<Fragment>> results) {
+		for(Future<Fragment> result : results) {
+			result.cancel(true);
 		}
 	}
 	
+	/**
+	 * <p>Serializes one item of the collection as the element named by the
+	 * collection's field.</p>
+	 * 
+	 * @param item - the item to serialize.
+	 * @param step - the step of the collection's field.
+	 * 
+	 * @throws IllegalArgumentException thrown by {@link XmlOutput} object.
+	 * @throws IllegalStateException thrown by {@link XmlOutput} object.
+	 * @throws IOException thrown by {@link XmlOutput} object.
+	 */
+	void serializeItem(Object item, SerializationPlan.Step step)
+			throws IllegalArgumentException, IllegalStateException, IOException {
+		
+		SerializationPlan plan = getPlan(step, item.getClass());
+		serialize(item, plan, step.getName(), plan.getNamespace());
+	}
+
+	/**
+	 * <p>Releases the output stream of the last document, so the serializer
+	 * can be reused without holding the stream. The backend keeps its buffers
+	 * for the next document.</p>
+	 */
+	void release() throws IOException {
+		this.serializer.setOutput(null, null);
+	}
+
+	/**
+	 * @return <code>true</code> if this serializer was created for the
+	 * <code>adapterRegistry</code> and the <code>outputType</code>.
+	 */
+	boolean isCreatedFor(ValueAdapterRegistry adapterRegistry, OutputType outputType) {
+		return this.adapterRegistry == adapterRegistry && this.outputType == outputType;
+	}
+
+	/**
+	 * @return the output backend of this serializer.
+	 */
+	XmlOutput getOutput() {
+		return this.serializer;
+	}
+
+	/**
+	 * @return the plan of the root element represented by the
+	 * <code>rootClass</code>.
+	 * 
+	 * @throws NullPointerException if no meta-data exist for the class.
+	 */
+	SerializationPlan getRootPlan(Class<?> rootClass) throws NullPointerException {
+		return this.serializationPlans.get(getElementInfo(rootClass, null));
+	}
+
 	/**
 	 * <p>Serializes value of the <code>obj</code> representing XML complex type.</p>
 	 * <p>This serialization method serves only for complex type elements that contain
 	 * field annotated with {@link XmlValue} annotation.</p>
 	 * 
 	 * @param obj - object representing XML element.
-	 * @param field - the value owner. This field is to create appropriate getter
-	 * method to retrieve value on the <code>obj</code>.
+	 * @param step - the step of the value field.
 	 * 
-	 * @throws IllegalArgumentException thrown by {@link org.xmlpull.v1.XmlSerializer#
+	 * @throws IllegalArgumentException thrown by {@link XmlOutput#
 	 * text(String)} method.
-	 * @throws IllegalStateException thrown by {@link org.xmlpull.v1.XmlSerializer#
+	 * @throws IllegalStateException thrown by {@link XmlOutput#
 	 * text(String)} method.
-	 * @throws IOException thrown by {@link org.xmlpull.v1.XmlSerializer#
+	 * @throws IOException thrown by {@link XmlOutput#
 	 * text(String)} method.
 	 * 
 	 * @see {@link XmlValue}
 	 */
-	void serializeValue(Object obj, Field field)
+	void serializeValue(Object obj, SerializationPlan.Step step)
 			throws IllegalArgumentException, IllegalStateException, IOException {
 
-		Method getter = this.metaDataInitializer.getGetterMethod(field);
-		Object value = XmlUtils.invoke(getter, obj);
+		int length = step.isPrimitive() ? printDigits(step, obj) : -1;
+		String primitiveValue = step.isPrimitive() && length < 0 ? printPrimitive(step, obj) : null;
 		
-		if(value != null) {
-			this.serializer.text(value.toString());
+		if(length < 0 && primitiveValue == null) {
+			Object value = step.getAccessor().get(obj);
+			
+			if(value == null) {
+				return;
+			}
+			
+			ValueAdapter<?> adapter = getStepAdapter(step, value.getClass());
+			length = adapter instanceof PrintingValueAdapter ? print(adapter, value) : -1;
+			primitiveValue = length < 0 ? value.toString() : null;
+		}
+		
+		if(length >= 0) {
+			this.serializer.text(this.printBuffer, 0, length);
+		} else {
+			this.serializer.text(primitiveValue);
+		}
+	}
+
+	/**
+	 * <p>Prints the value of the primitive field by the primitive-specialized
+	 * adapter, so the value of the field without the getter is not
+	 * boxed.</p>
+	 * 
+	 * @return the string representation of the value or <code>null</code> if
+	 * the adapter is not specialized for the field's type.
+	 * 
+	 * @see IntValueAdapter
+	 * @see LongValueAdapter
+	 * @see DoubleValueAdapter
+	 * @see BooleanValueAdapter
+	 * @see CharValueAdapter
+	 */
+	private String printPrimitive(SerializationPlan.Step step, Object obj) {
+		PropertyAccessor accessor = step.getAccessor();
+		Class<?> type = step.getField().getType();
+		ValueAdapter<?> adapter = getStepAdapter(step, type);
+		
+		if(adapter == null) {
+			adapter = this.adapterRegistry.getAdapter(type);
+		}
+		
+		if(type == int.class && adapter instanceof IntValueAdapter) {
+			return ((IntValueAdapter<?>) adapter).printInt(accessor.getInt(obj));
+		} else if(type == long.class && adapter instanceof LongValueAdapter) {
+			return ((LongValueAdapter<?>) adapter).printLong(accessor.getLong(obj));
+		} else if(type == double.class && adapter instanceof DoubleValueAdapter) {
+			return ((DoubleValueAdapter<?>) adapter).printDouble(accessor.getDouble(obj));
+		} else if(type == boolean.class && adapter instanceof BooleanValueAdapter) {
+			return ((BooleanValueAdapter<?>) adapter).printBoolean(accessor.getBoolean(obj));
+		} else if(type == char.class && adapter instanceof CharValueAdapter) {
+			return ((CharValueAdapter<?>) adapter).printChar(accessor.getChar(obj));
+		}
+		
+		return null;
+	}
+
+	/**
+	 * <p>Prints the value of the <code>int</code>, <code>long</code> or
+	 * <code>double</code> field into the {@link #printBuffer}, so no string
+	 * is created and the value of the field without the getter is not
+	 * boxed.</p>
+	 * 
+	 * @return the count of the printed characters or <code>-1</code> if the
+	 * value was not printed.
+	 * 
+	 * @see #printPrimitive(SerializationPlan.Step, Object)
+	 */
+	private int printDigits(SerializationPlan.Step step, Object obj) {
+		Class<?> type = step.getField().getType();
+		
+		if(type != int.class && type != long.class && type != double.class) {
+			return -1;
+		}
+		
+		ValueAdapter<?> adapter = getStepAdapter(step, type);
+		
+		if(adapter == null) {
+			adapter = this.adapterRegistry.getAdapter(type);
+		}
+		
+		if(type == int.class && adapter instanceof IntValueAdapter) {
+			return ((IntValueAdapter<?>) adapter).printInt(step.getAccessor().getInt(obj), this.printBuffer, 0);
+		} else if(type == long.class && adapter instanceof LongValueAdapter) {
+			return ((LongValueAdapter<?>) adapter).printLong(step.getAccessor().getLong(obj), this.printBuffer, 0);
+		} else if(type == double.class && adapter instanceof DoubleValueAdapter) {
+			return printDouble((DoubleValueAdapter<?>) adapter, step.getAccessor().getDouble(obj));
+		}
+		
+		return -1;
+	}
+
+	/**
+	 * <p>Prints the <code>double</code> value into the {@link #printBuffer}.
+	 * The values not printed into the buffer by the adapter are printed to
+	 * the string first, so the field is read only once.</p>
+	 * 
+	 * @return the count of the printed characters or <code>-1</code> if the
+	 * value was not printed.
+	 */
+	private int printDouble(DoubleValueAdapter<?> adapter, double value) {
+		int length = adapter.printDouble(value, this.printBuffer, 0);
+		
+		if(length >= 0) {
+			return length;
+		}
+		
+		String printed = adapter.printDouble(value);
+		
+		if(printed == null || printed.length() > this.printBuffer.length) {
+			return -1;
+		}
+		
+		printed.getChars(0, printed.length(), this.printBuffer, 0);
+		return printed.length();
+	}
+
+	/**
+	 * <p>Prints the <code>value</code> into the {@link #printBuffer} by the
+	 * {@link PrintingValueAdapter}.</p>
+	 * 
+	 * @param adapter - the resolved adapter of the value.
+	 * @param value - the printed value.
+	 * 
+	 * @return the count of the printed characters or <code>-1</code> if the
+	 * adapter does not print into the buffer or the value was not printed.
+	 */
+	@SuppressWarnings("unchecked")
+	private int print(ValueAdapter<?> adapter, Object value) {
+		if(adapter instanceof PrintingValueAdapter) {
+			return ((PrintingValueAdapter<Object>) adapter).print(value, this.printBuffer, 0);
+		}
+		
+		return -1;
+	}
+
+	/**
+	 * @return the adapter of the <code>valueType</code> resolved by the
+	 * <code>plan</code> or <code>null</code> if the plan adapters are not
+	 * used.
+	 * 
+	 * @see #planAdapters
+	 */
+	private ValueAdapter<?> getPlanAdapter(SerializationPlan plan, Class<?> valueType) {
+		return this.planAdapters ? plan.getAdapter(valueType) : null;
+	}
+
+	/**
+	 * @return the adapter of the <code>valueType</code> resolved by the
+	 * <code>step</code> or <code>null</code> if the plan adapters are not
+	 * used.
+	 * 
+	 * @see #planAdapters
+	 */
+	private ValueAdapter<?> getStepAdapter(SerializationPlan.Step step, Class<?> valueType) {
+		return this.planAdapters ? step.getAdapter(valueType) : null;
+	}
+
+	/**
+	 * @return the resolved <code>adapter</code> or the adapter registered for
+	 * the value's class if the adapter was not resolved.
+	 */
+	private ValueAdapter<?> getAdapter(ValueAdapter<?> adapter, Object value) {
+		if(adapter == null) {
+			adapter = this.adapterRegistry.getAdapter(value.getClass());
+		}
+		
+		return adapter;
+	}
+
+	/**
+	 * @return the string representation of the <code>value</code> by the
+	 * resolved <code>adapter</code> or by the adapter registered for the
+	 * value's class if the adapter was not resolved.
+	 */
+	@SuppressWarnings("unchecked")
+	private String toString(ValueAdapter<?> adapter, Object value) {
+		return ((ValueAdapter<Object>) getAdapter(adapter, value)).toString(value);
+	}
+
+	/**
+	 * @return the plan of the element of the <code>valueType</code> held by
+	 * the field of the <code>step</code>. The types not resolved by the plan
+	 * creation are looked up in the serialization meta-data.
+	 */
+	private SerializationPlan getPlan(SerializationPlan.Step step, Class<?> valueType) {
+		SerializationPlan plan = step.getPlan(valueType);
+		
+		if(plan == null) {
+			plan = this.serializationPlans.get(getElementInfo(valueType, step.getField()));
 		}
 		
+		return plan;
 	}
 	
 	private ElementInfo getElementInfo(Class<?> clazz, Field field) throws NullPointerException {
@@ -345,4 +773,74 @@ public class XmlSerializer {
 		return elementInfo;
 	}
 	
+	/**
+	 * Buffer of the encoded chunk exposing its content without copying.
+	 */
+	private static class FragmentBuffer extends ByteArrayOutputStream {
+		
+		private FragmentBuffer() {
+			super(FRAGMENT_BUFFER_SIZE);
+		}
+		
+		private byte[] getBuffer() {
+			return this.buf;
+		}
+	}
+
+	/**
+	 * Sequential serializer of the chunks with its buffer.
+	 */
+	private static class Fragment {
+		
+		private XmlSerializer serializer;
+		private FragmentBuffer buffer = new FragmentBuffer();
+		
+		private Fragment(XmlSerializer serializer) {
+			this.serializer = serializer;
+		}
+	}
+
+	/**
+	 * Task encoding the consecutive items of the collection into the buffer
+	 * of the pooled fragment.
+	 */
+	private class ChunkTask implements Callable<Fragment> {
+		
+		private Object[] items;
+		private int start;
+		private int end;
+		private SerializationPlan.Step step;
+		private Utf8XmlWriter parent;
+		
+		private ChunkTask(Object[] items, int start, int end, SerializationPlan.Step step,
+				Utf8XmlWriter parent) {
+			
+			this.items = items;
+			this.start = start;
+			this.end = end;
+			this.step = step;
+			this.parent = parent;
+		}
+		
+		@Override
+		public Fragment call() throws IOException {
+			Fragment fragment = fragments.poll();
+			
+			if(fragment == null) {
+				fragment = new Fragment(new XmlSerializer(XmlSerializer.this));
+			}
+			
+			fragment.buffer.reset();
+			Utf8XmlWriter writer = (Utf8XmlWriter) fragment.serializer.serializer;
+			writer.setFragmentOutput(fragment.buffer, this.parent);
+			
+			for(int i = this.start; i < this.end; i++) {
+				fragment.serializer.serializeItem(this.items[i], this.step);
+			}
+			
+			writer.flush();
+			return fragment;
+		}
+	}
+
 }
@@ -0,0 +1,226 @@
+package org.xpaframework.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import org.xpaframework.SerializationException;
+import org.xpaframework.ValueAdapterRegistry;
+
+
+/**
+ * <p>Writer serializing the repeated elements of the XML document one by one.
+ * The root element is opened by {@link #start(Object)}, each item is
+ * serialized as soon as it is passed to {@link #write(Object)} and the root
+ * element is closed by {@link #finish()}. The items are not collected by
+ * the root object, so the document of any size can be written in constant
+ * memory.</p>
+ * <p>The items are selected by the path of the element names starting with
+ * the root element, e.g. <code>"orders/order"</code> writes the
+ * <code>order</code> elements of the <code>orders</code> root element. The
+ * item element must be mapped by the collection field of the root class.</p>
+ * <p>The writer is created by
+ * {@link XmlContext#createStreamWriter(Class, Class, String, OutputStream)}
+ * method. The output stream is flushed by {@link #finish()} method, but it
+ * is not closed.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <E> - type of the written items.
+ * 
+ * @see XmlContext#createStreamWriter(Class, Class, String, OutputStream)
+ */
+public class XmlStreamWriter<E> {
+	
+	private XmlSerializer serializer;
+	private XmlOutput output;
+	
+	private Class<?> rootClass;
+	private SerializationPlan rootPlan;
+	private SerializationPlan.Step itemStep;
+	
+	private OutputStream outputStream;
+	private String encoding;
+	private Boolean standalone;
+	
+	private boolean started;
+	private boolean finished;
+	
+	protected XmlStreamWriter(MetaDataInitializer metaDataInitializer, ValueAdapterRegistry adapterRegistry,
+			OutputType outputType, Class<?> rootClass, Class<E> itemType, String path,
+			OutputStream outputStream, String encoding, Boolean standalone)
+			throws IllegalArgumentException, SerializationException {
+		
+		String[] names = path.split(XmlIterator.PATH_DELIMITER);
+		
+		if(names.length != 2) {
+			throw new IllegalArgumentException("Item path must contain root and item element: " + path);
+		}
+		
+		XmlUtils.validateRoot(rootClass);
+		
+		try {
+			this.serializer = new XmlSerializer(metaDataInitializer, adapterRegistry, outputType);
+		} catch (IOException e) {
+			throw new SerializationException("Serializer creation failed!", e);
+		}
+		
+		this.output = this.serializer.getOutput();
+		this.rootClass = rootClass;
+		this.rootPlan = this.serializer.getRootPlan(rootClass);
+		
+		if(!this.rootPlan.getName().equals(names[0])) {
+			throw new IllegalArgumentException("Root element mismatch: " + names[0]);
+		}
+		
+		for(SerializationPlan.Step step : this.rootPlan.getSteps()) {
+			if(step.getKind() == SerializationPlan.COLLECTION && step.getName().equals(names[1])) {
+				this.itemStep = step;
+				break;
+			}
+		}
+		
+		if(this.itemStep == null) {
+			throw new IllegalArgumentException("No repeated element " + names[1] + " in " + names[0]);
+		}
+		
+		if(!XmlUtils.getCollectionType(this.itemStep.getField()).isAssignableFrom(itemType)) {
+			throw new IllegalArgumentException("Item type " + itemType.getName() +
+					" is not assignable to the element " + names[1]);
+		}
+		
+		this.outputStream = outputStream;
+		this.encoding = encoding;
+		this.standalone = standalone;
+	}
+
+	/**
+	 * <p>Writes the XML declaration and the start tag of the root element.
+	 * The attributes and all other elements of the <code>root</code> object
+	 * are written before the items, the collection of the items held by the
+	 * <code>root</code> is ignored.</p>
+	 * 
+	 * @param root - the root element object or <code>null</code> if the root
+	 * element has no content except the items.
+	 * 
+	 * @throws IllegalStateException if the writer was started already.
+	 * @throws SerializationException if the writing fails.
+	 */
+	public void start(Object root) throws IllegalStateException, SerializationException {
+		if(this.started) {
+			throw new IllegalStateException("Writer already started!");
+		}
+		
+		if(root != null && !this.rootClass.isInstance(root)) {
+			throw new SerializationException("Root object is not an instance of " + this.rootClass);
+		}
+		
+		this.started = true;
+		NamespaceInfo namespace = this.rootPlan.getNamespace();
+		
+		try {
+			this.output.setOutput(this.outputStream, this.encoding);
+			this.output.startDocument(this.encoding, this.standalone);
+			this.output.setPrefix(namespace.getPrefix(), namespace.getNamespace());
+			this.output.startTag(namespace.getNamespace(), this.rootPlan.getName());
+			
+			if(root != null) {
+				this.serializer.serializeContent(root, this.rootPlan, this.itemStep);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new SerializationException("Serialization error!", e);
+		} catch (IllegalStateException e) {
+			throw new SerializationException("Serialization error!", e);
+		} catch (IOException e) {
+			throw new SerializationException("Serialization error!", e);
+		}
+	}
+
+	/**
+	 * <p>Serializes the <code>item</code> as the next repeated element of the
+	 * root element. The <code>null</code> items are skipped as the
+	 * <code>null</code> values of the collection.</p>
+	 * 
+	 * @param item - the item to write.
+	 * 
+	 * @throws IllegalStateException if the writer is not started or is
+	 * finished already.
+	 * @throws SerializationException if the writing fails.
+	 */
+	public void write(E item) throws IllegalStateException, SerializationException {
+		checkWritable();
+		
+		if(item == null) {
+			return;
+		}
+		
+		try {
+			this.serializer.serializeItem(item, this.itemStep);
+		} catch (IllegalArgumentException e) {
+			throw new SerializationException("Serialization error!", e);
+		} catch (IllegalStateException e) {
+			throw new SerializationException("Serialization error!", e);
+		} catch (IOException e) {
+			throw new SerializationException("Serialization error!", e);
+		}
+	}
+
+	/**
+	 * <p>Serializes all remaining items of the <code>items</code> iterator.
+	 * The items are pulled from the iterator one by one, so the iterator can
+	 * produce them lazily, e.g. from a database cursor.</p>
+	 * 
+	 * @param items - the producer of the items.
+	 * 
+	 * @throws IllegalStateException if the writer is not started or is
+	 * finished already.
+	 * @throws SerializationException if the writing fails.
+	 * 
+	 * @see #write(Object)
+	 */
+	public void write(Iterator<? extends E> items) throws IllegalStateException, SerializationException {
+		checkWritable();
+		
+		while(items.hasNext()) {
+			write(items.next());
+		}
+	}
+
+	/**
+	 * <p>Writes the end tag of the root element, finishes the document and
+	 * flushes the output stream. The stream is not closed.</p>
+	 * 
+	 * @throws IllegalStateException if the writer is not started or is
+	 * finished already.
+	 * @throws SerializationException if the writing fails.
+	 */
+	public void finish() throws IllegalStateException, SerializationException {
+		checkWritable();
+		this.finished = true;
+		NamespaceInfo namespace = this.rootPlan.getNamespace();
+		
+		try {
+			this.output.endTag(namespace.getNamespace(), this.rootPlan.getName());
+			this.output.endDocument();
+			this.output.flush();
+			this.outputStream.flush();
+		} catch (IllegalArgumentException e) {
+			throw new SerializationException("Serialization error!", e);
+		} catch (IllegalStateException e) {
+			throw new SerializationException("Serialization error!", e);
+		} catch (IOException e) {
+			throw new SerializationException("Serialization error!", e);
+		}
+	}
+
+	private void checkWritable() throws IllegalStateException {
+		if(!this.started) {
+			throw new IllegalStateException("Writer not started!");
+		}
+		
+		if(this.finished) {
+			throw new IllegalStateException("Writer already finished!");
+		}
+	}
+
+}
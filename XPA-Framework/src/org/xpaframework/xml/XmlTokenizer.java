@@ -0,0 +1,1031 @@
+package org.xpaframework.xml;
+
+import java.nio.ByteBuffer;
+
+import org.xml.sax.Attributes;
+import org.xpaframework.DeserializationException;
+
+
+/**
+ * <p>Incremental XML tokenizer delivering the document events to the
+ * {@link XmlBinder}. The document is pushed by the chunks of bytes by
+ * {@link #feed(ByteBuffer)} method, the tokenizer never blocks and never
+ * reads any input by itself. The bytes are decoded directly from the fed
+ * buffers, only the token split at the end of the chunk is copied to the
+ * internal buffer until the next chunk completes it.</p>
+ * <p>The tokenizer supports the documents encoded in UTF-8, US-ASCII and
+ * ISO-8859-1. The namespaces, the predefined and character entity references,
+ * the CDATA sections and the line end normalization are processed as by the
+ * namespace aware SAX parser. The document type declaration is skipped, so
+ * the entities and default attributes declared by the internal DTD subset
+ * are not supported, such documents are rejected by
+ * {@link #isSupported(ByteBuffer)} and fail the feeding as soon as the
+ * subset is reached.</p>
+ * <p>The subtrees of the elements with no meta-data are skipped without any
+ * binding, the names of the elements and attributes are cached, so no
+ * {@link String} is created for the repeated names.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @param <T> - type of the root element.
+ * 
+ * @see XmlFeeder
+ * @see XmlBinder
+ */
+public class XmlTokenizer<T extends Object> {
+	
+	private static final String XML_PREFIX = "xml";
+	private static final String XML_NAMESPACE = "http://www.w3.org/XML/1998/namespace";
+	private static final String XMLNS = "xmlns";
+	
+	private static final byte[] COMMENT_START = {'<', '!', '-', '-'};
+	private static final byte[] COMMENT_END = {'-', '-', '>'};
+	private static final byte[] CDATA_START = {'<', '!', '[', 'C', 'D', 'A', 'T', 'A', '['};
+	private static final byte[] CDATA_END = {']', ']', '>'};
+	private static final byte[] PI_END = {'?', '>'};
+	private static final byte[] ENCODING = {'e', 'n', 'c', 'o', 'd', 'i', 'n', 'g'};
+	
+	private XmlBinder<T> binder;
+	
+	/**
+	 * Listener of the items released by the binder or <code>null</code>.
+	 */
+	private XmlFeeder.ItemListener<Object> itemListener;
+	
+	private boolean started;
+	private boolean finished;
+	private boolean latin1;
+	
+	/**
+	 * Bytes of the token not completed by the last fed chunk.
+	 */
+	private byte[] carry = new byte[256];
+	private int carryLength;
+	
+	private NameCache names = new NameCache();
+	private char[] chars = new char[256];
+	
+	//element stack
+	private Name[] elementNames = new Name[16];
+	private int[] namespaceMarks = new int[16];
+	private int depth;
+	private int skipDepth;
+	
+	//namespace declarations in scope
+	private String[] namespacePrefixes = new String[16];
+	private String[] namespaceUris = new String[16];
+	private int namespaceCount;
+	
+	private TokenizerAttributes attributes = new TokenizerAttributes();
+	
+	public XmlTokenizer(XmlBinder<T> binder) {
+		this.binder = binder;
+	}
+
+	/**
+	 * @param itemListener - listener of the items released by the binder.
+	 * 
+	 * @see XmlBinder#setItemPath(String[])
+	 */
+	@SuppressWarnings("unchecked")
+	public void setItemListener(XmlFeeder.ItemListener<?> itemListener) {
+		this.itemListener = (XmlFeeder.ItemListener<Object>) itemListener;
+	}
+
+	/**
+	 * @return <code>true</code> if the end tag of the root element has been
+	 * processed.
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * <p>Processes all remaining bytes of the <code>input</code>. The events of
+	 * all completed tokens are delivered to the binder, the incomplete token
+	 * at the end of the input is kept until the next call. The bytes following
+	 * the root element are ignored.</p>
+	 * 
+	 * @param input - the next chunk of the document. The position of the
+	 * buffer is moved to its limit.
+	 * 
+	 * @throws DeserializationException if the document is not well-formed or
+	 * the binding fails.
+	 */
+	public void feed(ByteBuffer input) throws DeserializationException {
+		while(this.carryLength > 0 && input.hasRemaining() && !this.finished) {
+			//the appended part grows with the carried token to keep the copying linear
+			int appended = Math.min(input.remaining(), Math.max(this.carryLength, 1024));
+			ensureCarry(this.carryLength + appended);
+			input.get(this.carry, this.carryLength, appended);
+			this.carryLength += appended;
+			
+			ByteBuffer carried = ByteBuffer.wrap(this.carry, 0, this.carryLength);
+			int processed = process(carried, 0, this.carryLength, false);
+			int tail = this.carryLength - processed;
+			
+			if(tail <= appended) {
+				//the rest is taken from the input again
+				input.position(input.position() - tail);
+				this.carryLength = 0;
+			} else {
+				System.arraycopy(this.carry, processed, this.carry, 0, tail);
+				this.carryLength = tail;
+			}
+		}
+		
+		if(this.finished) {
+			input.position(input.limit());
+			return;
+		}
+		
+		int processed = process(input, input.position(), input.limit(), false);
+		int tail = input.limit() - processed;
+		
+		if(tail > 0) {
+			ensureCarry(this.carryLength + tail);
+			input.position(processed);
+			input.get(this.carry, this.carryLength, tail);
+			this.carryLength += tail;
+		}
+		
+		input.position(input.limit());
+	}
+
+	/**
+	 * <p>Signals the end of the document input.</p>
+	 * 
+	 * @throws DeserializationException if the root element was not
+	 * completed.
+	 */
+	public void finish() throws DeserializationException {
+		if(!this.finished && this.carryLength > 0) {
+			ByteBuffer carried = ByteBuffer.wrap(this.carry, 0, this.carryLength);
+			this.carryLength -= process(carried, 0, this.carryLength, true);
+		}
+		
+		if(!this.finished) {
+			throw new DeserializationException("Unexpected end of document!");
+		}
+	}
+
+	/**
+	 * @return the position of the first byte not processed.
+	 */
+	private int process(ByteBuffer buffer, int position, int limit, boolean last)
+			throws DeserializationException {
+		
+		if(!this.started) {
+			position = startDocument(buffer, position, limit, last);
+			
+			if(!this.started) {
+				return position;
+			}
+		}
+		
+		while(position < limit && !this.finished) {
+			int end = processToken(buffer, position, limit, last);
+			
+			if(end < 0) {
+				break;
+			}
+			
+			position = end;
+		}
+		
+		return position;
+	}
+
+	private int startDocument(ByteBuffer buffer, int position, int limit, boolean last)
+			throws DeserializationException {
+		
+		if(limit - position < 3 && !last) {
+			return position;
+		}
+		
+		int first = limit > position ? buffer.get(position) & 0xFF : 0;
+		
+		if(first == 0xFE || first == 0xFF || first == 0) {
+			throw new DeserializationException("Unsupported document encoding!");
+		} else if(first == 0xEF && limit - position >= 3) {
+			position += 3;
+		}
+		
+		this.started = true;
+		this.binder.startDocument();
+		return position;
+	}
+
+	/**
+	 * @return the position following the token or <code>-1</code> if the
+	 * token is not complete.
+	 */
+	private int processToken(ByteBuffer buffer, int position, int limit, boolean last)
+			throws DeserializationException {
+		
+		if(buffer.get(position) != '<') {
+			int end = indexOf(buffer, position, limit, (byte) '<');
+			
+			if(end < 0) {
+				if(!last) {
+					return -1;
+				}
+				
+				end = limit;
+			}
+			
+			text(buffer, position, end);
+			return end;
+		}
+		
+		if(limit - position < CDATA_START.length && !last) {
+			return -1;
+		}
+		
+		byte next = position + 1 < limit ? buffer.get(position + 1) : 0;
+		
+		if(next == '?') {
+			int end = indexOf(buffer, position + 2, limit, PI_END);
+			
+			if(end >= 0 && this.depth == 0) {
+				declaration(buffer, position, end);
+			}
+			
+			return end < 0 ? -1 : end + PI_END.length;
+		} else if(startsWith(buffer, position, limit, COMMENT_START)) {
+			int end = indexOf(buffer, position + COMMENT_START.length, limit, COMMENT_END);
+			return end < 0 ? -1 : end + COMMENT_END.length;
+		} else if(startsWith(buffer, position, limit, CDATA_START)) {
+			int end = indexOf(buffer, position + CDATA_START.length, limit, CDATA_END);
+			
+			if(end < 0) {
+				return -1;
+			}
+			
+			if(this.depth > 0 && this.skipDepth == 0) {
+				int length = decode(buffer, position + CDATA_START.length, end, false, false);
+				this.binder.characters(this.chars, 0, length);
+			}
+			
+			return end + CDATA_END.length;
+		} else if(next == '!') {
+			return doctype(buffer, position, limit);
+		} else if(next == '/') {
+			return endTag(buffer, position, limit);
+		}
+		
+		return startTag(buffer, position, limit);
+	}
+
+	private void text(ByteBuffer buffer, int position, int end) throws DeserializationException {
+		if(this.depth == 0 || this.skipDepth > 0) {
+			return;
+		}
+		
+		int length = decode(buffer, position, end, true, false);
+		this.binder.characters(this.chars, 0, length);
+	}
+
+	private int startTag(ByteBuffer buffer, int position, int limit) throws DeserializationException {
+		int end = indexOfTagEnd(buffer, position + 1, limit);
+		
+		if(end < 0) {
+			return -1;
+		}
+		
+		boolean empty = buffer.get(end - 1) == '/';
+		int contentEnd = empty ? end - 1 : end;
+		int nameEnd = nameEnd(buffer, position + 1, contentEnd);
+		Name name = this.names.get(buffer, position + 1, nameEnd);
+		
+		int namespaceMark = this.namespaceCount;
+		this.attributes.clear();
+		int i = nameEnd;
+		
+		while(true) {
+			i = skipWhitespace(buffer, i, contentEnd);
+			
+			if(i >= contentEnd) {
+				break;
+			}
+			
+			int attributeNameEnd = i;
+			
+			while(attributeNameEnd < contentEnd && buffer.get(attributeNameEnd) != '='
+					&& !isWhitespace(buffer.get(attributeNameEnd))) {
+				
+				attributeNameEnd++;
+			}
+			
+			Name attributeName = this.names.get(buffer, i, attributeNameEnd);
+			i = skipWhitespace(buffer, attributeNameEnd, contentEnd);
+			
+			if(i >= contentEnd || buffer.get(i) != '=') {
+				throw new DeserializationException("Attribute without value: " + attributeName.qName);
+			}
+			
+			i = skipWhitespace(buffer, i + 1, contentEnd);
+			byte quote = i < contentEnd ? buffer.get(i) : 0;
+			
+			if(quote != '"' && quote != '\'') {
+				throw new DeserializationException("Attribute value not quoted: " + attributeName.qName);
+			}
+			
+			int valueEnd = indexOf(buffer, i + 1, contentEnd, quote);
+			int length = decode(buffer, i + 1, valueEnd, true, true);
+			String value = new String(this.chars, 0, length);
+			i = valueEnd + 1;
+			
+			if(attributeName.prefix == null && XMLNS.equals(attributeName.localName)) {
+				declareNamespace("", value);
+			} else if(XMLNS.equals(attributeName.prefix)) {
+				declareNamespace(attributeName.localName, value);
+			} else {
+				this.attributes.add(attributeName, value);
+			}
+		}
+		
+		for(int a = 0; a < this.attributes.length; a++) {
+			String prefix = this.attributes.names[a].prefix;
+			this.attributes.uris[a] = prefix == null ? "" : resolveNamespace(prefix);
+		}
+		
+		pushElement(name, namespaceMark);
+		String uri = resolveNamespace(name.prefix == null ? "" : name.prefix);
+		
+		if(this.skipDepth > 0) {
+			this.skipDepth++;
+		} else if(!this.binder.startElement(uri, name.localName, this.attributes)) {
+			this.skipDepth = 1;
+		}
+		
+		if(empty) {
+			popElement();
+		}
+		
+		return end + 1;
+	}
+
+	private int endTag(ByteBuffer buffer, int position, int limit) throws DeserializationException {
+		int end = indexOf(buffer, position + 2, limit, (byte) '>');
+		
+		if(end < 0) {
+			return -1;
+		}
+		
+		int nameEnd = nameEnd(buffer, position + 2, end);
+		Name name = this.names.get(buffer, position + 2, nameEnd);
+		
+		if(this.depth == 0 || !name.qName.equals(this.elementNames[this.depth - 1].qName)) {
+			throw new DeserializationException("Unexpected end tag: " + name.qName);
+		}
+		
+		popElement();
+		return end + 1;
+	}
+
+	/**
+	 * Skips the document type declaration. The internal DTD subset may
+	 * declare entities or default attributes, so the declaration with the
+	 * subset is rejected rather than bound differently from the parsers.
+	 */
+	private int doctype(ByteBuffer buffer, int position, int limit) throws DeserializationException {
+		for(int i = position + 2; i < limit; i++) {
+			byte b = buffer.get(i);
+			
+			if(b == '"' || b == '\'') {
+				i = indexOf(buffer, i + 1, limit, b);
+				
+				if(i < 0) {
+					return -1;
+				}
+			} else if(b == '[') {
+				throw new DeserializationException("Internal DTD subset not supported!");
+			} else if(b == '>') {
+				return i + 1;
+			}
+		}
+		
+		return -1;
+	}
+
+	/**
+	 * <p>Checks the byte order mark, the encoding declared by the document
+	 * starting at the position of the <code>buffer</code> and the document
+	 * type declaration of the prolog. The position of the buffer is not
+	 * changed.</p>
+	 * 
+	 * @param buffer - the beginning of the document.
+	 * 
+	 * @return <code>true</code> if the document can be processed by the
+	 * tokenizer, <code>false</code> if the encoding is not supported, the
+	 * document declares the internal DTD subset or the prolog does not fit
+	 * into the <code>buffer</code>.
+	 */
+	public static boolean isSupported(ByteBuffer buffer) {
+		int position = buffer.position();
+		int limit = buffer.limit();
+		
+		if(position == limit) {
+			return true;
+		}
+		
+		int first = buffer.get(position) & 0xFF;
+		
+		if(first == 0xFE || first == 0xFF || first == 0) {
+			return false;
+		} else if(first == 0xEF) {
+			position += 3;
+		}
+		
+		if(limit - position >= 2 && buffer.get(position) == '<' && buffer.get(position + 1) == '?') {
+			int end = indexOf(buffer, position + 2, limit, PI_END);
+			
+			if(end < 0) {
+				return false;
+			}
+			
+			String encoding = readEncoding(buffer, position, end);
+			
+			if(encoding != null && !isLatin1(encoding) && !isUtf8(encoding)) {
+				return false;
+			}
+		}
+		
+		return !hasInternalSubset(buffer, position, limit);
+	}
+		
+	/**
+	 * Checks the document type declaration of the prolog. The internal DTD
+	 * subset may declare entities or default attributes, which are skipped
+	 * by the tokenizer.
+	 * 
+	 * @return <code>true</code> if the document type declaration contains
+	 * the internal subset or the prolog is not complete.
+	 */
+	private static boolean hasInternalSubset(ByteBuffer buffer, int position, int limit) {
+		int i = position;
+		
+		while(true) {
+			i = indexOf(buffer, i, limit, (byte) '<');
+			
+			if(i < 0 || i + 1 >= limit) {
+				return true;
+			}
+			
+			if(startsWith(buffer, i, limit, COMMENT_START)) {
+				int end = indexOf(buffer, i + COMMENT_START.length, limit, COMMENT_END);
+				
+				if(end < 0) {
+					return true;
+				}
+				
+				i = end + COMMENT_END.length;
+			} else if(buffer.get(i + 1) == '?') {
+				int end = indexOf(buffer, i + 2, limit, PI_END);
+				
+				if(end < 0) {
+					return true;
+				}
+				
+				i = end + PI_END.length;
+			} else if(buffer.get(i + 1) == '!') {
+				for(int j = i + 2; j < limit; j++) {
+					byte b = buffer.get(j);
+					
+					if(b == '"' || b == '\'') {
+						j = indexOf(buffer, j + 1, limit, b);
+						
+						if(j < 0) {
+							return true;
+						}
+					} else if(b == '[') {
+						return true;
+					} else if(b == '>') {
+						return false;
+					}
+				}
+				
+				return true;
+			} else {//the root element
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Reads the encoding of the XML declaration.
+	 */
+	private void declaration(ByteBuffer buffer, int position, int end) throws DeserializationException {
+		String encoding = readEncoding(buffer, position, end);
+		
+		if(encoding == null) {
+			return;
+		}
+		
+		if(isLatin1(encoding)) {
+			this.latin1 = true;
+		} else if(!isUtf8(encoding)) {
+			throw new DeserializationException("Unsupported document encoding: " + encoding);
+		}
+	}
+
+	/**
+	 * @return the value of the <code>encoding</code> pseudo-attribute or
+	 * <code>null</code> if not declared.
+	 */
+	private static String readEncoding(ByteBuffer buffer, int position, int end) {
+		int i = indexOf(buffer, position, end, ENCODING);
+		
+		if(i < 0) {
+			return null;
+		}
+		
+		i = indexOf(buffer, i, end, (byte) '=');
+		i = i < 0 ? end : skipWhitespace(buffer, i + 1, end);
+		int valueEnd = i < end ? indexOf(buffer, i + 1, end, buffer.get(i)) : -1;
+		
+		if(valueEnd < 0) {
+			return "";
+		}
+		
+		//the encoding name consists of ASCII characters only
+		char[] encoding = new char[valueEnd - i - 1];
+		
+		for(int c = 0; c < encoding.length; c++) {
+			encoding[c] = (char) buffer.get(i + 1 + c);
+		}
+		
+		return new String(encoding);
+	}
+
+	private static boolean isUtf8(String encoding) {
+		return "UTF-8".equalsIgnoreCase(encoding) || "UTF8".equalsIgnoreCase(encoding)
+				|| "US-ASCII".equalsIgnoreCase(encoding) || "ASCII".equalsIgnoreCase(encoding);
+	}
+
+	private static boolean isLatin1(String encoding) {
+		return "ISO-8859-1".equalsIgnoreCase(encoding) || "LATIN1".equalsIgnoreCase(encoding);
+	}
+
+	private void pushElement(Name name, int namespaceMark) {
+		if(this.depth == this.elementNames.length) {
+			Name[] names = new Name[this.depth * 2];
+			System.arraycopy(this.elementNames, 0, names, 0, this.depth);
+			this.elementNames = names;
+			
+			int[] marks = new int[this.depth * 2];
+			System.arraycopy(this.namespaceMarks, 0, marks, 0, this.depth);
+			this.namespaceMarks = marks;
+		}
+		
+		this.elementNames[this.depth] = name;
+		this.namespaceMarks[this.depth] = namespaceMark;
+		this.depth++;
+	}
+
+	private void popElement() throws DeserializationException {
+		this.depth--;
+		this.namespaceCount = this.namespaceMarks[this.depth];
+		this.elementNames[this.depth] = null;
+		
+		if(this.skipDepth > 0) {
+			this.skipDepth--;
+		} else {
+			this.binder.endElement();
+			
+			if(this.itemListener != null && this.binder.hasItem()) {
+				this.itemListener.itemCompleted(this.binder.takeItem());
+			}
+		}
+		
+		if(this.depth == 0) {
+			this.binder.endDocument();
+			this.finished = true;
+		}
+	}
+
+	private void declareNamespace(String prefix, String uri) {
+		if(this.namespaceCount == this.namespacePrefixes.length) {
+			String[] prefixes = new String[this.namespaceCount * 2];
+			System.arraycopy(this.namespacePrefixes, 0, prefixes, 0, this.namespaceCount);
+			this.namespacePrefixes = prefixes;
+			
+			String[] uris = new String[this.namespaceCount * 2];
+			System.arraycopy(this.namespaceUris, 0, uris, 0, this.namespaceCount);
+			this.namespaceUris = uris;
+		}
+		
+		this.namespacePrefixes[this.namespaceCount] = prefix;
+		this.namespaceUris[this.namespaceCount] = uri;
+		this.namespaceCount++;
+	}
+
+	private String resolveNamespace(String prefix) throws DeserializationException {
+		for(int i = this.namespaceCount - 1; i >= 0; i--) {
+			if(this.namespacePrefixes[i].equals(prefix)) {
+				return this.namespaceUris[i];
+			}
+		}
+		
+		if(prefix.isEmpty()) {
+			return "";
+		} else if(XML_PREFIX.equals(prefix)) {
+			return XML_NAMESPACE;
+		}
+		
+		throw new DeserializationException("Undeclared namespace prefix: " + prefix);
+	}
+
+	/**
+	 * <p>Decodes the bytes to the {@link #chars} buffer.</p>
+	 * 
+	 * @param references - <code>true</code> if the entity and character
+	 * references are replaced.
+	 * @param attribute - <code>true</code> if the whitespace characters are
+	 * normalized as in the attribute value.
+	 * 
+	 * @return the count of the decoded characters.
+	 */
+	private int decode(ByteBuffer buffer, int position, int end, boolean references, boolean attribute)
+			throws DeserializationException {
+		
+		if(this.chars.length < end - position) {
+			this.chars = new char[Math.max(end - position, this.chars.length * 2)];
+		}
+		
+		char[] chars = this.chars;
+		int length = 0;
+		int i = position;
+		
+		while(i < end) {
+			int b = buffer.get(i) & 0xFF;
+			int c;
+			
+			if(b < 0x80 || this.latin1) {
+				c = b;
+				i++;
+			} else if((b >> 5) == 0x06 && i + 1 < end) {
+				c = ((b & 0x1F) << 6) | (buffer.get(i + 1) & 0x3F);
+				i += 2;
+			} else if((b >> 4) == 0x0E && i + 2 < end) {
+				c = ((b & 0x0F) << 12) | ((buffer.get(i + 1) & 0x3F) << 6) | (buffer.get(i + 2) & 0x3F);
+				i += 3;
+			} else if((b >> 3) == 0x1E && i + 3 < end) {
+				c = ((b & 0x07) << 18) | ((buffer.get(i + 1) & 0x3F) << 12)
+						| ((buffer.get(i + 2) & 0x3F) << 6) | (buffer.get(i + 3) & 0x3F);
+				i += 4;
+			} else {
+				c = 0xFFFD;
+				i++;
+			}
+			
+			if(c == '&' && references) {
+				int referenceEnd = indexOf(buffer, i, end, (byte) ';');
+				
+				if(referenceEnd < 0) {
+					throw new DeserializationException("Unterminated entity reference!");
+				}
+				
+				c = reference(buffer, i, referenceEnd);
+				i = referenceEnd + 1;
+			} else if(c == '\r') {
+				if(i < end && buffer.get(i) == '\n') {
+					continue;
+				}
+				
+				c = attribute ? ' ' : '\n';
+			} else if(attribute && (c == '\n' || c == '\t')) {
+				c = ' ';
+			}
+			
+			if(c > 0xFFFF) {
+				chars[length++] = (char) (0xD7C0 + (c >> 10));
+				chars[length++] = (char) (0xDC00 | (c & 0x3FF));
+			} else {
+				chars[length++] = (char) c;
+			}
+		}
+		
+		return length;
+	}
+
+	/**
+	 * @return the code point of the reference between the <code>&amp;</code>
+	 * and <code>;</code> characters.
+	 */
+	private int reference(ByteBuffer buffer, int position, int end) throws DeserializationException {
+		int length = end - position;
+		
+		if(length > 1 && buffer.get(position) == '#') {
+			boolean hex = buffer.get(position + 1) == 'x';
+			int codePoint = 0;
+			
+			for(int i = position + (hex ? 2 : 1); i < end; i++) {
+				int digit = Character.digit((char) buffer.get(i), hex ? 16 : 10);
+				
+				if(digit < 0 || codePoint > 0x10FFFF) {
+					throw new DeserializationException("Invalid character reference!");
+				}
+				
+				codePoint = codePoint * (hex ? 16 : 10) + digit;
+			}
+			
+			return codePoint;
+		}
+		
+		if(length == 2 && buffer.get(position + 1) == 't') {
+			if(buffer.get(position) == 'l') {
+				return '<';
+			} else if(buffer.get(position) == 'g') {
+				return '>';
+			}
+		} else if(length == 3 && startsWith(buffer, position, end, new byte[]{'a', 'm', 'p'})) {
+			return '&';
+		} else if(length == 4 && startsWith(buffer, position, end, new byte[]{'q', 'u', 'o', 't'})) {
+			return '"';
+		} else if(length == 4 && startsWith(buffer, position, end, new byte[]{'a', 'p', 'o', 's'})) {
+			return '\'';
+		}
+		
+		throw new DeserializationException("Undeclared entity reference!");
+	}
+
+	private void ensureCarry(int capacity) {
+		if(capacity > this.carry.length) {
+			byte[] carry = new byte[Math.max(capacity, this.carry.length * 2)];
+			System.arraycopy(this.carry, 0, carry, 0, this.carryLength);
+			this.carry = carry;
+		}
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	private static int skipWhitespace(ByteBuffer buffer, int position, int limit) {
+		while(position < limit && isWhitespace(buffer.get(position))) {
+			position++;
+		}
+		
+		return position;
+	}
+
+	private static int nameEnd(ByteBuffer buffer, int position, int limit) {
+		while(position < limit) {
+			byte b = buffer.get(position);
+			
+			if(isWhitespace(b) || b == '/' || b == '>') {
+				break;
+			}
+			
+			position++;
+		}
+		
+		return position;
+	}
+
+	/**
+	 * @return the index of the <code>&gt;</code> character closing the tag.
+	 * The attribute values are skipped, so they can contain this character.
+	 */
+	private static int indexOfTagEnd(ByteBuffer buffer, int position, int limit) {
+		for(int i = position; i < limit; i++) {
+			byte b = buffer.get(i);
+			
+			if(b == '"' || b == '\'') {
+				i = indexOf(buffer, i + 1, limit, b);
+				
+				if(i < 0) {
+					return -1;
+				}
+			} else if(b == '>') {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+
+	private static int indexOf(ByteBuffer buffer, int position, int limit, byte b) {
+		for(int i = position; i < limit; i++) {
+			if(buffer.get(i) == b) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+
+	private static int indexOf(ByteBuffer buffer, int position, int limit, byte[] pattern) {
+		for(int i = position; i <= limit - pattern.length; i++) {
+			if(startsWith(buffer, i, limit, pattern)) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+
+	private static boolean startsWith(ByteBuffer buffer, int position, int limit, byte[] pattern) {
+		if(limit - position < pattern.length) {
+			return false;
+		}
+		
+		for(int i = 0; i < pattern.length; i++) {
+			if(buffer.get(position + i) != pattern[i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Qualified name split to the prefix and the local name.
+	 */
+	private static class Name {
+		
+		private final byte[] bytes;
+		private final String qName;
+		private final String prefix;
+		private final String localName;
+		
+		private Name(byte[] bytes, String qName) {
+			this.bytes = bytes;
+			this.qName = qName;
+			
+			int separator = qName.indexOf(':');
+			this.prefix = separator < 0 ? null : qName.substring(0, separator);
+			this.localName = separator < 0 ? qName : qName.substring(separator + 1);
+		}
+	}
+
+	/**
+	 * Direct mapped cache of the names indexed by the hash of their bytes.
+	 */
+	private static class NameCache {
+		
+		private static final int SIZE = 512;
+		
+		private Name[] names = new Name[SIZE];
+		
+		private Name get(ByteBuffer buffer, int position, int end) {
+			int hash = 0;
+			
+			for(int i = position; i < end; i++) {
+				hash = 31 * hash + buffer.get(i);
+			}
+			
+			int index = (hash ^ (hash >>> 16)) & (SIZE - 1);
+			Name name = this.names[index];
+			
+			if(name != null && matches(name.bytes, buffer, position, end)) {
+				return name;
+			}
+			
+			byte[] bytes = new byte[end - position];
+			
+			for(int i = 0; i < bytes.length; i++) {
+				bytes[i] = buffer.get(position + i);
+			}
+			
+			String qName;
+			
+			try {
+				qName = new String(bytes, "UTF-8");
+			} catch (java.io.UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+			
+			name = new Name(bytes, qName);
+			this.names[index] = name;
+			return name;
+		}
+		
+		private static boolean matches(byte[] bytes, ByteBuffer buffer, int position, int end) {
+			if(bytes.length != end - position) {
+				return false;
+			}
+			
+			for(int i = 0; i < bytes.length; i++) {
+				if(bytes[i] != buffer.get(position + i)) {
+					return false;
+				}
+			}
+			
+			return true;
+		}
+	}
+
+	/**
+	 * Attributes of the current start tag. The arrays are reused for all
+	 * start tags.
+	 */
+	private static class TokenizerAttributes implements Attributes {
+		
+		private static final String TYPE_CDATA = "CDATA";
+		
+		private Name[] names = new Name[8];
+		private String[] uris = new String[8];
+		private String[] values = new String[8];
+		private int length;
+		
+		private void clear() {
+			this.length = 0;
+		}
+		
+		private void add(Name name, String value) {
+			if(this.length == this.names.length) {
+				Name[] names = new Name[this.length * 2];
+				System.arraycopy(this.names, 0, names, 0, this.length);
+				this.names = names;
+				
+				String[] values = new String[this.length * 2];
+				System.arraycopy(this.values, 0, values, 0, this.length);
+				this.values = values;
+				
+				this.uris = new String[this.length * 2];
+			}
+			
+			this.names[this.length] = name;
+			this.values[this.length] = value;
+			this.length++;
+		}
+		
+		@Override
+		public int getLength() {
+			return this.length;
+		}
+		
+		@Override
+		public String getURI(int index) {
+			return index < this.length ? this.uris[index] : null;
+		}
+		
+		@Override
+		public String getLocalName(int index) {
+			return index < this.length ? this.names[index].localName : null;
+		}
+		
+		@Override
+		public String getQName(int index) {
+			return index < this.length ? this.names[index].qName : null;
+		}
+		
+		@Override
+		public String getType(int index) {
+			return index < this.length ? TYPE_CDATA : null;
+		}
+		
+		@Override
+		public String getValue(int index) {
+			return index < this.length ? this.values[index] : null;
+		}
+		
+		@Override
+		public int getIndex(String uri, String localName) {
+			for(int i = 0; i < this.length; i++) {
+				if(this.names[i].localName.equals(localName) && this.uris[i].equals(uri)) {
+					return i;
+				}
+			}
+			
+			return -1;
+		}
+		
+		@Override
+		public int getIndex(String qName) {
+			for(int i = 0; i < this.length; i++) {
+				if(this.names[i].qName.equals(qName)) {
+					return i;
+				}
+			}
+			
+			return -1;
+		}
+		
+		@Override
+		public String getType(String uri, String localName) {
+			return getIndex(uri, localName) < 0 ? null : TYPE_CDATA;
+		}
+		
+		@Override
+		public String getType(String qName) {
+			return getIndex(qName) < 0 ? null : TYPE_CDATA;
+		}
+		
+		@Override
+		public String getValue(String uri, String localName) {
+			int index = getIndex(uri, localName);
+			return index < 0 ? null : this.values[index];
+		}
+		
+		@Override
+		public String getValue(String qName) {
+			int index = getIndex(qName);
+			return index < 0 ? null : this.values[index];
+		}
+	}
+
+}
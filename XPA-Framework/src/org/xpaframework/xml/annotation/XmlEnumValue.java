@@ -0,0 +1,36 @@
+package org.xpaframework.xml.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Annotation defining the XML value of the enumeration constant. The
+ * annotated constant is serialized as the {@link #value()} and is
+ * deserialized from both the {@link #value()} and the constant name, so the
+ * enumerations with the XML values differing from the constant names do not
+ * need their own value adapter, e.g.:
+ * <pre>public enum Currency {
+ * 
+ *	&#64;XmlEnumValue("EUR")
+ *	EURO,
+ *	&#64;XmlEnumValue("USD")
+ *	DOLLAR
+ *}</pre>
+ * </p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see XmlValueAdapter
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface XmlEnumValue {
+	
+	/**
+	 * The value of the enumeration constant in the XML document.
+	 */
+	String value();
+
+}
@@ -0,0 +1,34 @@
+package org.xpaframework.xml.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Annotation defining if the values of the {@link String} field are
+ * canonicalized by the string pool of the context. The annotation takes
+ * precedence over the context configuration, so the field with repeated
+ * values (e.g. city names or currency codes) can be pooled even if the
+ * pooling is not enabled for all fields and vice versa, e.g.:
+ * <pre>&#64;XmlPooled
+ *private String country;
+ * 
+ *&#64;XmlPooled(false)
+ *private String description;</pre>
+ * </p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see org.xpaframework.xml.ContextConfiguration#setStringPooling(boolean)
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface XmlPooled {
+	
+	/**
+	 * <code>true</code> if the values of the field are pooled.
+	 */
+	boolean value() default true;
+
+}
@@ -0,0 +1,261 @@
+package org.xpaframework.xml.util;
+
+
+/**
+ * <p>Parsing of the primitive values directly from the character buffer. The
+ * methods accept the same values as the parsing methods of the wrapper
+ * classes (e.g. {@link Integer#parseInt(String)}), but no {@link String}
+ * object is created for the valid values.</p>
+ * 
+ * @author Jan Janickovic
+ */
+public final class CharParser {
+	
+	/**
+	 * The powers of ten exactly representable by <code>double</code>.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+		1e21, 1e22
+	};
+	
+	/**
+	 * The maximal count of significant digits of the exactly representable
+	 * <code>double</code> mantissa.
+	 */
+	private static final int MAX_EXACT_DIGITS = 15;
+	
+	private CharParser() {
+	}
+
+	/**
+	 * @see Integer#parseInt(String)
+	 */
+	public static int parseInt(char[] buffer, int start, int length) throws NumberFormatException {
+		long value = parseLong(buffer, start, length);
+		
+		if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw numberFormatException(buffer, start, length);
+		}
+		
+		return (int) value;
+	}
+
+	/**
+	 * @see Short#parseShort(String)
+	 */
+	public static short parseShort(char[] buffer, int start, int length) throws NumberFormatException {
+		long value = parseLong(buffer, start, length);
+		
+		if(value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+			throw numberFormatException(buffer, start, length);
+		}
+		
+		return (short) value;
+	}
+
+	/**
+	 * @see Long#parseLong(String)
+	 */
+	public static long parseLong(char[] buffer, int start, int length) throws NumberFormatException {
+		int end = start + length;
+		int i = start;
+		boolean negative = false;
+		long limit = -Long.MAX_VALUE;
+		
+		if(i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+			if(buffer[i] == '-') {
+				negative = true;
+				limit = Long.MIN_VALUE;
+			}
+			
+			i++;
+		}
+		
+		if(i == end) {
+			throw numberFormatException(buffer, start, length);
+		}
+		
+		//accumulated negatively to cover the Long.MIN_VALUE
+		long limitBeforeMultiplication = limit / 10;
+		long result = 0;
+		
+		while(i < end) {
+			int digit = buffer[i++] - '0';
+			
+			if(digit < 0 || digit > 9 || result < limitBeforeMultiplication) {
+				throw numberFormatException(buffer, start, length);
+			}
+			
+			result *= 10;
+			
+			if(result < limit + digit) {
+				throw numberFormatException(buffer, start, length);
+			}
+			
+			result -= digit;
+		}
+		
+		return negative ? result : -result;
+	}
+
+	/**
+	 * <p>Parses the decimal number. The number with at most 15 significant
+	 * digits and the decimal exponent within the range of exactly representable
+	 * powers of ten is computed by a single floating point operation, what
+	 * gives the correctly rounded result. The other values are parsed by
+	 * {@link Double#parseDouble(String)}.</p>
+	 * 
+	 * @see Double#parseDouble(String)
+	 */
+	public static double parseDouble(char[] buffer, int start, int length) throws NumberFormatException {
+		int end = start + length;
+		int i = start;
+		boolean negative = false;
+		
+		if(i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+			negative = buffer[i] == '-';
+			i++;
+		}
+		
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean hasDigit = false;
+		boolean fraction = false;
+		
+		for(; i < end; i++) {
+			char c = buffer[i];
+			
+			if(c == '.' && !fraction) {
+				fraction = true;
+				continue;
+			} else if(c < '0' || c > '9') {
+				break;
+			}
+			
+			hasDigit = true;
+			
+			if(mantissa == 0 && c == '0') {
+				//leading zeros are not significant
+				exponent -= fraction ? 1 : 0;
+				continue;
+			} else if(++digits > MAX_EXACT_DIGITS) {
+				return parseDoubleSlow(buffer, start, length);
+			}
+			
+			mantissa = mantissa * 10 + (c - '0');
+			exponent -= fraction ? 1 : 0;
+		}
+		
+		if(!hasDigit) {
+			return parseDoubleSlow(buffer, start, length);
+		}
+		
+		if(i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			
+			if(i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+				negativeExponent = buffer[i] == '-';
+				i++;
+			}
+			
+			int exponentStart = i;
+			int explicitExponent = 0;
+			
+			for(; i < end && buffer[i] >= '0' && buffer[i] <= '9'; i++) {
+				if(i - exponentStart >= 4) {
+					return parseDoubleSlow(buffer, start, length);
+				}
+				
+				explicitExponent = explicitExponent * 10 + (buffer[i] - '0');
+			}
+			
+			if(i == exponentStart) {
+				return parseDoubleSlow(buffer, start, length);
+			}
+			
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+		
+		if(i != end) {
+			return parseDoubleSlow(buffer, start, length);
+		}
+		
+		double value;
+		
+		if(mantissa == 0) {
+			value = 0d;
+		} else if(exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else if(exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return parseDoubleSlow(buffer, start, length);
+		}
+		
+		return negative ? -value : value;
+	}
+
+	/**
+	 * <p>Parses the boolean value. The values <code>true</code> (ignoring
+	 * case) and <code>1</code> are converted to <code>true</code>, all
+	 * others to <code>false</code>.</p>
+	 * 
+	 * @see Boolean#parseBoolean(String)
+	 */
+	public static boolean parseBoolean(char[] buffer, int start, int length) {
+		if(length == 1) {
+			return buffer[start] == '1';
+		}
+		
+		return length == 4
+				&& Character.toLowerCase(buffer[start]) == 't'
+				&& Character.toLowerCase(buffer[start + 1]) == 'r'
+				&& Character.toLowerCase(buffer[start + 2]) == 'u'
+				&& Character.toLowerCase(buffer[start + 3]) == 'e';
+	}
+
+	/**
+	 * @return <code>true</code> if all characters of the range are whitespace
+	 * characters, as defined by {@link String#trim()}.
+	 */
+	public static boolean isWhitespace(char[] buffer, int start, int length) {
+		for(int i = start; i < start + length; i++) {
+			if(buffer[i] > ' ') {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if the characters of the range are equal to
+	 * the <code>value</code>.
+	 */
+	public static boolean equals(String value, char[] buffer, int start, int length) {
+		if(value.length() != length) {
+			return false;
+		}
+		
+		for(int i = 0; i < length; i++) {
+			if(value.charAt(i) != buffer[start + i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	private static double parseDoubleSlow(char[] buffer, int start, int length) throws NumberFormatException {
+		return Double.parseDouble(new String(buffer, start, length));
+	}
+
+	private static NumberFormatException numberFormatException(char[] buffer, int start, int length) {
+		return new NumberFormatException("For input string: \"" + new String(buffer, start, length) + "\"");
+	}
+
+}
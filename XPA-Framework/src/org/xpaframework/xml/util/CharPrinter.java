@@ -0,0 +1,374 @@
+package org.xpaframework.xml.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+
+/**
+ * <p>Printing of the values directly into the character buffer. The methods
+ * print the same characters as the <code>toString()</code> methods of the
+ * printed objects (e.g. {@link Long#toString(long)}), but no {@link String}
+ * object is created.</p>
+ * <p>The methods return the index following the last printed character or
+ * <code>-1</code> if the value does not fit into the buffer or is not
+ * supported by the fast path. Nothing is printed in that case and the
+ * caller prints the value by its <code>toString()</code> method.</p>
+ * 
+ * @author Jan Janickovic
+ * 
+ * @see CharParser
+ */
+public final class CharPrinter {
+	
+	/**
+	 * The maximal count of characters of the printed <code>long</code> value.
+	 */
+	public static final int MAX_LONG_LENGTH = 20;
+	
+	/**
+	 * The maximal count of the fraction digits of the <code>double</code>
+	 * value printed by {@link #printDouble(double, char[], int)}.
+	 */
+	private static final int MAX_DOUBLE_SCALE = 9;
+	
+	/**
+	 * The maximal unscaled value of the printed <code>double</code> value.
+	 * The product of the value and the power of ten is rounded by less than
+	 * 0.1 below this bound, so the nearest unscaled value is found.
+	 */
+	private static final double MAX_DOUBLE_UNSCALED = 1e15;
+	
+	/**
+	 * The digits of the numbers 0 - 99 by their tens and units.
+	 */
+	private static final char[] TENS = new char[100];
+	private static final char[] UNITS = new char[100];
+	
+	static {
+		for(int i = 0; i < 100; i++) {
+			TENS[i] = (char) ('0' + i / 10);
+			UNITS[i] = (char) ('0' + i % 10);
+		}
+	}
+
+	private CharPrinter() {
+	}
+
+	/**
+	 * @see Integer#toString(int)
+	 */
+	public static int printInt(int value, char[] buffer, int start) {
+		return printLong(value, buffer, start);
+	}
+
+	/**
+	 * @see Long#toString(long)
+	 */
+	public static int printLong(long value, char[] buffer, int start) {
+		int length = getLength(value);
+		
+		if(start + length > buffer.length) {
+			return -1;
+		}
+		
+		int end = start + length;
+		int i = end;
+		//printed negatively to cover the Long.MIN_VALUE
+		long remainder = value < 0 ? value : -value;
+		
+		while(remainder <= -100) {
+			int digits = (int) -(remainder % 100);
+			remainder /= 100;
+			buffer[--i] = UNITS[digits];
+			buffer[--i] = TENS[digits];
+		}
+		
+		int digits = (int) -remainder;
+		buffer[--i] = UNITS[digits];
+		
+		if(digits >= 10) {
+			buffer[--i] = TENS[digits];
+		}
+		
+		if(value < 0) {
+			buffer[--i] = '-';
+		}
+		
+		return end;
+	}
+
+	/**
+	 * <p>Prints the values printed without the exponent by
+	 * {@link Double#toString(double)}, i.e. the zero and the magnitudes from
+	 * 10<sup>-3</sup> to 10<sup>7</sup>, with at most
+	 * {@link #MAX_DOUBLE_SCALE} fraction digits. The shortest fraction
+	 * parsed back to the same value is printed, as by
+	 * {@link Double#toString(double)}.</p>
+	 * 
+	 * @see Double#toString(double)
+	 */
+	public static int printDouble(double value, char[] buffer, int start) {
+		if(value == 0) {
+			//the negative zero
+			if(Double.doubleToRawLongBits(value) != 0) {
+				return -1;
+			}
+			
+			return printDecimal(false, 0, 0, buffer, start);
+		}
+		
+		double magnitude = Math.abs(value);
+		
+		//NaN fails the comparison as well
+		if(!(magnitude >= 1e-3 && magnitude < 1e7)) {
+			return -1;
+		}
+		
+		double power = 1;
+		
+		for(int scale = 0; scale <= MAX_DOUBLE_SCALE; scale++) {
+			double unscaled = Math.rint(magnitude * power);
+			
+			if(unscaled >= MAX_DOUBLE_UNSCALED) {
+				return -1;
+			}
+			
+			//both operands are exact, so the quotient is the parsed decimal
+			if(unscaled / power == magnitude) {
+				return printDecimal(value < 0, (long) unscaled, scale, buffer, start);
+			}
+			
+			power *= 10;
+		}
+		
+		return -1;
+	}
+
+	/**
+	 * <p>Prints the values fitting into <code>long</code>.</p>
+	 * 
+	 * @see BigInteger#toString()
+	 */
+	public static int printBigInteger(BigInteger value, char[] buffer, int start) {
+		if(value.bitLength() >= Long.SIZE) {
+			return -1;
+		}
+		
+		return printLong(value.longValue(), buffer, start);
+	}
+
+	/**
+	 * <p>Prints the values with the unscaled value fitting into
+	 * <code>long</code> and printed without the exponent by
+	 * {@link BigDecimal#toString()}.</p>
+	 * 
+	 * @see BigDecimal#toString()
+	 */
+	public static int printBigDecimal(BigDecimal value, char[] buffer, int start) {
+		int scale = value.scale();
+		
+		if(scale == 0) {
+			return printBigInteger(value.unscaledValue(), buffer, start);
+		}
+		
+		BigInteger unscaledValue = value.unscaledValue();
+		
+		if(scale < 0 || unscaledValue.bitLength() >= Long.SIZE) {
+			return -1;
+		}
+		
+		long unscaled = unscaledValue.longValue();
+		int digitCount = getLength(unscaled) - (unscaled < 0 ? 1 : 0);
+		
+		//the exponent notation of the small values
+		if(digitCount - 1 - scale < -6) {
+			return -1;
+		}
+		
+		int integerCount = digitCount - scale;
+		int length = (unscaled < 0 ? 1 : 0) + (integerCount > 0 ? digitCount : 1 + scale) + 1;
+		
+		if(start + length > buffer.length) {
+			return -1;
+		}
+		
+		int i = start;
+		
+		if(unscaled < 0) {
+			buffer[i++] = '-';
+		}
+		
+		if(integerCount > 0) {
+			//the integer digits, the decimal point and the fraction digits
+			long divisor = pow10(scale);
+			int end = printLong(Math.abs(unscaled / divisor), buffer, i);
+			buffer[end] = '.';
+			printFraction(Math.abs(unscaled % divisor), scale, buffer, end + 1);
+		} else {
+			buffer[i++] = '0';
+			buffer[i++] = '.';
+			printFraction(Math.abs(unscaled), scale, buffer, i);
+		}
+		
+		return start + length;
+	}
+
+	/**
+	 * <p>Prints the <code>xsd:dateTime</code> values with all fields defined
+	 * and the year of four digits.</p>
+	 * 
+	 * @see XMLGregorianCalendar#toXMLFormat()
+	 */
+	public static int printDateTime(XMLGregorianCalendar value, char[] buffer, int start) {
+		int year = value.getYear();
+		
+		if(value.getEon() != null || year < 1 || year > 9999 || value.getMonth() == DatatypeConstants.FIELD_UNDEFINED
+				|| value.getDay() == DatatypeConstants.FIELD_UNDEFINED
+				|| value.getHour() == DatatypeConstants.FIELD_UNDEFINED
+				|| value.getMinute() == DatatypeConstants.FIELD_UNDEFINED
+				|| value.getSecond() == DatatypeConstants.FIELD_UNDEFINED) {
+			
+			return -1;
+		}
+		
+		BigDecimal fraction = value.getFractionalSecond();
+		int fractionScale = 0;
+		long fractionValue = 0;
+		
+		if(fraction != null) {
+			BigInteger unscaledValue = fraction.unscaledValue();
+			fractionScale = fraction.scale();
+			
+			if(fractionScale <= 0 || fractionScale > MAX_LONG_LENGTH - 2
+					|| unscaledValue.bitLength() >= Long.SIZE) {
+				
+				return -1;
+			}
+			
+			fractionValue = unscaledValue.longValue();
+		}
+		
+		int timezone = value.getTimezone();
+		int length = 19 + (fraction != null ? 1 + fractionScale : 0);
+		
+		if(timezone != DatatypeConstants.FIELD_UNDEFINED) {
+			length += timezone == 0 ? 1 : 6;
+		}
+		
+		if(start + length > buffer.length) {
+			return -1;
+		}
+		
+		int i = start;
+		i = print2(year / 100, buffer, i);
+		i = print2(year % 100, buffer, i);
+		buffer[i++] = '-';
+		i = print2(value.getMonth(), buffer, i);
+		buffer[i++] = '-';
+		i = print2(value.getDay(), buffer, i);
+		buffer[i++] = 'T';
+		i = print2(value.getHour(), buffer, i);
+		buffer[i++] = ':';
+		i = print2(value.getMinute(), buffer, i);
+		buffer[i++] = ':';
+		i = print2(value.getSecond(), buffer, i);
+		
+		if(fraction != null) {
+			buffer[i++] = '.';
+			i = printFraction(fractionValue, fractionScale, buffer, i);
+		}
+		
+		if(timezone == 0) {
+			buffer[i++] = 'Z';
+		} else if(timezone != DatatypeConstants.FIELD_UNDEFINED) {
+			buffer[i++] = timezone < 0 ? '-' : '+';
+			timezone = Math.abs(timezone);
+			i = print2(timezone / 60, buffer, i);
+			buffer[i++] = ':';
+			i = print2(timezone % 60, buffer, i);
+		}
+		
+		return i;
+	}
+
+	/**
+	 * @return the count of the characters of the printed <code>value</code>.
+	 */
+	private static int getLength(long value) {
+		int length = value < 0 ? 2 : 1;
+		long remainder = value < 0 ? value : -value;
+		
+		while(remainder <= -10) {
+			remainder /= 10;
+			length++;
+		}
+		
+		return length;
+	}
+
+	/**
+	 * Prints the positive <code>unscaled</code> value with the
+	 * <code>scale</code> fraction digits, at least one fraction digit is
+	 * printed.
+	 */
+	private static int printDecimal(boolean negative, long unscaled, int scale, char[] buffer, int start) {
+		long divisor = pow10(scale);
+		long integer = unscaled / divisor;
+		int length = (negative ? 1 : 0) + getLength(integer) + 1 + Math.max(scale, 1);
+		
+		if(start + length > buffer.length) {
+			return -1;
+		}
+		
+		int i = start;
+		
+		if(negative) {
+			buffer[i++] = '-';
+		}
+		
+		i = printLong(integer, buffer, i);
+		buffer[i++] = '.';
+		
+		if(scale == 0) {
+			buffer[i++] = '0';
+			return i;
+		}
+		
+		return printFraction(unscaled % divisor, scale, buffer, i);
+	}
+
+	/**
+	 * Prints the positive <code>value</code> padded by the leading zeros to
+	 * the <code>count</code> of digits.
+	 */
+	private static int printFraction(long value, int count, char[] buffer, int start) {
+		int end = start + count;
+		
+		for(int i = end - 1; i >= start; i--) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		
+		return end;
+	}
+
+	private static int print2(int value, char[] buffer, int start) {
+		buffer[start] = TENS[value];
+		buffer[start + 1] = UNITS[value];
+		return start + 2;
+	}
+
+	private static long pow10(int exponent) {
+		long value = 1;
+		
+		for(int i = 0; i < exponent; i++) {
+			value *= 10;
+		}
+		
+		return value;
+	}
+
+}
@@ -140,8 +140,23 @@ public class Logger {
 		Log.e(this.logClass.getSimpleName(), msg, t);
 	}
 	
+	/**
+	 * <p>Checks if the message of the <code>level</code> is printed. The
+	 * messages built by the concatenation on the hot paths should be
+	 * guarded by this method, so the message is not built if it is not
+	 * printed.</p>
+	 * 
+	 * @param level - the logging level of the message.
+	 * 
+	 * @return <code>true</code> if the logging is enabled for the
+	 * <code>level</code>.
+	 */
+	public boolean isLoggable(Level level) {
+		return configuration.isLoggingEnabled() && configuration.getLevel().getLevel() <= level.getLevel();
+	}
+
 	protected void print(Level level, String msg) {
-		if(configuration.isLoggingEnabled() && configuration.getLevel().getLevel() <= level.getLevel()) {
+		if(isLoggable(level)) {
 			Log.println(level.level, this.logClass.getSimpleName(), msg);
 		}
 	}
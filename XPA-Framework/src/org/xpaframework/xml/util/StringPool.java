@@ -0,0 +1,163 @@
+package org.xpaframework.xml.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>Bounded pool of the canonical {@link String} values. The repeated
+ * short values of the document (e.g. currency codes, city names) are
+ * resolved to the same instance, so the deserialized objects do not retain
+ * a copy of the value for each occurrence and no {@link String} is created
+ * for the values found in the pool.</p>
+ * <p>The pool is a direct-mapped table of fixed size, the value with the
+ * same slot as the newly added value is evicted. The values longer than
+ * {@link #MAX_LENGTH} are not pooled. The pool can be shared by the
+ * concurrent parsing, the racing updates of the slot only evict one of the
+ * values.</p>
+ * 
+ * @author Jan Janickovic
+ */
+public final class StringPool {
+	
+	/**
+	 * The maximal length of the pooled value.
+	 */
+	public static final int MAX_LENGTH = 32;
+	
+	private final String[] entries;
+	private final int mask;
+	
+	private final AtomicLong lookups = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	
+	/**
+	 * @param capacity - the maximal count of the pooled values, rounded up to
+	 * the power of two.
+	 * 
+	 * @throws IllegalArgumentException if the <code>capacity</code> is not
+	 * positive.
+	 */
+	public StringPool(int capacity) throws IllegalArgumentException {
+		if(capacity <= 0) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		
+		int size = Integer.highestOneBit(capacity);
+		
+		if(size < capacity) {
+			size <<= 1;
+		}
+		
+		this.entries = new String[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * <p>Returns the canonical value of the characters. No {@link String} is
+	 * created if the value is found in the pool.</p>
+	 * 
+	 * @return the pooled value or the new {@link String} if the value is too
+	 * long for pooling.
+	 */
+	public String get(char[] buffer, int start, int length) {
+		if(length > MAX_LENGTH) {
+			return new String(buffer, start, length);
+		}
+		
+		int hash = 0;
+		
+		for(int i = start; i < start + length; i++) {
+			hash = 31 * hash + buffer[i];
+		}
+		
+		int index = index(hash);
+		String entry = this.entries[index];
+		this.lookups.incrementAndGet();
+		
+		if(entry != null && equals(entry, buffer, start, length)) {
+			this.hits.incrementAndGet();
+			return entry;
+		}
+		
+		String value = new String(buffer, start, length);
+		this.entries[index] = value;
+		return value;
+	}
+
+	/**
+	 * @return the canonical instance of the <code>value</code> or the
+	 * <code>value</code> itself if it is not pooled.
+	 */
+	public String get(String value) {
+		if(value == null || value.length() > MAX_LENGTH) {
+			return value;
+		}
+		
+		//the String hash code is computed by the same function
+		int index = index(value.hashCode());
+		String entry = this.entries[index];
+		this.lookups.incrementAndGet();
+		
+		if(value.equals(entry)) {
+			this.hits.incrementAndGet();
+			return entry;
+		}
+		
+		this.entries[index] = value;
+		return value;
+	}
+
+	/**
+	 * @return the count of the pooled values looked up.
+	 */
+	public long getLookups() {
+		return this.lookups.get();
+	}
+
+	/**
+	 * @return the count of the values found in the pool.
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the ratio of the values found in the pool, <code>0</code> if no
+	 * value was looked up.
+	 */
+	public double getHitRatio() {
+		long lookups = getLookups();
+		return lookups == 0 ? 0 : (double) getHits() / lookups;
+	}
+
+	/**
+	 * <p>Evicts all values and resets the statistics.</p>
+	 */
+	public void clear() {
+		for(int i = 0; i < this.entries.length; i++) {
+			this.entries[i] = null;
+		}
+		
+		this.lookups.set(0);
+		this.hits.set(0);
+	}
+
+	private int index(int hash) {
+		return (hash ^ (hash >>> 16)) & this.mask;
+	}
+
+	private static boolean equals(String entry, char[] buffer, int start, int length) {
+		if(entry.length() != length) {
+			return false;
+		}
+		
+		for(int i = 0; i < length; i++) {
+			if(entry.charAt(i) != buffer[start + i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+}
@@ -0,0 +1,175 @@
+package org.xpa.example.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import junit.framework.TestCase;
+
+import org.xpa.example.data.people.People;
+import org.xpa.example.test.LoopbackServer.Compression;
+import org.xpaframework.ContentEncoding;
+import org.xpaframework.Deserializer;
+import org.xpaframework.Serializer;
+import org.xpaframework.xml.ContextConfiguration;
+import org.xpaframework.xml.XmlContext;
+import org.xpaframework.xml.XmlContextFactory;
+
+
+/**
+ * <p>Tests of the {@link ContentEncoding} streams and of the compressed
+ * documents transferred from and to the {@link LoopbackServer}.</p>
+ * 
+ * @author Jan Janickovic
+ */
+public class ContentEncodingTest extends TestCase {
+	
+	private LoopbackServer server;
+	private People people;
+	private byte[] document;
+	
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.people = People.createPeople(200);
+		this.document = serialize(createContext(ContentEncoding.IDENTITY), this.people);
+		
+		this.server = new LoopbackServer();
+		this.server.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.server.stop();
+		super.tearDown();
+	}
+
+	public void testEncodeDecode() throws IOException {
+		for(ContentEncoding contentEncoding : ContentEncoding.values()) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			OutputStream os = contentEncoding.encode(bos);
+			os.write(this.document);
+			os.close();
+			
+			if(contentEncoding == ContentEncoding.IDENTITY) {
+				assertSame(bos, os);
+			}
+			
+			byte[] decoded = read(ContentEncoding.decode(new ByteArrayInputStream(bos.toByteArray()),
+					contentEncoding.getToken()));
+			assertTrue(contentEncoding.name(), Arrays.equals(this.document, decoded));
+		}
+	}
+
+	public void testDecodeRawDeflate() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		OutputStream os = new DeflaterOutputStream(bos, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+		os.write(this.document);
+		os.close();
+		
+		byte[] decoded = read(ContentEncoding.decode(new ByteArrayInputStream(bos.toByteArray()), "deflate"));
+		assertTrue(Arrays.equals(this.document, decoded));
+	}
+
+	public void testDecodeTokens() throws IOException {
+		InputStream is = new ByteArrayInputStream(this.document);
+		assertSame(is, ContentEncoding.decode(is, null));
+		assertSame(is, ContentEncoding.decode(is, ""));
+		assertSame(is, ContentEncoding.decode(is, " Identity "));
+		
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		OutputStream os = ContentEncoding.GZIP.encode(bos);
+		os.write(this.document);
+		os.close();
+		
+		byte[] decoded = read(ContentEncoding.decode(new ByteArrayInputStream(bos.toByteArray()), " X-GZIP "));
+		assertTrue(Arrays.equals(this.document, decoded));
+		
+		try {
+			ContentEncoding.decode(is, "br");
+			fail("Unsupported encoding decoded!");
+		} catch (IOException e) {
+			//expected
+		}
+	}
+
+	/**
+	 * <p>Deserializes the document by all encodings from the server
+	 * compressing it by all formats, the server compresses the document only
+	 * if the request accepts it.</p>
+	 */
+	public void testDeserializeCompressedResponse() throws Exception {
+		for(ContentEncoding contentEncoding : ContentEncoding.values()) {
+			XmlContext context = createContext(contentEncoding);
+			
+			for(Compression compression : Compression.values()) {
+				this.server.setDocument(this.document, compression);
+				this.server.reset();
+				
+				Deserializer<People> deserializer = context.createDeserializer(People.class);
+				deserializer.deserialize(this.server.getUrl("/people"));
+				
+				String message = contentEncoding + " from " + compression;
+				assertTrue(message, Arrays.equals(this.document, serialize(context, deserializer.getValue())));
+				
+				if(contentEncoding != ContentEncoding.IDENTITY) {
+					assertEquals(message, ContentEncoding.ACCEPTED_ENCODINGS,
+							this.server.getRequests().get(0).getHeader("accept-encoding"));
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>Serializes the document into the server by all encodings, the
+	 * received body is decompressed by its <code>Content-Encoding</code>.</p>
+	 */
+	public void testSerializeCompressedRequest() throws Exception {
+		for(ContentEncoding contentEncoding : ContentEncoding.values()) {
+			this.server.reset();
+			Serializer serializer = createContext(contentEncoding).createSerializer();
+			serializer.serialize(this.people, this.server.getUrl("/people"));
+			
+			List<LoopbackServer.Request> requests = this.server.getRequests();
+			assertEquals(1, requests.size());
+			
+			LoopbackServer.Request request = requests.get(0);
+			assertEquals("POST", request.getMethod());
+			assertEquals(contentEncoding == ContentEncoding.IDENTITY ? null : contentEncoding.getToken(),
+					request.getHeader("content-encoding"));
+			assertTrue(contentEncoding.name(), Arrays.equals(this.document, request.getBody()));
+		}
+	}
+
+	private static XmlContext createContext(ContentEncoding contentEncoding) {
+		ContextConfiguration configuration = XmlContextFactory.getInstance().defaultConfiguration();
+		configuration.setContentEncoding(contentEncoding);
+		return XmlContextFactory.getInstance().createXmlContext(configuration);
+	}
+
+	private static byte[] serialize(XmlContext context, Object obj) throws Exception {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		context.createSerializer().serialize(obj, bos);
+		return bos.toByteArray();
+	}
+
+	private static byte[] read(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		
+		while((read = is.read(buffer)) >= 0) {
+			bos.write(buffer, 0, read);
+		}
+		
+		is.close();
+		return bos.toByteArray();
+	}
+
+}
@@ -0,0 +1,203 @@
+package org.xpa.example.test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.xpa.example.data.people.People;
+import org.xpaframework.ContentEncoding;
+import org.xpaframework.HttpSerializationClient;
+import org.xpaframework.Serializer;
+import org.xpaframework.xml.XmlContext;
+import org.xpaframework.xml.XmlContextFactory;
+
+
+/**
+ * <p>Tests of the {@link HttpSerializationClient} and of the serialization
+ * into the {@link URL} against the {@link LoopbackServer}: the reuse of the
+ * kept alive connections, the batch requests, the counters and the
+ * disconnection of the failed requests.</p>
+ * 
+ * @author Jan Janickovic
+ */
+public class HttpSerializationClientTest extends TestCase {
+	
+	private static final String CONTENT_TYPE = "application/xml";
+	private static final String CRLF = "\r\n";
+	
+	/**
+	 * The time to wait for the server to close the disconnected connection
+	 * in milliseconds.
+	 */
+	private static final long CLOSE_TIMEOUT = 2000;
+	
+	private LoopbackServer server;
+	private XmlContext context;
+	private People people;
+	private byte[] document;
+	
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.context = XmlContextFactory.getInstance().createXmlContext();
+		this.people = People.createPeople(100);
+		
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		this.context.createSerializer().serialize(this.people, bos);
+		this.document = bos.toByteArray();
+		
+		this.server = new LoopbackServer();
+		this.server.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.server.stop();
+		super.tearDown();
+	}
+
+	public void testKeepAlive() throws Exception {
+		HttpSerializationClient client = createClient();
+		URL url = this.server.getUrl("/people");
+		
+		for(int i = 0; i < 5; i++) {
+			assertEquals(HttpURLConnection.HTTP_OK, client.post(this.people, url));
+		}
+		
+		List<LoopbackServer.Request> requests = this.server.getRequests();
+		assertEquals(5, requests.size());
+		assertEquals(1, this.server.getConnectionCount());
+		
+		for(LoopbackServer.Request request : requests) {
+			assertEquals(CONTENT_TYPE, request.getHeader("content-type"));
+			assertTrue(Arrays.equals(this.document, request.getBody()));
+		}
+	}
+
+	public void testBatch() throws Exception {
+		HttpSerializationClient client = createClient();
+		client.post(Arrays.asList(this.people, this.people, this.people), this.server.getUrl("/people"));
+		
+		List<LoopbackServer.Request> requests = this.server.getRequests();
+		assertEquals(1, requests.size());
+		
+		String contentType = requests.get(0).getHeader("content-type");
+		assertTrue(contentType, contentType.startsWith(HttpSerializationClient.CONTENT_TYPE_MULTIPART));
+		
+		String boundary = contentType.substring(HttpSerializationClient.CONTENT_TYPE_MULTIPART.length());
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		
+		for(int i = 0; i < 3; i++) {
+			expected.write(("--" + boundary + CRLF + "Content-Type: " + CONTENT_TYPE + CRLF + CRLF).getBytes("US-ASCII"));
+			expected.write(this.document);
+			expected.write(CRLF.getBytes("US-ASCII"));
+		}
+		
+		expected.write(("--" + boundary + "--" + CRLF).getBytes("US-ASCII"));
+		assertTrue(Arrays.equals(expected.toByteArray(), requests.get(0).getBody()));
+		
+		try {
+			client.post(Arrays.asList(), this.server.getUrl("/people"));
+			fail("Empty batch posted!");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	public void testStatistics() throws Exception {
+		HttpSerializationClient client = createClient();
+		client.setContentEncoding(ContentEncoding.GZIP);
+		URL url = this.server.getUrl("/people");
+		
+		client.post(this.people, url);
+		client.post(Arrays.asList(this.people, this.people), url);
+		
+		HttpSerializationClient.Statistics statistics = client.getStatistics();
+		assertEquals(2, statistics.getRequestCount());
+		assertEquals(3, statistics.getDocumentCount());
+		assertEquals(0, statistics.getFailureCount());
+		
+		long bytesSent = 0;
+		
+		for(LoopbackServer.Request request : this.server.getRequests()) {
+			assertEquals(ContentEncoding.GZIP.getToken(), request.getHeader("content-encoding"));
+			bytesSent += request.getContentLength();
+		}
+		
+		assertEquals(bytesSent, statistics.getBytesSent());
+		assertTrue(statistics.getAverageLatency() > 0);
+		assertTrue(statistics.getMaxLatency() >= statistics.getAverageLatency());
+		
+		this.server.setResponseCode(HttpURLConnection.HTTP_INTERNAL_ERROR);
+		assertEquals(HttpURLConnection.HTTP_INTERNAL_ERROR, client.post(this.people, url));
+		assertEquals(3, statistics.getRequestCount());
+		assertEquals(1, statistics.getFailureCount());
+		
+		statistics.reset();
+		assertEquals(0, statistics.getRequestCount());
+		assertEquals(0, statistics.getBytesSent());
+	}
+
+	/**
+	 * <p>The request failed by the serialization after its headers are sent
+	 * is disconnected, the next request opens a new connection.</p>
+	 */
+	public void testFailedPostDisconnects() throws Exception {
+		HttpSerializationClient client = createClient();
+		URL url = this.server.getUrl("/people");
+		
+		try {
+			client.post(Arrays.asList(this.people, new Object()), url);
+			fail("Unmapped object posted!");
+		} catch (Exception e) {
+			//expected
+		}
+		
+		assertTrue(awaitClosedConnections(1));
+		assertEquals(1, client.getStatistics().getFailureCount());
+		
+		assertEquals(HttpURLConnection.HTTP_OK, client.post(this.people, url));
+		assertEquals(2, this.server.getConnectionCount());
+	}
+
+	public void testFailedSerializationDisconnects() throws Exception {
+		Serializer serializer = this.context.createSerializer();
+		
+		try {
+			serializer.serialize(new Object(), this.server.getUrl("/people"));
+			fail("Unmapped object serialized!");
+		} catch (Exception e) {
+			//expected
+		}
+		
+		assertTrue(awaitClosedConnections(1));
+	}
+
+	private HttpSerializationClient createClient() {
+		return new HttpSerializationClient(this.context.createSerializer(), CONTENT_TYPE, 2);
+	}
+
+	/**
+	 * @return <code>true</code> if the server accepted the
+	 * <code>connectionCount</code> connections and all of them are closed
+	 * within the {@link #CLOSE_TIMEOUT}.
+	 */
+	private boolean awaitClosedConnections(int connectionCount) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT;
+		
+		while(this.server.getConnectionCount() < connectionCount || this.server.getOpenConnectionCount() > 0) {
+			if(System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			
+			Thread.sleep(10);
+		}
+		
+		return true;
+	}
+
+}
@@ -0,0 +1,399 @@
+package org.xpa.example.test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+
+/**
+ * <p>Minimal HTTP/1.1 server on the loopback interface standing in for the
+ * remote endpoints of the tests. The server answers every request by the
+ * set response code and document, the chunked and the fixed length request
+ * bodies are read and recorded with their headers. The connections are kept
+ * alive until the client closes them, so the reuse of the connections is
+ * observable by {@link #getConnectionCount()}.</p>
+ * <p>The document is compressed by the set {@link Compression} only if the
+ * request accepts its content encoding, as a real server would do.</p>
+ * 
+ * @author Jan Janickovic
+ */
+public class LoopbackServer {
+	
+	private static final String CRLF = "\r\n";
+	private static final String CHARSET_ASCII = "US-ASCII";
+	
+	/**
+	 * The formats of the compressed response document.
+	 */
+	public enum Compression {
+		IDENTITY(null),
+		GZIP("gzip"),
+		ZLIB("deflate"),
+		RAW_DEFLATE("deflate");
+		
+		private String token;
+		
+		private Compression(String token) {
+			this.token = token;
+		}
+		
+		private byte[] compress(byte[] document) throws IOException {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			OutputStream os;
+			
+			switch(this) {
+			case GZIP:
+				os = new GZIPOutputStream(bos);
+				break;
+			case ZLIB:
+				os = new DeflaterOutputStream(bos);
+				break;
+			case RAW_DEFLATE:
+				os = new DeflaterOutputStream(bos, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+				break;
+			default:
+				return document;
+			}
+			
+			os.write(document);
+			os.close();
+			return bos.toByteArray();
+		}
+	}
+
+	private ServerSocket serverSocket;
+	private Thread acceptThread;
+	
+	private volatile int responseCode = 200;
+	private volatile byte[] document = new byte[0];
+	private volatile Compression compression = Compression.IDENTITY;
+	
+	private List<Request> requests = Collections.synchronizedList(new ArrayList<Request>());
+	private List<Socket> connections = Collections.synchronizedList(new ArrayList<Socket>());
+	private AtomicInteger connectionCount = new AtomicInteger();
+	private AtomicInteger openConnectionCount = new AtomicInteger();
+	
+	/**
+	 * <p>Starts the server on a free port of the loopback interface.</p>
+	 */
+	public void start() throws IOException {
+		this.serverSocket = new ServerSocket(0, 0, InetAddress.getByName("127.0.0.1"));
+		this.acceptThread = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				accept();
+			}
+		
+		}, "loopback-server");
+		this.acceptThread.start();
+	}
+
+	/**
+	 * <p>Stops the server and closes all its connections.</p>
+	 */
+	public void stop() throws IOException, InterruptedException {
+		this.serverSocket.close();
+		this.acceptThread.join();
+		
+		synchronized(this.connections) {
+			for(Socket socket : this.connections) {
+				socket.close();
+			}
+		}
+	}
+
+	/**
+	 * @return the url of the <code>path</code> on this server.
+	 */
+	public URL getUrl(String path) throws IOException {
+		return new URL("http", "127.0.0.1", this.serverSocket.getLocalPort(), path);
+	}
+
+	public void setResponseCode(int responseCode) {
+		this.responseCode = responseCode;
+	}
+
+	/**
+	 * @param document - the body of the responses.
+	 * @param compression - the compression of the body, if accepted by the
+	 * request.
+	 */
+	public void setDocument(byte[] document, Compression compression) {
+		this.document = document;
+		this.compression = compression;
+	}
+
+	/**
+	 * @return the received requests in their order.
+	 */
+	public List<Request> getRequests() {
+		synchronized(this.requests) {
+			return new ArrayList<Request>(this.requests);
+		}
+	}
+
+	/**
+	 * @return the count of the accepted connections.
+	 */
+	public int getConnectionCount() {
+		return this.connectionCount.get();
+	}
+
+	/**
+	 * @return the count of the connections not closed yet, the kept alive
+	 * connections are counted.
+	 */
+	public int getOpenConnectionCount() {
+		return this.openConnectionCount.get();
+	}
+
+	public void reset() {
+		this.requests.clear();
+		this.connectionCount.set(0);
+	}
+
+	private void accept() {
+		while(!this.serverSocket.isClosed()) {
+			final Socket socket;
+			
+			try {
+				socket = this.serverSocket.accept();
+			} catch (IOException e) {
+				return;//closed by stop()
+			}
+			
+			this.connectionCount.incrementAndGet();
+			this.openConnectionCount.incrementAndGet();
+			this.connections.add(socket);
+			
+			Thread thread = new Thread(new Runnable() {
+				
+				@Override
+				public void run() {
+					try {
+						serve(socket);
+					} catch (IOException e) {
+						//the connection is closed
+					} finally {
+						close(socket);
+						LoopbackServer.this.openConnectionCount.decrementAndGet();
+					}
+				}
+			
+			}, "loopback-connection");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * <p>Serves the requests of the keep-alive connection until the client
+	 * closes it.</p>
+	 */
+	private void serve(Socket socket) throws IOException {
+		InputStream is = new BufferedInputStream(socket.getInputStream());
+		OutputStream os = socket.getOutputStream();
+		String requestLine;
+		
+		while((requestLine = readLine(is)) != null) {
+			if(requestLine.length() == 0) {
+				continue;
+			}
+			
+			String[] parts = requestLine.split(" ");
+			Map<String, String> headers = new HashMap<String, String>();
+			String line;
+			
+			while((line = readLine(is)) != null && line.length() > 0) {
+				int colon = line.indexOf(':');
+				headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+			}
+			
+			Request request = new Request(parts[0], parts[1], headers, readBody(is, headers));
+			this.requests.add(request);
+			respond(request, os);
+			
+			if("close".equalsIgnoreCase(headers.get("connection"))) {
+				return;
+			}
+		}
+	}
+
+	private void respond(Request request, OutputStream os) throws IOException {
+		Compression compression = this.compression;
+		String accepted = request.getHeader("accept-encoding");
+		
+		if(compression.token == null || accepted == null || !accepted.contains(compression.token)) {
+			compression = Compression.IDENTITY;
+		}
+		
+		byte[] body = compression.compress(this.document);
+		StringBuilder header = new StringBuilder();
+		header.append("HTTP/1.1 ").append(this.responseCode).append(" Status").append(CRLF);
+		header.append("Content-Type: application/xml").append(CRLF);
+		header.append("Content-Length: ").append(body.length).append(CRLF);
+		
+		if(compression.token != null) {
+			header.append("Content-Encoding: ").append(compression.token).append(CRLF);
+		}
+		
+		header.append(CRLF);
+		os.write(header.toString().getBytes(CHARSET_ASCII));
+		os.write(body);
+		os.flush();
+	}
+
+	private static byte[] readBody(InputStream is, Map<String, String> headers) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		
+		if("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+			int size;
+			
+			while((size = Integer.parseInt(readRequiredLine(is).split(";")[0].trim(), 16)) > 0) {
+				copy(is, body, size);
+				readRequiredLine(is);
+			}
+			
+			while(readRequiredLine(is).length() > 0) {
+				//skips the trailer up to the empty line
+			}
+		} else if(headers.containsKey("content-length")) {
+			copy(is, body, Integer.parseInt(headers.get("content-length")));
+		}
+		
+		return body.toByteArray();
+	}
+
+	private static void copy(InputStream is, OutputStream os, int length) throws IOException {
+		byte[] buffer = new byte[4096];
+		
+		while(length > 0) {
+			int read = is.read(buffer, 0, Math.min(buffer.length, length));
+			
+			if(read < 0) {
+				throw new IOException("Unexpected end of the request body!");
+			}
+			
+			os.write(buffer, 0, read);
+			length -= read;
+		}
+	}
+
+	private static String readLine(InputStream is) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		
+		while((c = is.read()) >= 0 && c != '\n') {
+			if(c != '\r') {
+				line.append((char) c);
+			}
+		}
+		
+		return c < 0 && line.length() == 0 ? null : line.toString();
+	}
+
+	private static String readRequiredLine(InputStream is) throws IOException {
+		String line = readLine(is);
+		
+		if(line == null) {
+			throw new IOException("Unexpected end of the request!");
+		}
+		
+		return line;
+	}
+
+	private static void close(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			//already closed
+		}
+	}
+
+	/**
+	 * <p>The request received by the {@link LoopbackServer}.</p>
+	 */
+	public static class Request {
+		
+		private String method;
+		private String path;
+		private Map<String, String> headers;
+		private byte[] body;
+		
+		private Request(String method, String path, Map<String, String> headers, byte[] body) {
+			this.method = method;
+			this.path = path;
+			this.headers = headers;
+			this.body = body;
+		}
+		
+		public String getMethod() {
+			return method;
+		}
+		
+		public String getPath() {
+			return path;
+		}
+		
+		/**
+		 * @param name - the lower case name of the header.
+		 */
+		public String getHeader(String name) {
+			return this.headers.get(name);
+		}
+		
+		/**
+		 * @return the length of the received request body.
+		 */
+		public int getContentLength() {
+			return this.body.length;
+		}
+		
+		/**
+		 * @return the request body decompressed by its
+		 * <code>Content-Encoding</code>.
+		 */
+		public byte[] getBody() throws IOException {
+			String contentEncoding = getHeader("content-encoding");
+			InputStream is = new ByteArrayInputStream(this.body);
+			
+			if("gzip".equals(contentEncoding)) {
+				is = new GZIPInputStream(is);
+			} else if("deflate".equals(contentEncoding)) {
+				is = new InflaterInputStream(is, new Inflater());
+			}
+			
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			
+			while((read = is.read(buffer)) >= 0) {
+				bos.write(buffer, 0, read);
+			}
+			
+			return bos.toByteArray();
+		}
+	
+	}
+
+}
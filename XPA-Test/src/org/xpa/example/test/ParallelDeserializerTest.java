@@ -0,0 +1,245 @@
+package org.xpa.example.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.xpaframework.Deserializer;
+import org.xpaframework.xml.ContextConfiguration;
+import org.xpaframework.xml.OutputType;
+import org.xpaframework.xml.ParallelDeserializer;
+import org.xpaframework.xml.XmlContext;
+import org.xpaframework.xml.XmlContextFactory;
+import org.xpaframework.xml.annotation.XmlElement;
+import org.xpaframework.xml.annotation.XmlRootElement;
+import org.xpaframework.xml.annotation.XmlType;
+
+
+/**
+ * <p>Tests of the {@link ParallelDeserializer} against the sequential
+ * deserialization. The documents are larger than
+ * {@link ParallelDeserializer#MIN_PARALLEL_SIZE}, so they are split, and
+ * the non-repeated elements of the root differ from the defaults of the
+ * mapped fields.</p>
+ * 
+ * @author Jan Janickovic
+ */
+public class ParallelDeserializerTest extends TestCase {
+	
+	private static final int ITEM_COUNT = 2000;
+	private static final int PARALLELISM = 2;
+	
+	private XmlContext context;
+	private ExecutorService executor;
+	
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		ContextConfiguration configuration = XmlContextFactory.getInstance().defaultConfiguration();
+		configuration.setOutputType(OutputType.UTF8);
+		this.context = XmlContextFactory.getInstance().createXmlContext(configuration);
+		this.executor = Executors.newFixedThreadPool(PARALLELISM);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.executor.shutdown();
+		super.tearDown();
+	}
+
+	/**
+	 * <p>The values of the document header and trailer are kept, they are
+	 * not replaced by the defaults of the item chunks' roots.</p>
+	 */
+	public void testDefaultsNotStitched() throws Exception {
+		byte[] document = createDocument("catalog", "<version>2.0</version><revision>7</revision>",
+				"<title>Trailer</title>");
+		
+		Catalog sequential = deserialize(Catalog.class, document);
+		assertEquals("2.0", sequential.version);
+		assertEquals(7, sequential.revision);
+		assertEquals("Trailer", sequential.title);
+		assertEquals(ITEM_COUNT, sequential.item.size());
+		
+		Catalog parallel = deserializeParallel(Catalog.class, document);
+		assertEquals("2.0", parallel.version);
+		assertEquals(7, parallel.revision);
+		assertEquals("Trailer", parallel.title);
+		assertEquals(serialize(sequential), serialize(parallel));
+	}
+
+	/**
+	 * <p>The list of the repeated element filled by its initializer can not
+	 * be stitched in the document order, the document is deserialized
+	 * sequentially.</p>
+	 */
+	public void testInitializedList() throws Exception {
+		byte[] document = createDocument("seeded-catalog", "<version>3.0</version>", "");
+		
+		SeededCatalog sequential = deserialize(SeededCatalog.class, document);
+		assertEquals(ITEM_COUNT + 1, sequential.item.size());
+		
+		SeededCatalog parallel = deserializeParallel(SeededCatalog.class, document);
+		assertEquals("3.0", parallel.version);
+		assertEquals(serialize(sequential), serialize(parallel));
+	}
+
+	private <T> T deserialize(Class<T> clazz, byte[] document) throws Exception {
+		Deserializer<T> deserializer = this.context.createDeserializer(clazz);
+		deserializer.deserialize(new ByteArrayInputStream(document));
+		return deserializer.getValue();
+	}
+
+	private <T> T deserializeParallel(Class<T> clazz, byte[] document) throws Exception {
+		ParallelDeserializer<T> deserializer = this.context.createParallelDeserializer(clazz,
+				this.executor, PARALLELISM);
+		deserializer.deserialize(document);
+		return deserializer.getValue();
+	}
+
+	private String serialize(Object obj) throws Exception {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		this.context.createSerializer().serialize(obj, bos);
+		return bos.toString("UTF-8");
+	}
+
+	/**
+	 * @return the document of the <code>rootName</code> element with the
+	 * {@link #ITEM_COUNT} repeated items between the <code>header</code>
+	 * and the <code>trailer</code>.
+	 */
+	private static byte[] createDocument(String rootName, String header, String trailer) throws Exception {
+		StringBuilder document = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		document.append('<').append(rootName).append('>').append(header);
+		
+		for(int i = 0; i < ITEM_COUNT; i++) {
+			document.append("<item><name>Item number ").append(i).append("</name><quantity>")
+					.append(i % 100).append("</quantity></item>");
+		}
+		
+		document.append(trailer).append("</").append(rootName).append('>');
+		byte[] data = document.toString().getBytes("UTF-8");
+		assertTrue(data.length > ParallelDeserializer.MIN_PARALLEL_SIZE);
+		return data;
+	}
+
+	/**
+	 * <p>The root with the non-repeated elements initialized to the
+	 * defaults.</p>
+	 */
+	@XmlRootElement
+	@XmlType(order = {"version", "revision", "item", "title"})
+	public static class Catalog {
+		
+		@XmlElement
+		private String version = "1.0";
+		@XmlElement
+		private int revision = 1;
+		@XmlElement
+		private List<Item> item = new ArrayList<Item>();
+		@XmlElement
+		private String title = "Untitled";
+		
+		public String getVersion() {
+			return version;
+		}
+		
+		public void setVersion(String version) {
+			this.version = version;
+		}
+		
+		public int getRevision() {
+			return revision;
+		}
+		
+		public void setRevision(int revision) {
+			this.revision = revision;
+		}
+		
+		public List<Item> getItem() {
+			return item;
+		}
+		
+		public void setItem(List<Item> item) {
+			this.item = item;
+		}
+		
+		public String getTitle() {
+			return title;
+		}
+		
+		public void setTitle(String title) {
+			this.title = title;
+		}
+	
+	}
+
+	/**
+	 * <p>The root with the list of the repeated element holding the default
+	 * item.</p>
+	 */
+	@XmlRootElement(name = "seeded-catalog")
+	@XmlType(order = {"version", "item"})
+	public static class SeededCatalog {
+		
+		@XmlElement
+		private String version = "1.0";
+		@XmlElement
+		private List<Item> item = new ArrayList<Item>();
+		
+		public SeededCatalog() {
+			Item seed = new Item();
+			seed.name = "Seed";
+			this.item.add(seed);
+		}
+		
+		public String getVersion() {
+			return version;
+		}
+		
+		public void setVersion(String version) {
+			this.version = version;
+		}
+		
+		public List<Item> getItem() {
+			return item;
+		}
+		
+		public void setItem(List<Item> item) {
+			this.item = item;
+		}
+	
+	}
+
+	@XmlType(order = {"name", "quantity"})
+	public static class Item {
+		
+		@XmlElement
+		private String name;
+		@XmlElement
+		private int quantity;
+		
+		public String getName() {
+			return name;
+		}
+		
+		public void setName(String name) {
+			this.name = name;
+		}
+		
+		public int getQuantity() {
+			return quantity;
+		}
+		
+		public void setQuantity(int quantity) {
+			this.quantity = quantity;
+		}
+	
+	}
+
+}
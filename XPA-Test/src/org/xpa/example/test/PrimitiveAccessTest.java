@@ -0,0 +1,265 @@
+package org.xpa.example.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+import org.xpaframework.CharArrayValueAdapter;
+import org.xpaframework.Deserializer;
+import org.xpaframework.IntValueAdapter;
+import org.xpaframework.PrintingValueAdapter;
+import org.xpaframework.xml.AccessType;
+import org.xpaframework.xml.ContextConfiguration;
+import org.xpaframework.xml.OutputType;
+import org.xpaframework.xml.SimpleTypeRegistry;
+import org.xpaframework.xml.XmlContext;
+import org.xpaframework.xml.XmlContextFactory;
+import org.xpaframework.xml.annotation.XmlElement;
+import org.xpaframework.xml.annotation.XmlRootElement;
+import org.xpaframework.xml.annotation.XmlTransient;
+import org.xpaframework.xml.annotation.XmlType;
+import org.xpaframework.xml.util.CharParser;
+
+
+/**
+ * <p>Tests of the binding of the primitive fields by the
+ * {@link IntValueAdapter} and the other primitive-specialized adapters. The
+ * <code>int</code> adapter counts its typed and boxed conversions and the
+ * mapped {@link Gauge} counts the invocations of its accessor methods.</p>
+ * 
+ * @author Jan Janickovic
+ */
+public class PrimitiveAccessTest extends TestCase {
+	
+	private static final String DOCUMENT = "<gauge><count>42</count><total>9876543210</total>" +
+			"<ratio>0.25</ratio><active>true</active><grade>B</grade></gauge>";
+	
+	private CountingIntAdapter intAdapter;
+	
+	/**
+	 * <p>The field access binds the values by the typed adapter methods and
+	 * the typed field access, no accessor method is invoked.</p>
+	 */
+	public void testFieldAccess() throws Exception {
+		XmlContext context = createContext(AccessType.FIELD, OutputType.UTF8);
+		Gauge gauge = deserialize(context);
+		
+		assertValues(gauge);
+		assertEquals(0, gauge.accessorCalls);
+		assertEquals(1, this.intAdapter.typedCalls);
+		assertEquals(0, this.intAdapter.boxedCalls);
+		
+		assertEquals(DOCUMENT, serialize(context, gauge));
+		assertEquals(0, gauge.accessorCalls);
+		assertEquals(2, this.intAdapter.typedCalls);
+		assertEquals(0, this.intAdapter.boxedCalls);
+	}
+
+	/**
+	 * <p>The property access uses the typed adapter methods as well, but the
+	 * values are passed through the accessor methods.</p>
+	 */
+	public void testPropertyAccess() throws Exception {
+		XmlContext context = createContext(AccessType.PROPERTY, OutputType.UTF8);
+		Gauge gauge = deserialize(context);
+		
+		assertValues(gauge);
+		assertEquals(5, gauge.accessorCalls);
+		assertEquals(1, this.intAdapter.typedCalls);
+		assertEquals(0, this.intAdapter.boxedCalls);
+		
+		assertEquals(DOCUMENT, serialize(context, gauge));
+		assertEquals(10, gauge.accessorCalls);
+		assertEquals(0, this.intAdapter.boxedCalls);
+	}
+
+	private XmlContext createContext(AccessType accessType, OutputType outputType) {
+		this.intAdapter = new CountingIntAdapter();
+		CountingRegistry registry = new CountingRegistry(this.intAdapter);
+		registry.initialize();
+		
+		ContextConfiguration configuration = XmlContextFactory.getInstance().defaultConfiguration();
+		configuration.setAccessType(accessType);
+		configuration.setOutputType(outputType);
+		configuration.setAdapterRegistry(registry);
+		return XmlContextFactory.getInstance().createXmlContext(configuration);
+	}
+
+	private static Gauge deserialize(XmlContext context) throws Exception {
+		Deserializer<Gauge> deserializer = context.createDeserializer(Gauge.class);
+		deserializer.deserialize(new ByteArrayInputStream(DOCUMENT.getBytes("UTF-8")));
+		return deserializer.getValue();
+	}
+
+	private static String serialize(XmlContext context, Gauge gauge) throws Exception {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		context.createSerializer().serialize(gauge, bos);
+		String document = bos.toString("UTF-8");
+		return document.substring(document.indexOf("<gauge>"));
+	}
+
+	private static void assertValues(Gauge gauge) {
+		assertEquals(42, gauge.count);
+		assertEquals(9876543210L, gauge.total);
+		assertEquals(0.25, gauge.ratio, 0);
+		assertTrue(gauge.active);
+		assertEquals('B', gauge.grade);
+	}
+
+	/**
+	 * <p>The mapped class counting the invocations of its accessor
+	 * methods.</p>
+	 */
+	@XmlRootElement
+	@XmlType(order = {"count", "total", "ratio", "active", "grade"})
+	public static class Gauge {
+		
+		@XmlElement
+		private int count;
+		@XmlElement
+		private long total;
+		@XmlElement
+		private double ratio;
+		@XmlElement
+		private boolean active;
+		@XmlElement
+		private char grade;
+		
+		@XmlTransient
+		private int accessorCalls;
+		
+		public int getCount() {
+			this.accessorCalls++;
+			return count;
+		}
+		
+		public void setCount(int count) {
+			this.accessorCalls++;
+			this.count = count;
+		}
+		
+		public long getTotal() {
+			this.accessorCalls++;
+			return total;
+		}
+		
+		public void setTotal(long total) {
+			this.accessorCalls++;
+			this.total = total;
+		}
+		
+		public double getRatio() {
+			this.accessorCalls++;
+			return ratio;
+		}
+		
+		public void setRatio(double ratio) {
+			this.accessorCalls++;
+			this.ratio = ratio;
+		}
+		
+		public boolean isActive() {
+			this.accessorCalls++;
+			return active;
+		}
+		
+		public void setActive(boolean active) {
+			this.accessorCalls++;
+			this.active = active;
+		}
+		
+		public char getGrade() {
+			this.accessorCalls++;
+			return grade;
+		}
+		
+		public void setGrade(char grade) {
+			this.accessorCalls++;
+			this.grade = grade;
+		}
+	
+	}
+
+	/**
+	 * <p>The registry with the counting adapter of the <code>int</code>
+	 * fields.</p>
+	 */
+	private static class CountingRegistry extends SimpleTypeRegistry {
+		
+		private CountingIntAdapter intAdapter;
+		
+		private CountingRegistry(CountingIntAdapter intAdapter) {
+			this.intAdapter = intAdapter;
+		}
+		
+		@Override
+		public void initialize() {
+			super.initialize();
+			registerAdapter(this.intAdapter);
+		}
+	
+	}
+
+	/**
+	 * <p>The adapter of the <code>int</code> fields counting its typed and
+	 * boxed conversions.</p>
+	 */
+	private static class CountingIntAdapter implements IntValueAdapter<Integer>,
+			CharArrayValueAdapter<Integer>, PrintingValueAdapter<Integer> {
+		
+		private int typedCalls;
+		private int boxedCalls;
+		
+		@Override
+		public Class<?> getType() {
+			return int.class;
+		}
+		
+		@Override
+		public int parseInt(char[] buffer, int start, int length) {
+			this.typedCalls++;
+			return CharParser.parseInt(buffer, start, length);
+		}
+		
+		@Override
+		public String printInt(int value) {
+			this.typedCalls++;
+			return Integer.toString(value);
+		}
+		
+		@Override
+		public int printInt(int value, char[] buffer, int start) {
+			this.typedCalls++;
+			String digits = Integer.toString(value);
+			digits.getChars(0, digits.length(), buffer, start);
+			return digits.length();
+		}
+		
+		@Override
+		public Integer convertValue(char[] buffer, int start, int length) {
+			this.boxedCalls++;
+			return CharParser.parseInt(buffer, start, length);
+		}
+		
+		@Override
+		public Integer convertValue(String value) {
+			this.boxedCalls++;
+			return Integer.valueOf(value);
+		}
+		
+		@Override
+		public int print(Integer target, char[] buffer, int start) {
+			this.boxedCalls++;
+			return printInt(target.intValue(), buffer, start);
+		}
+		
+		@Override
+		public String toString(Integer target) {
+			this.boxedCalls++;
+			return target.toString();
+		}
+	
+	}
+
+}
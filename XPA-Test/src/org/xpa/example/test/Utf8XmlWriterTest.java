@@ -0,0 +1,149 @@
+package org.xpa.example.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+import org.xpaframework.Deserializer;
+import org.xpaframework.SerializationException;
+import org.xpaframework.xml.ContextConfiguration;
+import org.xpaframework.xml.OutputType;
+import org.xpaframework.xml.Utf8XmlWriter;
+import org.xpaframework.xml.XmlContext;
+import org.xpaframework.xml.XmlContextFactory;
+import org.xpaframework.xml.annotation.XmlAttribute;
+import org.xpaframework.xml.annotation.XmlElement;
+import org.xpaframework.xml.annotation.XmlRootElement;
+
+
+/**
+ * <p>Tests of the escaping of the {@link Utf8XmlWriter}. The escaped values
+ * are deserialized back to the same strings, the characters not allowed by
+ * XML 1.0 and the unpaired surrogates are rejected.</p>
+ * 
+ * @author Jan Janickovic
+ */
+public class Utf8XmlWriterTest extends TestCase {
+	
+	private XmlContext context;
+	
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		ContextConfiguration configuration = XmlContextFactory.getInstance().defaultConfiguration();
+		configuration.setOutputType(OutputType.UTF8);
+		this.context = XmlContextFactory.getInstance().createXmlContext(configuration);
+	}
+
+	/**
+	 * <p>The carriage returns, the whitespace of the attribute values, the
+	 * markup characters and the supplementary characters are kept.</p>
+	 */
+	public void testRoundTrip() throws Exception {
+		String[] values = {"a\rb", "line\r\nend\r", "tab\there\nnext", "<&>\"'",
+				"\u00e9\u4e2d\ud83d\ude00", "\u0085\u2028\ufffd"};
+		
+		for(String value : values) {
+			Note note = new Note();
+			note.title = value;
+			note.body = value;
+			
+			Note result = roundTrip(note);
+			assertEquals(value, result.title);
+			assertEquals(value, result.body);
+		}
+	}
+
+	public void testCarriageReturnEscaped() throws Exception {
+		Note note = new Note();
+		note.body = "a\rb";
+		
+		String document = new String(serialize(note), Utf8XmlWriter.ENCODING);
+		assertTrue(document, document.contains("<body>a&#13;b</body>"));
+	}
+
+	public void testIllegalCharacters() throws Exception {
+		String[] values = {"\u0000", "a\u0001b", "\u001f", "\u000b", "\ufffe", "\uffff"};
+		
+		for(String value : values) {
+			assertRejected(value);
+		}
+	}
+
+	public void testUnpairedSurrogates() throws Exception {
+		String[] values = {"\ud83d", "a\ud83db", "\ude00", "\ude00\ud83d"};
+		
+		for(String value : values) {
+			assertRejected(value);
+		}
+	}
+
+	private void assertRejected(String value) throws Exception {
+		Note text = new Note();
+		text.body = value;
+		Note attribute = new Note();
+		attribute.title = value;
+		
+		for(Note note : new Note[]{text, attribute}) {
+			try {
+				serialize(note);
+				fail("Value serialized: " + escape(value));
+			} catch (SerializationException e) {
+				assertTrue(e.getCause() instanceof IllegalArgumentException);
+			}
+		}
+	}
+
+	private Note roundTrip(Note note) throws Exception {
+		Deserializer<Note> deserializer = this.context.createDeserializer(Note.class);
+		deserializer.deserialize(new ByteArrayInputStream(serialize(note)));
+		return deserializer.getValue();
+	}
+
+	private byte[] serialize(Note note) throws Exception {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		this.context.createSerializer().serialize(note, bos);
+		return bos.toByteArray();
+	}
+
+	private static String escape(String value) {
+		StringBuilder escaped = new StringBuilder();
+		
+		for(int i = 0; i < value.length(); i++) {
+			escaped.append("\\u").append(Integer.toHexString(value.charAt(i)));
+		}
+		
+		return escaped.toString();
+	}
+
+	/**
+	 * <p>The mapped class with the escaped attribute and element.</p>
+	 */
+	@XmlRootElement
+	public static class Note {
+		
+		@XmlAttribute
+		private String title;
+		@XmlElement
+		private String body;
+		
+		public String getTitle() {
+			return title;
+		}
+		
+		public void setTitle(String title) {
+			this.title = title;
+		}
+		
+		public String getBody() {
+			return body;
+		}
+		
+		public void setBody(String body) {
+			this.body = body;
+		}
+	
+	}
+
+}